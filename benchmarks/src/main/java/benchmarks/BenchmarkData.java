@@ -0,0 +1,52 @@
+package benchmarks;
+
+import model.Expense;
+import tools.LedgerGenerator;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+// Seeded tools.LedgerGenerator datasets, so every run and every size
+// measures the same rows
+final class BenchmarkData {
+    static final LocalDate FIRST_DAY = LocalDate.of(2021, 1, 1);
+    static final LocalDate LAST_DAY = LocalDate.of(2024, 12, 31);
+
+    private BenchmarkData() {
+    }
+
+    static List<Expense> expenses(int rows) {
+        return generator(rows).generate(rows);
+    }
+
+    // A data directory whose expenses.txt holds exactly expenses(rows)
+    static Path ledger(int rows) throws IOException {
+        Path directory = Files.createTempDirectory("expense-bench");
+        generator(rows).write(directory.resolve("expenses.txt"), rows);
+        return directory;
+    }
+
+    private static LedgerGenerator generator(int rows) {
+        return new LedgerGenerator(rows, FIRST_DAY, LAST_DAY);
+    }
+
+    static void delete(Path directory) throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    // The repositories log every load and save; that output is not what is being measured
+    static void quiet() {
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+}
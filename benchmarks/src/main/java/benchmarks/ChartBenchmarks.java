@@ -0,0 +1,77 @@
+package benchmarks;
+
+import org.jfree.data.category.DefaultCategoryDataset;
+import org.jfree.data.general.DefaultPieDataset;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import persistence.ExpenseSnapshot;
+import persistence.FileExpenseRepository;
+import service.ChartService;
+import service.ExpenseService;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+// Dataset construction for each chart, from a pinned snapshot as refreshCharts does
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ChartBenchmarks {
+    @Param({"1000", "10000", "100000"})
+    int rows;
+
+    private final LocalDate referenceDate = BenchmarkData.LAST_DAY;
+    private Path directory;
+    private ChartService charts;
+    private ExpenseSnapshot snapshot;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        BenchmarkData.quiet();
+        directory = BenchmarkData.ledger(rows);
+        ExpenseService service = new ExpenseService(new FileExpenseRepository(directory.toString()));
+        charts = new ChartService(service);
+        snapshot = service.snapshot();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        BenchmarkData.delete(directory);
+    }
+
+    @Benchmark
+    public DefaultPieDataset<String> categoryDataset() {
+        return charts.createCategoryDataset(snapshot);
+    }
+
+    @Benchmark
+    public DefaultCategoryDataset monthlyDataset() {
+        return charts.createMonthlyDataset(snapshot, referenceDate);
+    }
+
+    @Benchmark
+    public DefaultCategoryDataset trendDataset() {
+        return charts.createTrendDataset(snapshot, referenceDate);
+    }
+
+    @Benchmark
+    public DefaultPieDataset<String> paymentMethodDataset() {
+        return charts.createPaymentMethodDataset(snapshot);
+    }
+}
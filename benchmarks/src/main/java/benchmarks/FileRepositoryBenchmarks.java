@@ -0,0 +1,132 @@
+package benchmarks;
+
+import model.Expense;
+import model.PaymentMethod;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import persistence.FileExpenseRepository;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+// FileExpenseRepository: opening a ledger, every lookup, and the writes,
+// each of which rewrites the whole file
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class FileRepositoryBenchmarks {
+    @Param({"1000", "10000", "100000"})
+    int rows;
+
+    private Path directory;
+    private FileExpenseRepository repository;
+    private List<Expense> expenses;
+    private Expense target;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        BenchmarkData.quiet();
+        expenses = BenchmarkData.expenses(rows);
+        directory = BenchmarkData.ledger(rows);
+        repository = new FileExpenseRepository(directory.toString());
+        target = expenses.get(rows / 2);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        BenchmarkData.delete(directory);
+    }
+
+    @Benchmark
+    public FileExpenseRepository load() {
+        return new FileExpenseRepository(directory.toString());
+    }
+
+    @Benchmark
+    public void save(Writes writes) {
+        Expense expense = writes.target;
+        writes.repository.save(new Expense(expense.getId(), expense.getAmount(), expense.getCategory(),
+                expense.getDescription(), expense.getDate(), PaymentMethod.CASH));
+    }
+
+    @Benchmark
+    public boolean delete(Writes writes) {
+        return writes.repository.delete(writes.target.getId());
+    }
+
+    @Benchmark
+    public Optional<Expense> findById() {
+        return repository.findById(target.getId());
+    }
+
+    @Benchmark
+    public List<Expense> findAll() {
+        return repository.findAll();
+    }
+
+    @Benchmark
+    public List<Expense> findByCategory() {
+        return repository.findByCategory("healthcare");
+    }
+
+    @Benchmark
+    public List<Expense> findByDateRange() {
+        return repository.findByDateRange("2024-03-01", "2024-03-31");
+    }
+
+    @Benchmark
+    public List<Expense> findPage() {
+        return repository.findPage(LocalDate.of(2023, 6, 30), null, 50);
+    }
+
+    // The writes get their own ledger, and only they pay for restoring it
+    // before every call; the lookups above never see a half-restored file
+    @State(Scope.Benchmark)
+    public static class Writes {
+        @Param({"1000", "10000", "100000"})
+        int rows;
+
+        private Path directory;
+        private FileExpenseRepository repository;
+        private Expense target;
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            BenchmarkData.quiet();
+            directory = BenchmarkData.ledger(rows);
+            repository = new FileExpenseRepository(directory.toString());
+            target = BenchmarkData.expenses(rows).get(rows / 2);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            BenchmarkData.delete(directory);
+        }
+
+        // delete() removes the target; put it back before the next call
+        @Setup(Level.Invocation)
+        public void restore() {
+            if (repository.findById(target.getId()).isEmpty()) {
+                repository.save(target);
+            }
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package benchmarks;
+
+import model.Expense;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import persistence.ExpenseLineFormat;
+
+import java.util.concurrent.TimeUnit;
+
+// One stored record: parsing and formatting (the former parseExpense and
+// formatExpense), and formatting with its checksum
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class LineFormatBenchmarks {
+    private Expense expense;
+    private String line;
+
+    @Setup
+    public void setUp() {
+        expense = BenchmarkData.expenses(1).get(0);
+        line = ExpenseLineFormat.format(expense);
+    }
+
+    @Benchmark
+    public Expense parse() {
+        return ExpenseLineFormat.parse(line);
+    }
+
+    @Benchmark
+    public String format() {
+        return ExpenseLineFormat.format(expense);
+    }
+
+    @Benchmark
+    public String frame() {
+        return ExpenseLineFormat.frame(expense);
+    }
+}
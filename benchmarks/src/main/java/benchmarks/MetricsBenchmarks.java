@@ -0,0 +1,104 @@
+package benchmarks;
+
+import metrics.InstrumentedExpenseRepository;
+import metrics.InstrumentedExpenseService;
+import metrics.LatencyHistogram;
+import metrics.MetricsRegistry;
+import model.Expense;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import persistence.ExpenseRepository;
+import persistence.FileExpenseRepository;
+import service.ExpenseService;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+// The cost of instrumentation: the same calls on a plain repository and
+// service and on their instrumented decorators, plus one histogram record
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class MetricsBenchmarks {
+    @Param({"10000"})
+    int rows;
+
+    private Path directory;
+    private ExpenseRepository plain;
+    private ExpenseRepository instrumented;
+    private ExpenseService plainService;
+    private ExpenseService instrumentedService;
+    private String id;
+    private final LatencyHistogram histogram = new LatencyHistogram();
+    private long value;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        BenchmarkData.quiet();
+        directory = BenchmarkData.ledger(rows);
+        plain = new FileExpenseRepository(directory.toString());
+        MetricsRegistry registry = new MetricsRegistry();
+        instrumented = new InstrumentedExpenseRepository(plain, registry);
+        plainService = new ExpenseService(plain);
+        instrumentedService = new InstrumentedExpenseService(instrumented, registry);
+        id = plain.findAll().get(rows / 2).getId();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        BenchmarkData.delete(directory);
+    }
+
+    @Benchmark
+    public Optional<Expense> findByIdPlain() {
+        return plain.findById(id);
+    }
+
+    @Benchmark
+    public Optional<Expense> findByIdInstrumented() {
+        return instrumented.findById(id);
+    }
+
+    @Benchmark
+    public List<Expense> findAllPlain() {
+        return plain.findAll();
+    }
+
+    @Benchmark
+    public List<Expense> findAllInstrumented() {
+        return instrumented.findAll();
+    }
+
+    @Benchmark
+    public Map<String, Double> categorySummaryPlain() {
+        return plainService.getCategorySummary();
+    }
+
+    @Benchmark
+    public Map<String, Double> categorySummaryInstrumented() {
+        return instrumentedService.getCategorySummary();
+    }
+
+    @Benchmark
+    public void histogramRecord() {
+        histogram.record(value++ & 0xFFFFF);
+    }
+}
@@ -0,0 +1,97 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import persistence.ExpenseSnapshot;
+import persistence.ExpenseStats;
+import persistence.FileExpenseRepository;
+import service.ExpenseService;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Every ExpenseService summary, through the repository and on a pinned snapshot
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ServiceBenchmarks {
+    private static final LocalDate YEAR_START = LocalDate.of(2023, 1, 1);
+    private static final LocalDate YEAR_END = LocalDate.of(2023, 12, 31);
+
+    @Param({"1000", "10000", "100000"})
+    int rows;
+
+    private Path directory;
+    private ExpenseService service;
+    private ExpenseSnapshot snapshot;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        BenchmarkData.quiet();
+        directory = BenchmarkData.ledger(rows);
+        service = new ExpenseService(new FileExpenseRepository(directory.toString()));
+        snapshot = service.snapshot();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        BenchmarkData.delete(directory);
+    }
+
+    @Benchmark
+    public Map<String, Double> categorySummary() {
+        return service.getCategorySummary();
+    }
+
+    @Benchmark
+    public Map<String, Double> categorySummarySnapshot() {
+        return service.getCategorySummary(snapshot);
+    }
+
+    @Benchmark
+    public Map<String, Double> monthlySummary() {
+        return service.getMonthlySummary(2024, 3);
+    }
+
+    @Benchmark
+    public Map<String, Double> monthlySummarySnapshot() {
+        return service.getMonthlySummary(snapshot, 2024, 3);
+    }
+
+    @Benchmark
+    public double totalSpent() {
+        return service.getTotalSpent();
+    }
+
+    @Benchmark
+    public double totalSpentSnapshot() {
+        return service.getTotalSpent(snapshot);
+    }
+
+    @Benchmark
+    public double totalSpentForYear() {
+        return service.getTotalSpent(YEAR_START, YEAR_END);
+    }
+
+    @Benchmark
+    public ExpenseStats statsForYear() {
+        return service.getStats(YEAR_START, YEAR_END);
+    }
+}
@@ -0,0 +1,37 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import validation.ExpenseValidator;
+import validation.ValidationResult;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ValidatorBenchmarks {
+    private final LocalDate date = LocalDate.of(2024, 3, 15);
+
+    @Benchmark
+    public ValidationResult validExpense() {
+        return ExpenseValidator.validateExpenseData(12.5, "Food", "Lunch", date);
+    }
+
+    // Every rule fails, so every error message is built
+    @Benchmark
+    public ValidationResult invalidExpense() {
+        return ExpenseValidator.validateExpenseData(-1, " ", null, null);
+    }
+}
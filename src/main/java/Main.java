@@ -1,34 +1,88 @@
-import persistence.FileExpenseRepository;
+import jfr.FlightRecording;
+import jfr.TableRefreshEvent;
+import metrics.InstrumentedExpenseRepository;
+import metrics.InstrumentedExpenseService;
+import metrics.MetricsRegistry;
+import metrics.MetricsReporter;
+import metrics.OperationMetrics;
+import metrics.SlowOperationLog;
+import persistence.ExpenseRepository;
+import persistence.RepositoryLayout;
+import search.DebouncedQuery;
 import service.ExpenseService;
 import service.ChartService;
+import service.ExpenseEvent;
 import model.Expense;
 import model.PaymentMethod;
 
 import javax.swing.*;
-import javax.swing.table.DefaultTableModel;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.table.AbstractTableModel;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.lang.management.ManagementFactory;
 import java.time.LocalDate;
-import java.util.HashMap;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
 
 public class Main {
     private static ExpenseService expenseService;
     private static ChartService chartService;
     private static JTable expensesTable;
-    private static DefaultTableModel tableModel;
+    private static AbstractTableModel tableModel;
     private static JLabel totalLabel;
     private static JTabbedPane mainTabbedPane;
     private static JTabbedPane chartTabs;
+    private static volatile String searchQuery = "";
+    private static String filterText = "";
+    private static DebouncedQuery<List<Expense>> tableFilter;
+    // Expenses backing the table rows; the model reads straight from this list
+    private static final List<Expense> tableRows = new ArrayList<>();
+    // Beyond this many changes a full reload is cheaper than row-by-row updates
+    private static final int MAX_INCREMENTAL_CHANGES = 500;
+    // The first screen shows this many days; older history loads in the background
+    private static final int RECENT_DAYS = 90;
+    private static volatile boolean historyLoaded;
+    private static long repositoryOpenMillis;
+    private static final OperationMetrics TABLE_REFRESH = MetricsRegistry.shared().operation("ui.refreshTable");
+    private static final OperationMetrics CHART_REFRESH = MetricsRegistry.shared().operation("ui.refreshCharts");
+    // Adds and deletes run here, one at a time, never on the EDT: a write waits
+    // for the background history load and the file write. The table and charts
+    // follow through onExpenseEvent once it is done.
+    private static final ExecutorService WRITER = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "expense-writer");
+        thread.setDaemon(true);
+        return thread;
+    });
 
     public static void main(String[] args) {
         try {
-            expenseService = new ExpenseService(new FileExpenseRepository("data"));
+            // Started before the repository opens, so the initial load is recorded
+            FlightRecording.startIfConfigured();
+            long openStart = System.nanoTime();
+            ExpenseRepository repository = RepositoryLayout.openLazily("data", RECENT_DAYS);
+            repositoryOpenMillis = (System.nanoTime() - openStart) / 1_000_000;
+            MetricsRegistry metrics = MetricsRegistry.shared();
+            expenseService = new InstrumentedExpenseService(new InstrumentedExpenseRepository(repository, metrics), metrics);
+            metrics.exportToJmx();
+            MetricsReporter.startIfConfigured(metrics);
+            SlowOperationLog.startIfConfigured(metrics);
             chartService = new ChartService(expenseService);
+            tableFilter = new DebouncedQuery<>(Main::filterRows, Main::showRows,
+                    SwingUtilities::invokeLater, 150);
 
             SwingUtilities.invokeLater(() -> createAndShowGUI());
+            expenseService.addListener(Main::onExpenseEvent, SwingUtilities::invokeLater);
+            expenseService.warmUp().whenComplete((ignored, error) ->
+                    SwingUtilities.invokeLater(() -> onHistoryLoaded(error)));
 
         } catch (Exception e) {
             JOptionPane.showMessageDialog(null,
@@ -52,6 +106,26 @@ public class Main {
 
         frame.add(mainTabbedPane);
         frame.setVisible(true);
+        System.out.println("Startup: window shown " + ManagementFactory.getRuntimeMXBean().getUptime()
+                + " ms after launch (repository opened in " + repositoryOpenMillis + " ms)");
+    }
+
+    private static void onHistoryLoaded(Throwable error) {
+        historyLoaded = true;
+        if (error != null) {
+            JOptionPane.showMessageDialog(null,
+                    "Failed to load older expenses: " + error.getMessage(),
+                    "Error",
+                    JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        refreshExpensesTable();
+        refreshCharts();
+    }
+
+    // What a write on WRITER actually threw
+    private static Throwable cause(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
     }
 
     private static JPanel createAddExpensePanel() {
@@ -123,19 +197,26 @@ public class Main {
                     return;
                 }
 
-                Expense expense = expenseService.addExpense(amount, category, description, LocalDate.now(), paymentMethod);
-
-                amountField.setText("");
-                categoryField.setText("");
-                descriptionArea.setText("");
-                paymentCombo.setSelectedIndex(0);
-
-                messageLabel.setText("Expense added successfully!");
-                messageLabel.setForeground(Color.GREEN);
-
-                // Refresh everything
-                refreshExpensesTable();
-                refreshCharts();
+                addButton.setEnabled(false);
+                messageLabel.setText("Saving...");
+                messageLabel.setForeground(Color.GRAY);
+                CompletableFuture.supplyAsync(() -> expenseService.addExpense(amount, category, description,
+                        LocalDate.now(), paymentMethod), WRITER).whenComplete((expense, error) ->
+                        SwingUtilities.invokeLater(() -> {
+                            addButton.setEnabled(true);
+                            if (error != null) {
+                                messageLabel.setText("Error: " + cause(error).getMessage());
+                                messageLabel.setForeground(Color.RED);
+                                return;
+                            }
+                            amountField.setText("");
+                            categoryField.setText("");
+                            descriptionArea.setText("");
+                            paymentCombo.setSelectedIndex(0);
+
+                            messageLabel.setText("Expense added successfully!");
+                            messageLabel.setForeground(Color.GREEN);
+                        }));
 
             } catch (NumberFormatException ex) {
                 messageLabel.setText("Please enter a valid amount");
@@ -155,13 +236,83 @@ public class Main {
 
         JLabel titleLabel = new JLabel("All Expenses");
         titleLabel.setFont(new Font("Arial", Font.BOLD, 18));
-        panel.add(titleLabel, BorderLayout.NORTH);
+
+        JPanel searchPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+        JTextField searchField = new JTextField(20);
+        searchField.setToolTipText("Words must all match; use OR for alternatives and * for prefixes");
+        JButton searchButton = new JButton("Search");
+        JButton clearButton = new JButton("Clear");
+        JTextField filterField = new JTextField(12);
+        filterField.setToolTipText("Show rows whose description or category contains this text");
+        searchPanel.add(new JLabel("Filter:"));
+        searchPanel.add(filterField);
+        searchPanel.add(new JLabel("Search:"));
+        searchPanel.add(searchField);
+        searchPanel.add(searchButton);
+        searchPanel.add(clearButton);
+
+        ActionListener searchAction = e -> {
+            searchQuery = searchField.getText().trim();
+            titleLabel.setText(searchQuery.isEmpty() ? "All Expenses" : "Search Results");
+            refreshExpensesTable();
+        };
+        searchField.addActionListener(searchAction);
+        searchButton.addActionListener(searchAction);
+        clearButton.addActionListener(e -> {
+            searchField.setText("");
+            searchAction.actionPerformed(e);
+        });
+
+        // Filter as you type; the query runs off the EDT once typing pauses
+        filterField.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) { onFilterChanged(); }
+
+            @Override
+            public void removeUpdate(DocumentEvent e) { onFilterChanged(); }
+
+            @Override
+            public void changedUpdate(DocumentEvent e) { onFilterChanged(); }
+
+            private void onFilterChanged() {
+                filterText = filterField.getText().trim();
+                refreshExpensesTable();
+            }
+        });
+
+        JPanel topPanel = new JPanel(new BorderLayout());
+        topPanel.add(titleLabel, BorderLayout.WEST);
+        topPanel.add(searchPanel, BorderLayout.EAST);
+        panel.add(topPanel, BorderLayout.NORTH);
 
         String[] columns = {"Date", "Amount", "Category", "Payment Method", "Description"};
-        tableModel = new DefaultTableModel(columns, 0) {
+        tableModel = new AbstractTableModel() {
             @Override
-            public boolean isCellEditable(int row, int column) {
-                return false;
+            public int getRowCount() {
+                return tableRows.size();
+            }
+
+            @Override
+            public int getColumnCount() {
+                return columns.length;
+            }
+
+            @Override
+            public String getColumnName(int column) {
+                return columns[column];
+            }
+
+            // Cells are formatted on demand, so only visible rows pay for it
+            @Override
+            public Object getValueAt(int row, int column) {
+                Expense expense = tableRows.get(row);
+                switch (column) {
+                    case 0: return expense.getDate().toString();
+                    case 1: return String.format("$%.2f", expense.getAmount());
+                    case 2: return expense.getCategory();
+                    case 3: return expense.getPaymentMethod().getDisplayName();
+                    default: return expense.getDescription();
+                }
             }
         };
         expensesTable = new JTable(tableModel);
@@ -205,26 +356,146 @@ public class Main {
     }
 
     private static void refreshExpensesTable() {
-        tableModel.setRowCount(0);
-
-        List<Expense> expenses = expenseService.getAllExpenses();
-
-        for (Expense expense : expenses) {
-            tableModel.addRow(new Object[]{
-                    expense.getDate().toString(),
-                    String.format("$%.2f", expense.getAmount()),
-                    expense.getCategory(),
-                    expense.getPaymentMethod().getDisplayName(),
-                    expense.getDescription()
-            });
+        TableRefreshEvent event = new TableRefreshEvent();
+        event.begin();
+        long start = System.nanoTime();
+        try {
+            loadTableRows();
+            TABLE_REFRESH.succeeded(start, tableRows.size());
+            event.end();
+            if (event.shouldCommit()) {
+                event.ui = "swing";
+                event.rows = tableRows.size();
+                event.commit();
+            }
+        } catch (RuntimeException e) {
+            TABLE_REFRESH.failed(start);
+            throw e;
+        }
+    }
+
+    private static void loadTableRows() {
+        if (!filterText.isEmpty()) {
+            tableFilter.submit(filterText);
+            return;
         }
+        // A filter result still on its way would overwrite the rows shown below
+        tableFilter.cancel();
+
+        if (!historyLoaded && searchQuery.isEmpty()) {
+            showRows(expenseService.getExpensesSince(LocalDate.now().minusDays(RECENT_DAYS)));
+            return;
+        }
+        showRows(searchQuery.isEmpty()
+                ? expenseService.getAllExpenses()
+                : expenseService.searchExpenses(searchQuery));
+    }
+
+    private static void showRows(List<Expense> expenses) {
+        tableRows.clear();
+        tableRows.addAll(expenses);
+        tableModel.fireTableDataChanged();
+        updateTotalLabel();
+    }
 
+    // Runs on the filter thread; the trigram index narrows the rows before any search is applied
+    private static List<Expense> filterRows(String text) {
+        List<Expense> matches = expenseService.filterExpenses(text);
+        String query = searchQuery;
+        if (query.isEmpty()) {
+            return matches;
+        }
+
+        Set<String> searchIds = expenseService.searchExpenses(query).stream()
+                .map(Expense::getId)
+                .collect(Collectors.toSet());
+        return matches.stream()
+                .filter(expense -> searchIds.contains(expense.getId()))
+                .collect(Collectors.toList());
+    }
+
+    private static void updateTotalLabel() {
+        if (!historyLoaded) {
+            double recent = tableRows.stream().mapToDouble(Expense::getAmount).sum();
+            totalLabel.setText(String.format("Last %d days: $%.2f (loading history...)", RECENT_DAYS, recent));
+            return;
+        }
         double total = expenseService.getTotalSpent();
         totalLabel.setText(String.format("Total Spent: $%.2f", total));
     }
 
+    // Runs on the EDT; bursts of changes arrive coalesced into a single BATCH event
+    private static void onExpenseEvent(ExpenseEvent event) {
+        if (tableModel == null) {
+            return;
+        }
+
+        // Search and filter results are cheap to recompute from the indexes
+        if (event.size() > MAX_INCREMENTAL_CHANGES || !searchQuery.isEmpty() || !filterText.isEmpty()) {
+            refreshExpensesTable();
+        } else if (event.getType() == ExpenseEvent.Type.BATCH) {
+            event.getEvents().forEach(Main::applyChange);
+            updateTotalLabel();
+        } else {
+            applyChange(event);
+            updateTotalLabel();
+        }
+        refreshCharts();
+    }
+
+    private static void applyChange(ExpenseEvent event) {
+        Expense expense = event.getExpense();
+        switch (event.getType()) {
+            case ADDED:
+                insertRow(expense);
+                break;
+            case UPDATED:
+                removeRow(expense.getId());
+                insertRow(expense);
+                break;
+            case DELETED:
+                removeRow(expense.getId());
+                break;
+            default:
+                break;
+        }
+    }
+
+    private static void insertRow(Expense expense) {
+        int index = 0;
+        while (index < tableRows.size() && ExpenseRepository.NEWEST_FIRST.compare(tableRows.get(index), expense) <= 0) {
+            index++;
+        }
+        tableRows.add(index, expense);
+        tableModel.fireTableRowsInserted(index, index);
+    }
+
+    private static void removeRow(String id) {
+        for (int i = 0; i < tableRows.size(); i++) {
+            if (tableRows.get(i).getId().equals(id)) {
+                tableRows.remove(i);
+                tableModel.fireTableRowsDeleted(i, i);
+                return;
+            }
+        }
+    }
+
     private static void refreshCharts() {
-        if (chartTabs != null) {
+        long start = System.nanoTime();
+        try {
+            rebuildCharts();
+            CHART_REFRESH.succeeded(start);
+        } catch (RuntimeException e) {
+            CHART_REFRESH.failed(start);
+            throw e;
+        }
+    }
+
+    private static void rebuildCharts() {
+        if (chartTabs != null && !historyLoaded) {
+            chartTabs.removeAll();
+            chartTabs.addTab("Loading", new JLabel("Loading expense history...", SwingConstants.CENTER));
+        } else if (chartTabs != null) {
             chartService.refreshCharts(chartTabs);
         }
     }
@@ -233,23 +504,7 @@ public class Main {
         int selectedRow = expensesTable.getSelectedRow();
         if (selectedRow >= 0) {
             try {
-                // Get expense details directly from the table
-                String date = (String) tableModel.getValueAt(selectedRow, 0);
-                String amountStr = (String) tableModel.getValueAt(selectedRow, 1);
-                String category = (String) tableModel.getValueAt(selectedRow, 2);
-
-                // Find the actual expense to get the ID
-                List<Expense> allExpenses = expenseService.getAllExpenses();
-                Expense expenseToDelete = null;
-
-                for (Expense expense : allExpenses) {
-                    if (expense.getDate().toString().equals(date) &&
-                            String.format("$%.2f", expense.getAmount()).equals(amountStr) &&
-                            expense.getCategory().equals(category)) {
-                        expenseToDelete = expense;
-                        break;
-                    }
-                }
+                Expense expenseToDelete = selectedRow < tableRows.size() ? tableRows.get(selectedRow) : null;
 
                 if (expenseToDelete != null) {
                     int confirm = JOptionPane.showConfirmDialog(null,
@@ -263,20 +518,25 @@ public class Main {
                             JOptionPane.YES_NO_OPTION);
 
                     if (confirm == JOptionPane.YES_OPTION) {
-                        boolean deleted = expenseService.deleteExpense(expenseToDelete.getId());
-                        if (deleted) {
-                            refreshExpensesTable();
-                            refreshCharts();
-                            JOptionPane.showMessageDialog(null,
-                                    "Expense deleted successfully!",
-                                    "Success",
-                                    JOptionPane.INFORMATION_MESSAGE);
-                        } else {
-                            JOptionPane.showMessageDialog(null,
-                                    "Failed to delete expense.",
-                                    "Error",
-                                    JOptionPane.ERROR_MESSAGE);
-                        }
+                        CompletableFuture.supplyAsync(() -> expenseService.deleteExpense(expenseToDelete.getId()),
+                                WRITER).whenComplete((deleted, error) -> SwingUtilities.invokeLater(() -> {
+                            if (error != null) {
+                                JOptionPane.showMessageDialog(null,
+                                        "Error deleting expense: " + cause(error).getMessage(),
+                                        "Error",
+                                        JOptionPane.ERROR_MESSAGE);
+                            } else if (deleted) {
+                                JOptionPane.showMessageDialog(null,
+                                        "Expense deleted successfully!",
+                                        "Success",
+                                        JOptionPane.INFORMATION_MESSAGE);
+                            } else {
+                                JOptionPane.showMessageDialog(null,
+                                        "Failed to delete expense.",
+                                        "Error",
+                                        JOptionPane.ERROR_MESSAGE);
+                            }
+                        }));
                     }
                 } else {
                     JOptionPane.showMessageDialog(null,
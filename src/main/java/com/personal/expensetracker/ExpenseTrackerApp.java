@@ -1,30 +1,75 @@
 package com.personal.expensetracker;
 
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.Scene;
 import javafx.scene.control.*;
 import javafx.scene.layout.*;
 import javafx.stage.Stage;
+import jfr.FlightRecording;
+import jfr.TableRefreshEvent;
+import metrics.InstrumentedExpenseRepository;
+import metrics.InstrumentedExpenseService;
+import metrics.MetricsRegistry;
+import metrics.MetricsReporter;
+import metrics.OperationMetrics;
+import metrics.SlowOperationLog;
 import model.Expense;
 import model.PaymentMethod;
+import service.ExpenseEvent;
 import service.ExpenseService;
-import persistence.FileExpenseRepository;
+import persistence.ExpenseRepository;
+import persistence.RepositoryLayout;
+import search.DebouncedQuery;
 
+import java.lang.management.ManagementFactory;
 import java.time.LocalDate;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
 
 public class ExpenseTrackerApp extends Application {
     private ExpenseService expenseService;
     private TableView<Expense> expensesTable;
     private Label totalLabel;
+    private volatile String searchQuery = "";
+    private String filterText = "";
+    private DebouncedQuery<List<Expense>> tableFilter;
+    // Beyond this many changes a full reload is cheaper than row-by-row updates
+    private static final int MAX_INCREMENTAL_CHANGES = 500;
+    // The first screen shows this many days; older history loads in the background
+    private static final int RECENT_DAYS = 90;
+    private volatile boolean historyLoaded;
+    private final OperationMetrics tableRefresh = MetricsRegistry.shared().operation("ui.refreshTable");
+    // Adds and deletes run here, one at a time, never on the FX thread: a write
+    // waits for the background history load and the file write. The table
+    // follows through onExpenseEvent once it is done.
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "expense-writer");
+        thread.setDaemon(true);
+        return thread;
+    });
 
     @Override
     public void start(Stage primaryStage) {
-        // Initialize services
-        expenseService = new ExpenseService(new FileExpenseRepository("data"));
+        // Initialize services; the flight recording starts first so the initial load is recorded
+        FlightRecording.startIfConfigured();
+        long openStart = System.nanoTime();
+        ExpenseRepository repository = RepositoryLayout.openLazily("data", RECENT_DAYS);
+        long openMillis = (System.nanoTime() - openStart) / 1_000_000;
+        MetricsRegistry metrics = MetricsRegistry.shared();
+        expenseService = new InstrumentedExpenseService(new InstrumentedExpenseRepository(repository, metrics), metrics);
+        metrics.exportToJmx();
+        MetricsReporter.startIfConfigured(metrics);
+        SlowOperationLog.startIfConfigured(metrics);
+        tableFilter = new DebouncedQuery<>(this::filterRows, this::showRows, Platform::runLater, 150);
 
         // Create main layout
         BorderPane root = new BorderPane();
@@ -68,6 +113,27 @@ public class ExpenseTrackerApp extends Application {
         // Load initial data
         refreshExpensesTable();
         updateAnalytics();
+        System.out.println("Startup: window shown " + ManagementFactory.getRuntimeMXBean().getUptime()
+                + " ms after launch (repository opened in " + openMillis + " ms)");
+
+        // Pick up changes from any source, delivered on the FX thread
+        expenseService.addListener(this::onExpenseEvent, Platform::runLater);
+        expenseService.warmUp().whenComplete((ignored, error) ->
+                Platform.runLater(() -> onHistoryLoaded(error)));
+    }
+
+    private void onHistoryLoaded(Throwable error) {
+        historyLoaded = true;
+        if (error != null) {
+            Alert alert = new Alert(Alert.AlertType.ERROR);
+            alert.setTitle("Error");
+            alert.setHeaderText(null);
+            alert.setContentText("Failed to load older expenses: " + error.getMessage());
+            alert.showAndWait();
+            return;
+        }
+        refreshExpensesTable();
+        updateAnalytics();
     }
 
     private VBox createAddExpenseForm() {
@@ -111,21 +177,27 @@ public class ExpenseTrackerApp extends Application {
                 LocalDate date = datePicker.getValue();
                 PaymentMethod paymentMethod = paymentCombo.getValue();
 
-                Expense expense = expenseService.addExpense(amount, category, description, date, paymentMethod);
-
-                // Clear form
-                amountField.clear();
-                categoryField.clear();
-                descriptionArea.clear();
-                datePicker.setValue(LocalDate.now());
-                paymentCombo.setValue(PaymentMethod.CASH);
-
-                messageLabel.setText("✅ Expense added successfully!");
-                messageLabel.setStyle("-fx-text-fill: green;");
-
-                // Refresh tables
-                refreshExpensesTable();
-                updateAnalytics();
+                addButton.setDisable(true);
+                messageLabel.setText("Saving...");
+                messageLabel.setStyle("-fx-text-fill: gray;");
+                CompletableFuture.supplyAsync(() -> expenseService.addExpense(amount, category, description,
+                        date, paymentMethod), writer).whenComplete((expense, error) -> Platform.runLater(() -> {
+                    addButton.setDisable(false);
+                    if (error != null) {
+                        messageLabel.setText("❌ Error: " + cause(error).getMessage());
+                        messageLabel.setStyle("-fx-text-fill: red;");
+                        return;
+                    }
+                    // Clear form
+                    amountField.clear();
+                    categoryField.clear();
+                    descriptionArea.clear();
+                    datePicker.setValue(LocalDate.now());
+                    paymentCombo.setValue(PaymentMethod.CASH);
+
+                    messageLabel.setText("✅ Expense added successfully!");
+                    messageLabel.setStyle("-fx-text-fill: green;");
+                }));
 
             } catch (Exception ex) {
                 messageLabel.setText("❌ Error: " + ex.getMessage());
@@ -150,6 +222,34 @@ public class ExpenseTrackerApp extends Application {
         Label titleLabel = new Label("All Expenses");
         titleLabel.setStyle("-fx-font-size: 18px; -fx-font-weight: bold;");
 
+        // Search bar
+        TextField searchField = new TextField();
+        searchField.setPromptText("Search descriptions and categories (OR, prefix*)");
+        HBox.setHgrow(searchField, Priority.ALWAYS);
+        Button searchButton = new Button("Search");
+        Button clearButton = new Button("Clear");
+        TextField filterField = new TextField();
+        filterField.setPromptText("Filter rows");
+        HBox searchBar = new HBox(10, filterField, searchField, searchButton, clearButton);
+
+        Runnable runSearch = () -> {
+            searchQuery = searchField.getText().trim();
+            titleLabel.setText(searchQuery.isEmpty() ? "All Expenses" : "Search Results");
+            refreshExpensesTable();
+        };
+        searchField.setOnAction(e -> runSearch.run());
+        searchButton.setOnAction(e -> runSearch.run());
+        clearButton.setOnAction(e -> {
+            searchField.clear();
+            runSearch.run();
+        });
+
+        // Filter as you type; the query runs off the FX thread once typing pauses
+        filterField.textProperty().addListener((observable, oldText, newText) -> {
+            filterText = newText.trim();
+            refreshExpensesTable();
+        });
+
         // Create table
         expensesTable = new TableView<>();
 
@@ -186,7 +286,7 @@ public class ExpenseTrackerApp extends Application {
         totalLabel = new Label();
         totalLabel.setStyle("-fx-font-weight: bold; -fx-font-size: 14px;");
 
-        layout.getChildren().addAll(titleLabel, expensesTable, deleteButton, totalLabel);
+        layout.getChildren().addAll(titleLabel, searchBar, expensesTable, deleteButton, totalLabel);
         VBox.setVgrow(expensesTable, Priority.ALWAYS);
 
         return layout;
@@ -212,26 +312,135 @@ public class ExpenseTrackerApp extends Application {
     }
 
     private void refreshExpensesTable() {
-        List<Expense> expenses = expenseService.getAllExpenses();
+        TableRefreshEvent event = new TableRefreshEvent();
+        event.begin();
+        long start = System.nanoTime();
+        try {
+            loadTableRows();
+            tableRefresh.succeeded(start, expensesTable.getItems().size());
+            event.end();
+            if (event.shouldCommit()) {
+                event.ui = "javafx";
+                event.rows = expensesTable.getItems().size();
+                event.commit();
+            }
+        } catch (RuntimeException e) {
+            tableRefresh.failed(start);
+            throw e;
+        }
+    }
+
+    private void loadTableRows() {
+        if (!filterText.isEmpty()) {
+            tableFilter.submit(filterText);
+            return;
+        }
+        // A filter result still on its way would overwrite the rows shown below
+        tableFilter.cancel();
+
+        if (!historyLoaded && searchQuery.isEmpty()) {
+            showRows(expenseService.getExpensesSince(LocalDate.now().minusDays(RECENT_DAYS)));
+            return;
+        }
+        showRows(searchQuery.isEmpty()
+                ? expenseService.getAllExpenses()
+                : expenseService.searchExpenses(searchQuery));
+    }
+
+    private void showRows(List<Expense> expenses) {
         expensesTable.getItems().setAll(expenses);
 
+        if (!historyLoaded) {
+            double recent = expenses.stream().mapToDouble(Expense::getAmount).sum();
+            totalLabel.setText(String.format("Last %d days: $%.2f (loading history...)", RECENT_DAYS, recent));
+            return;
+        }
         double total = expenseService.getTotalSpent();
         totalLabel.setText(String.format("Total Spent: $%.2f", total));
     }
 
-    private void deleteSelectedExpense() {
-        Expense selected = expensesTable.getSelectionModel().getSelectedItem();
-        if (selected != null) {
-            expenseService.deleteExpense(selected.getId());
+    // Runs on the filter thread; the trigram index narrows the rows before any search is applied
+    private List<Expense> filterRows(String text) {
+        List<Expense> matches = expenseService.filterExpenses(text);
+        String query = searchQuery;
+        if (query.isEmpty()) {
+            return matches;
+        }
+
+        Set<String> searchIds = expenseService.searchExpenses(query).stream()
+                .map(Expense::getId)
+                .collect(Collectors.toSet());
+        return matches.stream()
+                .filter(expense -> searchIds.contains(expense.getId()))
+                .collect(Collectors.toList());
+    }
+
+    private void onExpenseEvent(ExpenseEvent event) {
+        // Search and filter results are cheap to recompute from the indexes
+        if (event.size() > MAX_INCREMENTAL_CHANGES || !searchQuery.isEmpty() || !filterText.isEmpty()) {
             refreshExpensesTable();
             updateAnalytics();
+            return;
+        }
 
-            // Show confirmation
-            Alert alert = new Alert(Alert.AlertType.INFORMATION);
-            alert.setTitle("Expense Deleted");
-            alert.setHeaderText(null);
-            alert.setContentText("Expense deleted successfully!");
-            alert.showAndWait();
+        if (event.getType() == ExpenseEvent.Type.BATCH) {
+            event.getEvents().forEach(this::applyChange);
+        } else {
+            applyChange(event);
+        }
+
+        double total = expenseService.getTotalSpent();
+        totalLabel.setText(String.format("Total Spent: $%.2f", total));
+        updateAnalytics();
+    }
+
+    private void applyChange(ExpenseEvent event) {
+        List<Expense> items = expensesTable.getItems();
+        Expense expense = event.getExpense();
+        switch (event.getType()) {
+            case ADDED:
+                items.add(insertionIndex(items, expense), expense);
+                break;
+            case UPDATED:
+                items.removeIf(existing -> existing.getId().equals(expense.getId()));
+                items.add(insertionIndex(items, expense), expense);
+                break;
+            case DELETED:
+                items.removeIf(existing -> existing.getId().equals(expense.getId()));
+                break;
+            default:
+                break;
+        }
+    }
+
+    // Keeps the newest-first order of getAllExpenses()
+    private int insertionIndex(List<Expense> items, Expense expense) {
+        int index = 0;
+        while (index < items.size() && ExpenseRepository.NEWEST_FIRST.compare(items.get(index), expense) <= 0) {
+            index++;
+        }
+        return index;
+    }
+
+    // What a write on the writer thread actually threw
+    private static Throwable cause(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+
+    private void deleteSelectedExpense() {
+        Expense selected = expensesTable.getSelectionModel().getSelectedItem();
+        if (selected != null) {
+            CompletableFuture.supplyAsync(() -> expenseService.deleteExpense(selected.getId()), writer)
+                    .whenComplete((deleted, error) -> Platform.runLater(() -> {
+                        // Show confirmation
+                        Alert alert = new Alert(error == null && deleted
+                                ? Alert.AlertType.INFORMATION : Alert.AlertType.ERROR);
+                        alert.setTitle(error == null && deleted ? "Expense Deleted" : "Delete Failed");
+                        alert.setHeaderText(null);
+                        alert.setContentText(error != null ? "Error deleting expense: " + cause(error).getMessage()
+                                : deleted ? "Expense deleted successfully!" : "Failed to delete expense.");
+                        alert.showAndWait();
+                    }));
         } else {
             Alert alert = new Alert(Alert.AlertType.WARNING);
             alert.setTitle("No Selection");
@@ -247,6 +456,10 @@ public class ExpenseTrackerApp extends Application {
                 .getTabs().get(2)).getContent()).getChildren().get(2);
 
         analyticsContent.getChildren().clear();
+        if (!historyLoaded) {
+            analyticsContent.getChildren().add(new Label("Loading expense history..."));
+            return;
+        }
 
         // Category summary
         Label categoryTitle = new Label("Spending by Category:");
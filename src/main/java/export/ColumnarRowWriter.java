@@ -0,0 +1,140 @@
+package export;
+
+import model.CategoryDictionary;
+import model.Expense;
+import model.Ulid;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+// Column-oriented binary export (".expc"), all numbers big-endian:
+//
+//   file      := "EXPC" version:u8 rowGroup* endMarker:i32(0) totalRows:i64
+//   rowGroup  := rows:i32 minEpochDay:i32 maxEpochDay:i32 sumCents:i64
+//                epochDay:i32[rows] amountCents:i64[rows] paymentMethod:u8[rows]
+//                categoryDictSize:i32 string[categoryDictSize] categoryCode:i32[rows]
+//                idEncoding:u8 ids description:string[rows]
+//   ids       := ulidMsb:i64[rows] ulidLsb:i64[rows]    (idEncoding 1)
+//              | string[rows]                          (idEncoding 0)
+//   string    := length:i32 utf8-bytes
+//
+// Numeric columns are fixed width and contiguous, so a reader can load a whole
+// column of a row group with one bulk read. Payment methods are PaymentMethod
+// ordinals. A row group whose ids are all ULIDs stores them as two long
+// columns; otherwise (e.g. legacy UUID ids) as strings. Only one row group is
+// buffered at a time.
+final class ColumnarRowWriter implements RowWriter {
+    static final byte[] MAGIC = {'E', 'X', 'P', 'C'};
+    static final int VERSION = 2;
+    static final int ROW_GROUP_SIZE = 65_536;
+
+    private final DataOutputStream out;
+    private final int[] epochDays = new int[ROW_GROUP_SIZE];
+    private final long[] amountCents = new long[ROW_GROUP_SIZE];
+    private final byte[] paymentMethods = new byte[ROW_GROUP_SIZE];
+    private final int[] categoryCodes = new int[ROW_GROUP_SIZE];
+    private final String[] ids = new String[ROW_GROUP_SIZE];
+    private final String[] descriptions = new String[ROW_GROUP_SIZE];
+    // Shared dictionary code -> this row group's code + 1 (0 = not used yet)
+    private int[] localCodes = new int[64];
+    private final int[] categories = new int[ROW_GROUP_SIZE];
+    private int categoryCount;
+    private int rows;
+    private long totalRows;
+
+    ColumnarRowWriter(OutputStream out) throws IOException {
+        this.out = new DataOutputStream(out);
+        this.out.write(MAGIC);
+        this.out.writeByte(VERSION);
+    }
+
+    @Override
+    public void write(Expense expense) throws IOException {
+        epochDays[rows] = expense.getEpochDay();
+        amountCents[rows] = expense.getAmountCents();
+        paymentMethods[rows] = (byte) expense.getPaymentMethod().ordinal();
+        int sharedCode = expense.getCategoryCode();
+        if (sharedCode >= localCodes.length) {
+            localCodes = Arrays.copyOf(localCodes, Math.max(sharedCode + 1, localCodes.length * 2));
+        }
+        if (localCodes[sharedCode] == 0) {
+            categories[categoryCount] = sharedCode;
+            localCodes[sharedCode] = ++categoryCount;
+        }
+        categoryCodes[rows] = localCodes[sharedCode] - 1;
+        ids[rows] = expense.getId();
+        descriptions[rows] = expense.getDescription();
+
+        if (++rows == ROW_GROUP_SIZE) {
+            flushRowGroup();
+        }
+    }
+
+    @Override
+    public void finish() throws IOException {
+        flushRowGroup();
+        out.writeInt(0);
+        out.writeLong(totalRows);
+        out.flush();
+    }
+
+    private void flushRowGroup() throws IOException {
+        if (rows == 0) {
+            return;
+        }
+
+        int minDay = Integer.MAX_VALUE;
+        int maxDay = Integer.MIN_VALUE;
+        long sumCents = 0;
+        for (int i = 0; i < rows; i++) {
+            minDay = Math.min(minDay, epochDays[i]);
+            maxDay = Math.max(maxDay, epochDays[i]);
+            sumCents += amountCents[i];
+        }
+
+        out.writeInt(rows);
+        out.writeInt(minDay);
+        out.writeInt(maxDay);
+        out.writeLong(sumCents);
+        for (int i = 0; i < rows; i++) out.writeInt(epochDays[i]);
+        for (int i = 0; i < rows; i++) out.writeLong(amountCents[i]);
+        out.write(paymentMethods, 0, rows);
+        CategoryDictionary dictionary = CategoryDictionary.shared();
+        out.writeInt(categoryCount);
+        for (int i = 0; i < categoryCount; i++) writeString(dictionary.decode(categories[i]));
+        for (int i = 0; i < rows; i++) out.writeInt(categoryCodes[i]);
+        writeIds();
+        for (int i = 0; i < rows; i++) writeString(descriptions[i]);
+
+        totalRows += rows;
+        rows = 0;
+        Arrays.fill(localCodes, 0);
+        categoryCount = 0;
+        Arrays.fill(ids, null);
+        Arrays.fill(descriptions, null);
+    }
+
+    private void writeIds() throws IOException {
+        for (int i = 0; i < rows; i++) {
+            if (!Ulid.isUlid(ids[i])) {
+                out.writeByte(0);
+                for (int j = 0; j < rows; j++) writeString(ids[j]);
+                return;
+            }
+        }
+        Ulid[] parsed = new Ulid[rows];
+        for (int i = 0; i < rows; i++) parsed[i] = Ulid.parse(ids[i]);
+        out.writeByte(1);
+        for (int i = 0; i < rows; i++) out.writeLong(parsed[i].getMostSignificantBits());
+        for (int i = 0; i < rows; i++) out.writeLong(parsed[i].getLeastSignificantBits());
+    }
+
+    private void writeString(String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+}
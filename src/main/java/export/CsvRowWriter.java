@@ -0,0 +1,47 @@
+package export;
+
+import model.Expense;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+
+// Also used by ConsoleUI --list --format csv, so both print the same rows
+public final class CsvRowWriter implements RowWriter {
+    private final Writer out;
+
+    public CsvRowWriter(Writer out) throws IOException {
+        this.out = out;
+        out.write("id,date,amount,category,payment_method,description\n");
+    }
+
+    @Override
+    public void write(Expense expense) throws IOException {
+        out.write(quote(expense.getId()));
+        out.write(',');
+        out.write(expense.getDate().toString());
+        out.write(',');
+        // Exact cents with two decimals; a double would print 1.0E7 for large amounts
+        out.write(BigDecimal.valueOf(expense.getAmountCents(), 2).toPlainString());
+        out.write(',');
+        out.write(quote(expense.getCategory()));
+        out.write(',');
+        out.write(expense.getPaymentMethod().name());
+        out.write(',');
+        out.write(quote(expense.getDescription()));
+        out.write('\n');
+    }
+
+    @Override
+    public void finish() throws IOException {
+        out.flush();
+    }
+
+    private static String quote(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0
+                && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
@@ -0,0 +1,123 @@
+package export;
+
+import model.CategoryDictionary;
+import model.Expense;
+import persistence.RepositoryLayout;
+import service.ExpenseService;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+// Streams expenses to a file in repository order (newest first). Rows are
+// written as they are read, so memory use does not grow with the export size.
+public class ExpenseExporter {
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final ExpenseService expenseService;
+
+    public ExpenseExporter(ExpenseService expenseService) {
+        this.expenseService = expenseService;
+    }
+
+    // category may be null for all categories; returns the number of rows written
+    public long export(Path target, ExportFormat format, LocalDate from, LocalDate to,
+                       String category, boolean gzip) throws IOException {
+        try (FileChannel channel = FileChannel.open(target, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+             OutputStream out = open(channel, gzip);
+             Stream<Expense> rows = expenseService.streamExpenses(from, to)) {
+
+            Writer text = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+            RowWriter writer;
+            switch (format) {
+                case CSV:
+                    writer = new CsvRowWriter(text);
+                    break;
+                case JSONL:
+                    writer = new JsonLinesRowWriter(text);
+                    break;
+                default:
+                    writer = new ColumnarRowWriter(out);
+            }
+
+            BitSet categories = category != null
+                    ? CategoryDictionary.shared().codesIgnoringCase(category) : null;
+            long written = 0;
+            Iterator<Expense> iterator = rows.iterator();
+            while (iterator.hasNext()) {
+                Expense expense = iterator.next();
+                if (categories == null || categories.get(expense.getCategoryCode())) {
+                    writer.write(expense);
+                    written++;
+                }
+            }
+            writer.finish();
+            return written;
+        }
+    }
+
+    private static OutputStream open(FileChannel channel, boolean gzip) throws IOException {
+        OutputStream out = new BufferedOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE);
+        return gzip ? new GZIPOutputStream(out, BUFFER_SIZE) : out;
+    }
+
+    // java -cp ... export.ExpenseExporter --out file [--format csv|jsonl|columnar]
+    //     [--from yyyy-MM-dd] [--to yyyy-MM-dd] [--category name] [--gzip] [--data dir]
+    public static void main(String[] args) {
+        String dataDirectory = "data";
+        Path target = null;
+        ExportFormat format = ExportFormat.CSV;
+        LocalDate from = Expense.EARLIEST_DATE;
+        LocalDate to = Expense.LATEST_DATE;
+        String category = null;
+        boolean gzip = false;
+
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--out": target = Paths.get(args[++i]); break;
+                    case "--format": format = ExportFormat.valueOf(args[++i].toUpperCase()); break;
+                    case "--from": from = LocalDate.parse(args[++i]); break;
+                    case "--to": to = LocalDate.parse(args[++i]); break;
+                    case "--category": category = args[++i]; break;
+                    case "--gzip": gzip = true; break;
+                    case "--data": dataDirectory = args[++i]; break;
+                    default: throw new IllegalArgumentException("Unknown option: " + args[i]);
+                }
+            }
+            if (target == null) {
+                throw new IllegalArgumentException("--out is required");
+            }
+        } catch (RuntimeException e) {
+            System.err.println("Invalid arguments: " + e.getMessage());
+            System.err.println("Usage: ExpenseExporter --out file [--format csv|jsonl|columnar] "
+                    + "[--from yyyy-MM-dd] [--to yyyy-MM-dd] [--category name] [--gzip] [--data dir]");
+            System.exit(2);
+        }
+
+        try {
+            long start = System.nanoTime();
+            ExpenseExporter exporter = new ExpenseExporter(new ExpenseService(RepositoryLayout.open(dataDirectory)));
+            long rows = exporter.export(target, format, from, to, category, gzip);
+            System.out.printf("Exported %d expense(s) to %s in %d ms%n",
+                    rows, target, (System.nanoTime() - start) / 1_000_000);
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Export failed: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+}
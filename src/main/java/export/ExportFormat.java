@@ -0,0 +1,18 @@
+package export;
+
+public enum ExportFormat {
+    CSV("csv"),
+    JSONL("jsonl"),
+    // Column-oriented binary layout, see ColumnarRowWriter
+    COLUMNAR("expc");
+
+    private final String extension;
+
+    ExportFormat(String extension) {
+        this.extension = extension;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+}
@@ -0,0 +1,58 @@
+package export;
+
+import model.Expense;
+
+import java.io.IOException;
+import java.io.Writer;
+
+// One JSON object per line
+final class JsonLinesRowWriter implements RowWriter {
+    private final Writer out;
+
+    JsonLinesRowWriter(Writer out) {
+        this.out = out;
+    }
+
+    @Override
+    public void write(Expense expense) throws IOException {
+        out.write("{\"id\":");
+        writeString(expense.getId());
+        out.write(",\"date\":\"");
+        out.write(expense.getDate().toString());
+        out.write("\",\"amount\":");
+        out.write(String.valueOf(expense.getAmount()));
+        out.write(",\"category\":");
+        writeString(expense.getCategory());
+        out.write(",\"paymentMethod\":\"");
+        out.write(expense.getPaymentMethod().name());
+        out.write("\",\"description\":");
+        writeString(expense.getDescription());
+        out.write("}\n");
+    }
+
+    @Override
+    public void finish() throws IOException {
+        out.flush();
+    }
+
+    private void writeString(String value) throws IOException {
+        out.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"': out.write("\\\""); break;
+                case '\\': out.write("\\\\"); break;
+                case '\n': out.write("\\n"); break;
+                case '\r': out.write("\\r"); break;
+                case '\t': out.write("\\t"); break;
+                default:
+                    if (c < 0x20) {
+                        out.write(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.write(c);
+                    }
+            }
+        }
+        out.write('"');
+    }
+}
@@ -0,0 +1,12 @@
+package export;
+
+import model.Expense;
+
+import java.io.IOException;
+
+interface RowWriter {
+    void write(Expense expense) throws IOException;
+
+    // Writes whatever is still buffered plus any trailer; the stream is closed by the caller
+    void finish() throws IOException;
+}
@@ -0,0 +1,40 @@
+package importer;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+public class ImportStats {
+    private final long startNanos = System.nanoTime();
+    private final AtomicLong read = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong duplicates = new AtomicLong();
+    private final AtomicLong committed = new AtomicLong();
+    private volatile long finishNanos;
+
+    void recordRead() { read.incrementAndGet(); }
+    void recordRejected() { rejected.incrementAndGet(); }
+    void recordDuplicate() { duplicates.incrementAndGet(); }
+    void recordCommitted(int count) { committed.addAndGet(count); }
+    void finish() { finishNanos = System.nanoTime(); }
+
+    public long getRead() { return read.get(); }
+    public long getRejected() { return rejected.get(); }
+    public long getDuplicates() { return duplicates.get(); }
+    public long getCommitted() { return committed.get(); }
+
+    public long getElapsedMillis() {
+        long end = finishNanos != 0 ? finishNanos : System.nanoTime();
+        return (end - startNanos) / 1_000_000;
+    }
+
+    // Records read per second so far
+    public double getThroughput() {
+        long elapsed = getElapsedMillis();
+        return elapsed == 0 ? 0 : read.get() * 1000.0 / elapsed;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("read %d, committed %d, rejected %d, duplicates %d in %d ms (%.0f records/s)",
+                getRead(), getCommitted(), getRejected(), getDuplicates(), getElapsedMillis(), getThroughput());
+    }
+}
@@ -0,0 +1,30 @@
+package importer;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public enum StatementFormat {
+    CSV,
+    OFX;
+
+    // By extension first, then by sniffing the start of the file
+    public static StatementFormat detect(Path file) throws IOException {
+        String name = file.getFileName().toString().toLowerCase();
+        if (name.endsWith(".ofx") || name.endsWith(".qfx")) {
+            return OFX;
+        }
+        if (name.endsWith(".csv")) {
+            return CSV;
+        }
+
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.ISO_8859_1)) {
+            char[] head = new char[512];
+            int read = reader.read(head);
+            String start = read > 0 ? new String(head, 0, read).toUpperCase() : "";
+            return start.contains("OFXHEADER") || start.contains("<OFX>") ? OFX : CSV;
+        }
+    }
+}
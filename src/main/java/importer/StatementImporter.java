@@ -0,0 +1,385 @@
+package importer;
+
+import model.Expense;
+import model.PaymentMethod;
+import persistence.RepositoryLayout;
+import service.ExpenseService;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+// Imports a bank statement in concurrent stages connected by bounded queues:
+//
+//   read -> parse + validate (N workers) -> deduplicate + commit in batches
+//                     \______________________/
+//                              rejects -> side file
+//
+// A full queue blocks the stage feeding it, so memory stays bounded however
+// large the file is. Rejected lines are written to the rejects file with the reason.
+public class StatementImporter {
+    private static final RawRecord END_OF_INPUT = new RawRecord(-1, null);
+    private static final StatementRow END_OF_ROWS = new StatementRow(-1, null, null);
+    private static final Rejection END_OF_REJECTS = new Rejection(-1, null, null);
+
+    private final ExpenseService expenseService;
+    private int batchSize = 100_000;
+    private int parserThreads = Math.max(1, Runtime.getRuntime().availableProcessors() - 2);
+    private int queueCapacity = 8192;
+    private String defaultCategory = "Uncategorized";
+    private PaymentMethod defaultPaymentMethod = PaymentMethod.DEBIT_CARD;
+    private boolean debitsNegative;
+    private long progressIntervalMillis = 1000;
+    private Consumer<ImportStats> progressListener = stats -> System.out.println("Import progress: " + stats);
+
+    public StatementImporter(ExpenseService expenseService) {
+        this.expenseService = expenseService;
+    }
+
+    public void setBatchSize(int batchSize) {
+        if (batchSize <= 0) throw new IllegalArgumentException("Batch size must be positive");
+        this.batchSize = batchSize;
+    }
+
+    public void setParserThreads(int parserThreads) {
+        if (parserThreads <= 0) throw new IllegalArgumentException("Parser thread count must be positive");
+        this.parserThreads = parserThreads;
+    }
+
+    public void setQueueCapacity(int queueCapacity) {
+        if (queueCapacity <= 0) throw new IllegalArgumentException("Queue capacity must be positive");
+        this.queueCapacity = queueCapacity;
+    }
+
+    public void setDefaultCategory(String defaultCategory) {
+        this.defaultCategory = defaultCategory;
+    }
+
+    public void setDefaultPaymentMethod(PaymentMethod defaultPaymentMethod) {
+        this.defaultPaymentMethod = defaultPaymentMethod;
+    }
+
+    // CSV only: treat negative amounts as expenses and reject positive ones as credits
+    public void setDebitsNegative(boolean debitsNegative) {
+        this.debitsNegative = debitsNegative;
+    }
+
+    public void setProgressListener(Consumer<ImportStats> progressListener, long intervalMillis) {
+        this.progressListener = progressListener;
+        this.progressIntervalMillis = intervalMillis;
+    }
+
+    public ImportStats importFile(Path statement, Path rejectsFile) throws IOException {
+        StatementFormat format = StatementFormat.detect(statement);
+        ImportStats stats = new ImportStats();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        BlockingQueue<RawRecord> records = new ArrayBlockingQueue<>(queueCapacity);
+        BlockingQueue<StatementRow> rows = new ArrayBlockingQueue<>(queueCapacity);
+        BlockingQueue<Rejection> rejects = new ArrayBlockingQueue<>(queueCapacity);
+
+        try (BufferedReader reader = Files.newBufferedReader(statement, StandardCharsets.UTF_8);
+             BufferedWriter rejectsWriter = Files.newBufferedWriter(rejectsFile, StandardCharsets.UTF_8)) {
+
+            StatementParser.CsvLayout layout = StatementParser.CsvLayout.DEFAULT;
+            String firstLine = null;
+            if (format == StatementFormat.CSV) {
+                firstLine = reader.readLine();
+                StatementParser.CsvLayout header = firstLine != null ? StatementParser.CsvLayout.fromHeader(firstLine) : null;
+                if (header != null) {
+                    layout = header;
+                    firstLine = null;
+                }
+            }
+            StatementParser parser = new StatementParser(format, layout, defaultCategory,
+                    defaultPaymentMethod, debitsNegative, expenseService::generateId);
+
+            String pending = firstLine;
+            List<Thread> stages = new ArrayList<>();
+            stages.add(stage("import-reader", stages, failure,
+                    () -> read(reader, pending, format, records, stats)));
+            for (int i = 0; i < parserThreads; i++) {
+                stages.add(stage("import-parser-" + i, stages, failure,
+                        () -> parse(parser, records, rows, rejects)));
+            }
+            stages.add(stage("import-committer", stages, failure,
+                    () -> commit(rows, rejects, stats)));
+            stages.add(stage("import-rejects", stages, failure,
+                    () -> writeRejects(rejects, rejectsWriter, stats)));
+
+            ScheduledExecutorService progress = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "import-progress");
+                thread.setDaemon(true);
+                return thread;
+            });
+            progress.scheduleAtFixedRate(() -> progressListener.accept(stats),
+                    progressIntervalMillis, progressIntervalMillis, TimeUnit.MILLISECONDS);
+
+            try {
+                stages.forEach(Thread::start);
+                for (Thread stage : stages) {
+                    stage.join();
+                }
+            } catch (InterruptedException e) {
+                stages.forEach(Thread::interrupt);
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Import interrupted", e);
+            } finally {
+                progress.shutdownNow();
+            }
+        }
+
+        stats.finish();
+        if (failure.get() != null) {
+            throw new IllegalStateException("Import of " + statement + " failed: "
+                    + failure.get().getMessage(), failure.get());
+        }
+        return stats;
+    }
+
+    // Sends one record per CSV line or per OFX <STMTTRN> block, then one end marker per parser
+    private void read(BufferedReader reader, String firstLine, StatementFormat format,
+                      BlockingQueue<RawRecord> records, ImportStats stats) throws Exception {
+        // For CSV the first line has already been read, either as a header or as pending data
+        long lineNumber = format == StatementFormat.CSV ? 1 : 0;
+        if (firstLine != null) {
+            records.put(new RawRecord(lineNumber, firstLine));
+            stats.recordRead();
+        }
+
+        StringBuilder block = null;
+        long blockStart = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (format == StatementFormat.CSV) {
+                if (!line.trim().isEmpty()) {
+                    records.put(new RawRecord(lineNumber, line));
+                    stats.recordRead();
+                }
+                continue;
+            }
+
+            String upper = line.trim().toUpperCase();
+            if (upper.startsWith("<STMTTRN>")) {
+                block = new StringBuilder();
+                blockStart = lineNumber;
+            }
+            if (block != null) {
+                block.append(line.trim()).append('\n');
+                if (upper.contains("</STMTTRN>")) {
+                    records.put(new RawRecord(blockStart, block.toString()));
+                    stats.recordRead();
+                    block = null;
+                }
+            }
+        }
+
+        for (int i = 0; i < parserThreads; i++) {
+            records.put(END_OF_INPUT);
+        }
+    }
+
+    private void parse(StatementParser parser, BlockingQueue<RawRecord> records,
+                       BlockingQueue<StatementRow> rows, BlockingQueue<Rejection> rejects) throws Exception {
+        RawRecord record;
+        while ((record = records.take()) != END_OF_INPUT) {
+            try {
+                rows.put(parser.parse(record.lineNumber, record.text));
+            } catch (IllegalArgumentException e) {
+                rejects.put(new Rejection(record.lineNumber, e.getMessage(), record.text));
+            }
+        }
+        rows.put(END_OF_ROWS);
+    }
+
+    // Single committer, so deduplication needs no locking. Within the file only
+    // a repeated bank transaction id is a duplicate: two identical coffees on
+    // one day are two expenses. Against stored expenses rows are matched by
+    // date, amount and description, one stored expense per file row, so a
+    // file holding a row n times next to m stored copies imports n - m.
+    private void commit(BlockingQueue<StatementRow> rows, BlockingQueue<Rejection> rejects,
+                        ImportStats stats) throws Exception {
+        Map<String, Integer> stored = new HashMap<>();
+        for (Expense expense : expenseService.getAllExpenses()) {
+            stored.merge(contentKey(expense), 1, Integer::sum);
+        }
+        Set<String> transactionIds = new HashSet<>();
+
+        List<Expense> batch = new ArrayList<>(Math.min(batchSize, 1 << 16));
+        int finishedParsers = 0;
+        while (finishedParsers < parserThreads) {
+            StatementRow row = rows.take();
+            if (row == END_OF_ROWS) {
+                finishedParsers++;
+                continue;
+            }
+
+            boolean duplicate = row.getTransactionId() != null && !transactionIds.add(row.getTransactionId());
+            if (!duplicate) {
+                // Each stored expense accounts for at most one file row
+                String key = contentKey(row.getExpense());
+                Integer count = stored.get(key);
+                if (count != null) {
+                    duplicate = true;
+                    if (count > 1) {
+                        stored.put(key, count - 1);
+                    } else {
+                        stored.remove(key);
+                    }
+                }
+            }
+            if (duplicate) {
+                stats.recordDuplicate();
+                rejects.put(new Rejection(row.getLineNumber(), "Duplicate", row.getExpense().toString()));
+                continue;
+            }
+
+            batch.add(row.getExpense());
+            if (batch.size() >= batchSize) {
+                flush(batch, stats);
+            }
+        }
+        flush(batch, stats);
+        rejects.put(END_OF_REJECTS);
+    }
+
+    private void flush(List<Expense> batch, ImportStats stats) {
+        if (!batch.isEmpty()) {
+            expenseService.addExpenses(new ArrayList<>(batch));
+            stats.recordCommitted(batch.size());
+            batch.clear();
+        }
+    }
+
+    private void writeRejects(BlockingQueue<Rejection> rejects, BufferedWriter writer,
+                              ImportStats stats) throws Exception {
+        Rejection rejection;
+        while ((rejection = rejects.take()) != END_OF_REJECTS) {
+            if (!"Duplicate".equals(rejection.reason)) {
+                stats.recordRejected();
+            }
+            writer.write(rejection.lineNumber + "\t" + rejection.reason + "\t"
+                    + rejection.text.replace("\n", "\\n"));
+            writer.newLine();
+        }
+        writer.flush();
+    }
+
+    private static String contentKey(Expense expense) {
+        return expense.getDate() + "|" + expense.getAmountCents() + "|"
+                + expense.getDescription().toLowerCase(Locale.ROOT);
+    }
+
+    // A failing stage records the first error and interrupts the others, which
+    // would otherwise block forever on queues nobody drains or fills any more
+    private static Thread stage(String name, List<Thread> stages, AtomicReference<Throwable> failure, Stage body) {
+        return new Thread(() -> {
+            try {
+                body.run();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                failure.compareAndSet(null, e);
+                stages.forEach(Thread::interrupt);
+            }
+        }, name);
+    }
+
+    @FunctionalInterface
+    private interface Stage {
+        void run() throws Exception;
+    }
+
+    private static final class RawRecord {
+        final long lineNumber;
+        final String text;
+
+        RawRecord(long lineNumber, String text) {
+            this.lineNumber = lineNumber;
+            this.text = text;
+        }
+    }
+
+    private static final class Rejection {
+        final long lineNumber;
+        final String reason;
+        final String text;
+
+        Rejection(long lineNumber, String reason, String text) {
+            this.lineNumber = lineNumber;
+            this.reason = reason;
+            this.text = text;
+        }
+    }
+
+    // java -cp ... importer.StatementImporter statement.csv [--data dir] [--rejects file] [--batch n] [--debits-negative]
+    public static void main(String[] args) {
+        if (args.length == 0) {
+            System.err.println("Usage: StatementImporter <statement.csv|.ofx> [--data dir] "
+                    + "[--rejects file] [--batch n] [--debits-negative]");
+            System.exit(2);
+        }
+
+        Path statement = Paths.get(args[0]);
+        String dataDirectory = "data";
+        Path rejectsFile = Paths.get(args[0] + ".rejects.tsv");
+        int batchSize = 100_000;
+        boolean debitsNegative = false;
+
+        for (int i = 1; i < args.length; i++) {
+            switch (args[i]) {
+                case "--data":
+                    dataDirectory = args[++i];
+                    break;
+                case "--rejects":
+                    rejectsFile = Paths.get(args[++i]);
+                    break;
+                case "--batch":
+                    batchSize = Integer.parseInt(args[++i]);
+                    break;
+                case "--debits-negative":
+                    debitsNegative = true;
+                    break;
+                default:
+                    System.err.println("Unknown option: " + args[i]);
+                    System.exit(2);
+            }
+        }
+
+        StatementImporter importer = new StatementImporter(
+                new ExpenseService(RepositoryLayout.open(dataDirectory)));
+        importer.setBatchSize(batchSize);
+        importer.setDebitsNegative(debitsNegative);
+
+        try {
+            ImportStats stats = importer.importFile(statement, rejectsFile);
+            System.out.println("Import finished: " + stats);
+            if (stats.getRejected() + stats.getDuplicates() > 0) {
+                System.out.println("Rejected lines written to " + rejectsFile);
+            }
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Import failed: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+}
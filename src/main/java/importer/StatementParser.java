@@ -0,0 +1,216 @@
+package importer;
+
+import model.Expense;
+import model.PaymentMethod;
+import validation.BatchExpenseValidator;
+import validation.ExpenseValidator;
+import validation.ValidationError;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Turns one CSV line or one OFX <STMTTRN> block into a validated expense.
+// Failures are reported as IllegalArgumentException with the reject reason.
+final class StatementParser {
+    private static final int MAX_DESCRIPTION_LENGTH = 200;
+    private static final List<DateTimeFormatter> CSV_DATE_FORMATS = List.of(
+            DateTimeFormatter.ISO_LOCAL_DATE,
+            DateTimeFormatter.ofPattern("M/d/yyyy"),
+            DateTimeFormatter.ofPattern("d.M.yyyy"));
+    private static final Pattern OFX_FIELD = Pattern.compile("<([A-Z.]+)>([^<\\r\\n]*)");
+
+    private final StatementFormat format;
+    private final CsvLayout layout;
+    private final String defaultCategory;
+    private final PaymentMethod defaultPaymentMethod;
+    private final boolean debitsNegative;
+    private final Supplier<String> ids;
+    // Date bounds are computed once for the whole import
+    private final BatchExpenseValidator validator = new BatchExpenseValidator();
+
+    StatementParser(StatementFormat format, CsvLayout layout, String defaultCategory,
+                    PaymentMethod defaultPaymentMethod, boolean debitsNegative, Supplier<String> ids) {
+        this.format = format;
+        this.layout = layout;
+        this.defaultCategory = defaultCategory;
+        this.defaultPaymentMethod = defaultPaymentMethod;
+        // OFX always signs debits negative
+        this.debitsNegative = debitsNegative || format == StatementFormat.OFX;
+        this.ids = ids;
+    }
+
+    StatementRow parse(long lineNumber, String text) {
+        return format == StatementFormat.OFX ? parseOfx(lineNumber, text) : parseCsv(lineNumber, text);
+    }
+
+    private StatementRow parseCsv(long lineNumber, String line) {
+        List<String> fields = splitCsv(line);
+        String date = layout.field(fields, layout.date);
+        String amount = layout.field(fields, layout.amount);
+        if (date == null || amount == null) {
+            throw new IllegalArgumentException("Missing date or amount column");
+        }
+
+        String category = layout.field(fields, layout.category);
+        String payment = layout.field(fields, layout.paymentMethod);
+        PaymentMethod paymentMethod = payment == null || payment.isEmpty()
+                ? defaultPaymentMethod
+                : ExpenseValidator.parsePaymentMethod(payment);
+
+        return toRow(lineNumber, parseCsvDate(date), parseAmount(amount),
+                category, layout.field(fields, layout.description), paymentMethod, null);
+    }
+
+    private StatementRow parseOfx(long lineNumber, String block) {
+        String posted = null, amount = null, name = null, memo = null, transactionId = null;
+        Matcher matcher = OFX_FIELD.matcher(block);
+        while (matcher.find()) {
+            String value = matcher.group(2).trim();
+            switch (matcher.group(1)) {
+                case "DTPOSTED": posted = value; break;
+                case "TRNAMT": amount = value; break;
+                case "NAME": name = value; break;
+                case "MEMO": memo = value; break;
+                case "FITID": transactionId = value; break;
+                default: break;
+            }
+        }
+        if (posted == null || posted.length() < 8 || amount == null) {
+            throw new IllegalArgumentException("Missing DTPOSTED or TRNAMT");
+        }
+
+        LocalDate date;
+        try {
+            date = LocalDate.parse(posted.substring(0, 8), DateTimeFormatter.BASIC_ISO_DATE);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid DTPOSTED: " + posted);
+        }
+        String description = name != null ? name : memo;
+        if (name != null && memo != null && !memo.isEmpty()) {
+            description = name + " - " + memo;
+        }
+        return toRow(lineNumber, date, parseAmount(amount), null, description, defaultPaymentMethod, transactionId);
+    }
+
+    private StatementRow toRow(long lineNumber, LocalDate date, double signedAmount, String category,
+                               String description, PaymentMethod paymentMethod, String transactionId) {
+        if (debitsNegative && signedAmount > 0) {
+            throw new IllegalArgumentException("Credit, not an expense");
+        }
+        double amount = Math.abs(signedAmount);
+        String cleanCategory = category == null || category.trim().isEmpty() ? defaultCategory : clean(category);
+        String cleanDescription = description == null ? "" : clean(description);
+        if (cleanDescription.length() > MAX_DESCRIPTION_LENGTH) {
+            cleanDescription = cleanDescription.substring(0, MAX_DESCRIPTION_LENGTH);
+        }
+
+        int errors = validator.check(amount, cleanCategory, cleanDescription, date);
+        if (errors != 0) {
+            throw new IllegalArgumentException(String.join(", ", ValidationError.messages(errors)));
+        }
+        return new StatementRow(lineNumber,
+                new Expense(ids.get(), amount, cleanCategory, cleanDescription, date, paymentMethod),
+                transactionId);
+    }
+
+    private static LocalDate parseCsvDate(String value) {
+        for (DateTimeFormatter formatter : CSV_DATE_FORMATS) {
+            try {
+                return LocalDate.parse(value, formatter);
+            } catch (DateTimeParseException e) {
+                // try the next format
+            }
+        }
+        throw new IllegalArgumentException("Unrecognized date: " + value);
+    }
+
+    private static double parseAmount(String value) {
+        String cleaned = value.replace("$", "").replace(",", "").replace(" ", "");
+        if (cleaned.startsWith("(") && cleaned.endsWith(")")) {
+            cleaned = "-" + cleaned.substring(1, cleaned.length() - 1);
+        }
+        try {
+            return Double.parseDouble(cleaned);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid amount: " + value);
+        }
+    }
+
+    // '|' and line breaks would corrupt the repository's line format
+    private static String clean(String value) {
+        return value.replace('|', '/').replace('\r', ' ').replace('\n', ' ').trim();
+    }
+
+    static List<String> splitCsv(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString().trim());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString().trim());
+        return fields;
+    }
+
+    // Column positions, taken from a header line when the file has one
+    static final class CsvLayout {
+        static final CsvLayout DEFAULT = new CsvLayout(0, 1, 2, 3, 4);
+
+        final int date;
+        final int amount;
+        final int description;
+        final int category;
+        final int paymentMethod;
+
+        private CsvLayout(int date, int amount, int description, int category, int paymentMethod) {
+            this.date = date;
+            this.amount = amount;
+            this.description = description;
+            this.category = category;
+            this.paymentMethod = paymentMethod;
+        }
+
+        // Null when the line does not look like a header
+        static CsvLayout fromHeader(String line) {
+            List<String> names = splitCsv(line.toLowerCase());
+            int date = -1, amount = -1, description = -1, category = -1, payment = -1;
+            for (int i = 0; i < names.size(); i++) {
+                String name = names.get(i);
+                if (date < 0 && name.contains("date")) date = i;
+                else if (amount < 0 && name.contains("amount")) amount = i;
+                else if (description < 0 && (name.contains("description") || name.contains("memo")
+                        || name.contains("payee") || name.equals("name") || name.contains("details"))) description = i;
+                else if (category < 0 && name.contains("category")) category = i;
+                else if (payment < 0 && (name.contains("payment") || name.contains("method"))) payment = i;
+            }
+            return date >= 0 && amount >= 0 ? new CsvLayout(date, amount, description, category, payment) : null;
+        }
+
+        String field(List<String> fields, int index) {
+            return index >= 0 && index < fields.size() ? fields.get(index) : null;
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package importer;
+
+import model.Expense;
+
+// One parsed statement entry on its way to the commit stage
+final class StatementRow {
+    private final long lineNumber;
+    private final Expense expense;
+    // Bank transaction id (OFX FITID), null when the statement has none
+    private final String transactionId;
+
+    StatementRow(long lineNumber, Expense expense, String transactionId) {
+        this.lineNumber = lineNumber;
+        this.expense = expense;
+        this.transactionId = transactionId;
+    }
+
+    long getLineNumber() { return lineNumber; }
+    Expense getExpense() { return expense; }
+    String getTransactionId() { return transactionId; }
+}
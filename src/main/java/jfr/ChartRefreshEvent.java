@@ -0,0 +1,22 @@
+package jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+// ChartService.refreshCharts: every chart tab rebuilt from one snapshot
+@Name("expensetracker.ChartRefresh")
+@Label("Chart Refresh")
+@Category({"Expense Tracker", "UI"})
+@Description("All chart tabs rebuilt")
+@Enabled(false)
+public class ChartRefreshEvent extends Event {
+    @Label("Charts")
+    public int charts;
+
+    @Label("Rows")
+    public long rows;
+}
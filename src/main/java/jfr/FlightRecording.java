@@ -0,0 +1,58 @@
+package jfr;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.text.ParseException;
+
+// Starts a flight recording with the bundled expense-tracker.jfc profile
+// when -Dexpenses.jfr=<file.jfr> is set; it is written to that file when
+// the JVM exits. The same profile works from the command line:
+//
+//   java -XX:StartFlightRecording=settings=src/main/resources/expense-tracker.jfc,filename=app.jfr ...
+public final class FlightRecording {
+    public static final String FILE_PROPERTY = "expenses.jfr";
+    public static final String PROFILE = "/expense-tracker.jfc";
+
+    private FlightRecording() {
+    }
+
+    // The running recording, or null when FILE_PROPERTY is not set
+    public static Recording startIfConfigured() {
+        String file = System.getProperty(FILE_PROPERTY);
+        if (file == null) {
+            return null;
+        }
+        try {
+            Recording recording = new Recording(profile());
+            recording.setName("expense-tracker");
+            recording.setToDisk(true);
+            recording.setDumpOnExit(true);
+            Path destination = Paths.get(file).toAbsolutePath();
+            recording.setDestination(destination);
+            recording.start();
+            System.out.println("Recording flight data to " + destination);
+            return recording;
+        } catch (IOException | ParseException | RuntimeException e) {
+            System.err.println("Warning: Could not start flight recording: " + e.getMessage());
+            return null;
+        }
+    }
+
+    public static Configuration profile() throws IOException, ParseException {
+        InputStream in = FlightRecording.class.getResourceAsStream(PROFILE);
+        if (in == null) {
+            throw new IOException("Missing " + PROFILE + " on the class path");
+        }
+        try (Reader reader = new InputStreamReader(in, StandardCharsets.UTF_8)) {
+            return Configuration.create(reader);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+// A repository read. Rows scanned are those the query looked at, rows
+// returned those it produced (for summaries, the rows they cover).
+//
+//   QueryEvent event = new QueryEvent();
+//   event.begin();
+//   ...
+//   event.commit("findByCategory", scanned, rows.size());
+@Name("expensetracker.Query")
+@Label("Query")
+@Category({"Expense Tracker", "Persistence"})
+@Description("Expenses looked up or summarized by a repository")
+@Enabled(false)
+@StackTrace(false)
+public class QueryEvent extends Event {
+    @Label("Type")
+    public String type;
+
+    @Label("Rows Scanned")
+    public long rowsScanned;
+
+    @Label("Rows Returned")
+    public long rowsReturned;
+
+    // Fills in the fields only when the event is recorded
+    public void commit(String type, long rowsScanned, long rowsReturned) {
+        end();
+        if (shouldCommit()) {
+            this.type = type;
+            this.rowsScanned = rowsScanned;
+            this.rowsReturned = rowsReturned;
+            commit();
+        }
+    }
+}
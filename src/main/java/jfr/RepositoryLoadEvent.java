@@ -0,0 +1,34 @@
+package jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+// Reading stored expenses into memory. The phase says which part: "full" for
+// a whole file, "recent" and "history" for the two halves of a lazy open,
+// "segment" for one month of a segmented repository.
+@Name("expensetracker.RepositoryLoad")
+@Label("Repository Load")
+@Category({"Expense Tracker", "Persistence"})
+@Description("Expenses read from storage into memory")
+@Enabled(false)
+@StackTrace(false)
+public class RepositoryLoadEvent extends Event {
+    @Label("Source")
+    public String source;
+
+    @Label("Phase")
+    public String phase;
+
+    @Label("Rows")
+    public long rows;
+
+    @Label("Bytes")
+    @DataAmount
+    public long bytes;
+}
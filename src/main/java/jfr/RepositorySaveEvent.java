@@ -0,0 +1,31 @@
+package jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+// One write reaching storage: a file rewritten and synced, or a database
+// transaction committed. Rows are those written; bytes are the file's size,
+// or 0 where the database does not say.
+@Name("expensetracker.RepositorySave")
+@Label("Repository Save")
+@Category({"Expense Tracker", "Persistence"})
+@Description("Expenses written to storage and made durable")
+@Enabled(false)
+@StackTrace(false)
+public class RepositorySaveEvent extends Event {
+    @Label("Target")
+    public String target;
+
+    @Label("Rows")
+    public long rows;
+
+    @Label("Bytes")
+    @DataAmount
+    public long bytes;
+}
@@ -0,0 +1,22 @@
+package jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+// The expense table reloaded in the Swing ("swing") or JavaFX ("javafx") UI
+@Name("expensetracker.TableRefresh")
+@Label("Table Refresh")
+@Category({"Expense Tracker", "UI"})
+@Description("Expense table rows reloaded")
+@Enabled(false)
+public class TableRefreshEvent extends Event {
+    @Label("UI")
+    public String ui;
+
+    @Label("Rows")
+    public long rows;
+}
@@ -0,0 +1,303 @@
+package metrics;
+
+import model.Expense;
+import persistence.ExpenseRepository;
+import persistence.ExpenseSnapshot;
+import persistence.ExpenseStats;
+import persistence.QueryTrace;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+// Wraps any repository and records every call as repository.<method>:
+// latency, failures, rows (returned by reads, stored or removed by writes,
+// summarized by summaries) and the bytes the delegate wrote to storage.
+//
+// Bytes are read from the delegate's getBytesWritten() after each write and
+// given to the first write that sees them, so concurrent saves whose file
+// writes were coalesced never count the same bytes twice.
+//
+// Calls reaching their slow threshold go to the registry's slow-operation
+// log, if one is attached, with their arguments and the rows the delegate
+// scanned for them.
+public class InstrumentedExpenseRepository implements ExpenseRepository {
+    private final ExpenseRepository delegate;
+    private final AtomicLong bytesCounted;
+    private final OperationMetrics save;
+    private final OperationMetrics saveAll;
+    private final OperationMetrics update;
+    private final OperationMetrics delete;
+    private final OperationMetrics findById;
+    private final OperationMetrics findAll;
+    private final OperationMetrics findByCategory;
+    private final OperationMetrics findByDateRange;
+    private final OperationMetrics findPage;
+    private final OperationMetrics summarize;
+    private final OperationMetrics summarizeByCategory;
+    private final OperationMetrics snapshot;
+    private final OperationMetrics streamByDateRange;
+
+    public InstrumentedExpenseRepository(ExpenseRepository delegate, MetricsRegistry registry) {
+        this.delegate = delegate;
+        this.bytesCounted = new AtomicLong(delegate.getBytesWritten());
+        this.save = registry.operation("repository.save");
+        this.saveAll = registry.operation("repository.saveAll");
+        this.update = registry.operation("repository.update");
+        this.delete = registry.operation("repository.delete");
+        this.findById = registry.operation("repository.findById");
+        this.findAll = registry.operation("repository.findAll");
+        this.findByCategory = registry.operation("repository.findByCategory");
+        this.findByDateRange = registry.operation("repository.findByDateRange");
+        this.findPage = registry.operation("repository.findPage");
+        this.summarize = registry.operation("repository.summarize");
+        this.summarizeByCategory = registry.operation("repository.summarizeByCategory");
+        this.snapshot = registry.operation("repository.snapshot");
+        this.streamByDateRange = registry.operation("repository.streamByDateRange");
+    }
+
+    public ExpenseRepository getDelegate() {
+        return delegate;
+    }
+
+    @Override
+    public void save(Expense expense) {
+        long start = System.nanoTime();
+        long scanned = QueryTrace.rowsScanned();
+        try {
+            delegate.save(expense);
+            if (save.succeeded(start, 1)) {
+                save.logSlow(start, scanned, 1, expense.getId());
+            }
+            countBytes(save);
+        } catch (RuntimeException | Error e) {
+            save.failed(start);
+            throw e;
+        }
+    }
+
+    @Override
+    public void saveAll(Collection<Expense> expenses) {
+        long start = System.nanoTime();
+        long scanned = QueryTrace.rowsScanned();
+        try {
+            delegate.saveAll(expenses);
+            if (saveAll.succeeded(start, expenses.size())) {
+                saveAll.logSlow(start, scanned, expenses.size(), expenses.size());
+            }
+            countBytes(saveAll);
+        } catch (RuntimeException | Error e) {
+            saveAll.failed(start);
+            throw e;
+        }
+    }
+
+    @Override
+    public void update(Expense expense) {
+        long start = System.nanoTime();
+        long scanned = QueryTrace.rowsScanned();
+        try {
+            delegate.update(expense);
+            if (update.succeeded(start, 1)) {
+                update.logSlow(start, scanned, 1, expense.getId());
+            }
+            countBytes(update);
+        } catch (RuntimeException | Error e) {
+            update.failed(start);
+            throw e;
+        }
+    }
+
+    @Override
+    public boolean delete(String id) {
+        long start = System.nanoTime();
+        long scanned = QueryTrace.rowsScanned();
+        try {
+            boolean deleted = delegate.delete(id);
+            if (delete.succeeded(start, deleted ? 1 : 0)) {
+                delete.logSlow(start, scanned, deleted ? 1 : 0, id);
+            }
+            countBytes(delete);
+            return deleted;
+        } catch (RuntimeException | Error e) {
+            delete.failed(start);
+            throw e;
+        }
+    }
+
+    @Override
+    public Optional<Expense> findById(String id) {
+        long start = System.nanoTime();
+        long scanned = QueryTrace.rowsScanned();
+        try {
+            Optional<Expense> expense = delegate.findById(id);
+            if (findById.succeeded(start, expense.isPresent() ? 1 : 0)) {
+                findById.logSlow(start, scanned, expense.isPresent() ? 1 : 0, id);
+            }
+            return expense;
+        } catch (RuntimeException | Error e) {
+            findById.failed(start);
+            throw e;
+        }
+    }
+
+    @Override
+    public List<Expense> findAll() {
+        long start = System.nanoTime();
+        long scanned = QueryTrace.rowsScanned();
+        try {
+            List<Expense> rows = delegate.findAll();
+            if (findAll.succeeded(start, rows.size())) {
+                findAll.logSlow(start, scanned, rows.size());
+            }
+            return rows;
+        } catch (RuntimeException | Error e) {
+            findAll.failed(start);
+            throw e;
+        }
+    }
+
+    @Override
+    public List<Expense> findByCategory(String category) {
+        long start = System.nanoTime();
+        long scanned = QueryTrace.rowsScanned();
+        try {
+            List<Expense> rows = delegate.findByCategory(category);
+            if (findByCategory.succeeded(start, rows.size())) {
+                findByCategory.logSlow(start, scanned, rows.size(), category);
+            }
+            return rows;
+        } catch (RuntimeException | Error e) {
+            findByCategory.failed(start);
+            throw e;
+        }
+    }
+
+    @Override
+    public List<Expense> findByDateRange(String startDate, String endDate) {
+        long start = System.nanoTime();
+        long scanned = QueryTrace.rowsScanned();
+        try {
+            List<Expense> rows = delegate.findByDateRange(startDate, endDate);
+            if (findByDateRange.succeeded(start, rows.size())) {
+                findByDateRange.logSlow(start, scanned, rows.size(), startDate, endDate);
+            }
+            return rows;
+        } catch (RuntimeException | Error e) {
+            findByDateRange.failed(start);
+            throw e;
+        }
+    }
+
+    @Override
+    public List<Expense> findPage(LocalDate fromDate, String afterId, int limit) {
+        long start = System.nanoTime();
+        long scanned = QueryTrace.rowsScanned();
+        try {
+            List<Expense> rows = delegate.findPage(fromDate, afterId, limit);
+            if (findPage.succeeded(start, rows.size())) {
+                findPage.logSlow(start, scanned, rows.size(), fromDate, afterId, limit);
+            }
+            return rows;
+        } catch (RuntimeException | Error e) {
+            findPage.failed(start);
+            throw e;
+        }
+    }
+
+    @Override
+    public ExpenseStats summarize(LocalDate startDate, LocalDate endDate) {
+        long start = System.nanoTime();
+        long scanned = QueryTrace.rowsScanned();
+        try {
+            ExpenseStats stats = delegate.summarize(startDate, endDate);
+            if (summarize.succeeded(start, stats.getCount())) {
+                summarize.logSlow(start, scanned, stats.getCount(), startDate, endDate);
+            }
+            return stats;
+        } catch (RuntimeException | Error e) {
+            summarize.failed(start);
+            throw e;
+        }
+    }
+
+    @Override
+    public Map<String, ExpenseStats> summarizeByCategory(LocalDate startDate, LocalDate endDate) {
+        long start = System.nanoTime();
+        long scanned = QueryTrace.rowsScanned();
+        try {
+            Map<String, ExpenseStats> byCategory = delegate.summarizeByCategory(startDate, endDate);
+            long rows = 0;
+            for (ExpenseStats stats : byCategory.values()) {
+                rows += stats.getCount();
+            }
+            if (summarizeByCategory.succeeded(start, rows)) {
+                summarizeByCategory.logSlow(start, scanned, rows, startDate, endDate);
+            }
+            return byCategory;
+        } catch (RuntimeException | Error e) {
+            summarizeByCategory.failed(start);
+            throw e;
+        }
+    }
+
+    @Override
+    public ExpenseSnapshot snapshot() {
+        long start = System.nanoTime();
+        long scanned = QueryTrace.rowsScanned();
+        try {
+            ExpenseSnapshot version = delegate.snapshot();
+            if (snapshot.succeeded(start, version.size())) {
+                snapshot.logSlow(start, scanned, version.size());
+            }
+            return version;
+        } catch (RuntimeException | Error e) {
+            snapshot.failed(start);
+            throw e;
+        }
+    }
+
+    // Recorded when the stream is closed: the time from opening it until
+    // then, and the rows the caller consumed. Streams never closed are not
+    // recorded.
+    @Override
+    public Stream<Expense> streamByDateRange(LocalDate startDate, LocalDate endDate) {
+        long start = System.nanoTime();
+        long scanned = QueryTrace.rowsScanned();
+        Stream<Expense> rows;
+        try {
+            rows = delegate.streamByDateRange(startDate, endDate);
+        } catch (RuntimeException | Error e) {
+            streamByDateRange.failed(start);
+            throw e;
+        }
+        long[] consumed = new long[1];
+        return rows.peek(expense -> consumed[0]++)
+                .onClose(() -> {
+                    if (streamByDateRange.succeeded(start, consumed[0])) {
+                        streamByDateRange.logSlow(start, scanned, consumed[0], startDate, endDate);
+                    }
+                });
+    }
+
+    @Override
+    public CompletableFuture<Void> warmUp() {
+        return delegate.warmUp();
+    }
+
+    @Override
+    public long getBytesWritten() {
+        return delegate.getBytesWritten();
+    }
+
+    private void countBytes(OperationMetrics operation) {
+        long total = delegate.getBytesWritten();
+        long counted = bytesCounted.getAndAccumulate(total, Math::max);
+        operation.addBytesWritten(total - counted);
+    }
+}
@@ -0,0 +1,199 @@
+package metrics;
+
+import model.Expense;
+import model.IdGenerator;
+import model.PaymentMethod;
+import persistence.ExpenseRepository;
+import persistence.ExpenseSnapshot;
+import persistence.ExpenseStats;
+import persistence.QueryTrace;
+import service.ExpenseService;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+
+// An ExpenseService that records each public call as service.<method>, with
+// the snapshot overloads as service.<method>.snapshot. Rows are those
+// returned by listings, stored or removed by writes, and covered by
+// getStats; the repository's own metrics show the rows behind the other
+// summaries. Calls the service makes to itself (the totals go through
+// getStats) are recorded under both names.
+//
+// Pair it with an InstrumentedExpenseRepository to see how much of a
+// service call the repository took. Slow calls go to the registry's
+// slow-operation log with their arguments; snapshot overloads log the
+// snapshot's version rather than its contents.
+public class InstrumentedExpenseService extends ExpenseService {
+    private final OperationMetrics addExpense;
+    private final OperationMetrics addExpenses;
+    private final OperationMetrics updateExpense;
+    private final OperationMetrics deleteExpense;
+    private final OperationMetrics getAllExpenses;
+    private final OperationMetrics getExpensesSince;
+    private final OperationMetrics getExpensesByCategory;
+    private final OperationMetrics getExpensesByDateRange;
+    private final OperationMetrics searchExpenses;
+    private final OperationMetrics filterExpenses;
+    private final OperationMetrics findExpenseById;
+    private final OperationMetrics getCategorySummary;
+    private final OperationMetrics getCategorySummarySnapshot;
+    private final OperationMetrics getMonthlySummary;
+    private final OperationMetrics getMonthlySummarySnapshot;
+    private final OperationMetrics getTotalSpent;
+    private final OperationMetrics getTotalSpentSnapshot;
+    private final OperationMetrics getStats;
+
+    public InstrumentedExpenseService(ExpenseRepository repository, MetricsRegistry registry) {
+        this(repository, IdGenerator.ulid(), registry);
+    }
+
+    public InstrumentedExpenseService(ExpenseRepository repository, IdGenerator idGenerator, MetricsRegistry registry) {
+        super(repository, idGenerator);
+        this.addExpense = registry.operation("service.addExpense");
+        this.addExpenses = registry.operation("service.addExpenses");
+        this.updateExpense = registry.operation("service.updateExpense");
+        this.deleteExpense = registry.operation("service.deleteExpense");
+        this.getAllExpenses = registry.operation("service.getAllExpenses");
+        this.getExpensesSince = registry.operation("service.getExpensesSince");
+        this.getExpensesByCategory = registry.operation("service.getExpensesByCategory");
+        this.getExpensesByDateRange = registry.operation("service.getExpensesByDateRange");
+        this.searchExpenses = registry.operation("service.searchExpenses");
+        this.filterExpenses = registry.operation("service.filterExpenses");
+        this.findExpenseById = registry.operation("service.findExpenseById");
+        this.getCategorySummary = registry.operation("service.getCategorySummary");
+        this.getCategorySummarySnapshot = registry.operation("service.getCategorySummary.snapshot");
+        this.getMonthlySummary = registry.operation("service.getMonthlySummary");
+        this.getMonthlySummarySnapshot = registry.operation("service.getMonthlySummary.snapshot");
+        this.getTotalSpent = registry.operation("service.getTotalSpent");
+        this.getTotalSpentSnapshot = registry.operation("service.getTotalSpent.snapshot");
+        this.getStats = registry.operation("service.getStats");
+    }
+
+    @Override
+    public Expense addExpense(double amount, String category, String description,
+                              LocalDate date, PaymentMethod paymentMethod) {
+        return timed(addExpense, () -> super.addExpense(amount, category, description, date, paymentMethod),
+                expense -> 1, amount, category, date);
+    }
+
+    @Override
+    public void addExpenses(List<Expense> expenses) {
+        timed(addExpenses, () -> {
+            super.addExpenses(expenses);
+            return expenses;
+        }, List::size, expenses.size());
+    }
+
+    @Override
+    public Expense updateExpense(String id, double amount, String category, String description,
+                                 LocalDate date, PaymentMethod paymentMethod) {
+        return timed(updateExpense, () -> super.updateExpense(id, amount, category, description, date, paymentMethod),
+                expense -> 1, id);
+    }
+
+    @Override
+    public boolean deleteExpense(String id) {
+        return timed(deleteExpense, () -> super.deleteExpense(id), deleted -> deleted ? 1 : 0, id);
+    }
+
+    @Override
+    public List<Expense> getAllExpenses() {
+        return timed(getAllExpenses, super::getAllExpenses, List::size);
+    }
+
+    @Override
+    public List<Expense> getExpensesSince(LocalDate since) {
+        return timed(getExpensesSince, () -> super.getExpensesSince(since), List::size, since);
+    }
+
+    @Override
+    public List<Expense> getExpensesByCategory(String category) {
+        return timed(getExpensesByCategory, () -> super.getExpensesByCategory(category), List::size, category);
+    }
+
+    @Override
+    public List<Expense> getExpensesByDateRange(LocalDate startDate, LocalDate endDate) {
+        return timed(getExpensesByDateRange, () -> super.getExpensesByDateRange(startDate, endDate), List::size,
+                startDate, endDate);
+    }
+
+    @Override
+    public List<Expense> searchExpenses(String query) {
+        return timed(searchExpenses, () -> super.searchExpenses(query), List::size, query);
+    }
+
+    @Override
+    public List<Expense> filterExpenses(String text) {
+        return timed(filterExpenses, () -> super.filterExpenses(text), List::size, text);
+    }
+
+    @Override
+    public Optional<Expense> findExpenseById(String id) {
+        return timed(findExpenseById, () -> super.findExpenseById(id), expense -> expense.isPresent() ? 1 : 0, id);
+    }
+
+    @Override
+    public Map<String, Double> getCategorySummary() {
+        return timed(getCategorySummary, super::getCategorySummary, summary -> 0);
+    }
+
+    @Override
+    public Map<String, Double> getCategorySummary(ExpenseSnapshot snapshot) {
+        return timed(getCategorySummarySnapshot, () -> super.getCategorySummary(snapshot), summary -> 0,
+                snapshot.getVersion());
+    }
+
+    @Override
+    public Map<String, Double> getMonthlySummary(int year, int month) {
+        return timed(getMonthlySummary, () -> super.getMonthlySummary(year, month), summary -> 0, year, month);
+    }
+
+    @Override
+    public Map<String, Double> getMonthlySummary(ExpenseSnapshot snapshot, int year, int month) {
+        return timed(getMonthlySummarySnapshot, () -> super.getMonthlySummary(snapshot, year, month),
+                summary -> 0, snapshot.getVersion(), year, month);
+    }
+
+    @Override
+    public double getTotalSpent() {
+        return timed(getTotalSpent, super::getTotalSpent, total -> 0);
+    }
+
+    @Override
+    public double getTotalSpent(LocalDate startDate, LocalDate endDate) {
+        return timed(getTotalSpent, () -> super.getTotalSpent(startDate, endDate), total -> 0, startDate, endDate);
+    }
+
+    @Override
+    public double getTotalSpent(ExpenseSnapshot snapshot) {
+        return timed(getTotalSpentSnapshot, () -> super.getTotalSpent(snapshot), total -> 0, snapshot.getVersion());
+    }
+
+    @Override
+    public ExpenseStats getStats(LocalDate startDate, LocalDate endDate) {
+        return timed(getStats, () -> super.getStats(startDate, endDate), ExpenseStats::getCount,
+                startDate, endDate);
+    }
+
+    // Service calls are coarse enough that the lambda and arguments array per call do not show
+    private static <T> T timed(OperationMetrics operation, Supplier<T> call, ToLongFunction<T> rows,
+                               Object... arguments) {
+        long start = System.nanoTime();
+        long scanned = QueryTrace.rowsScanned();
+        try {
+            T result = call.get();
+            long count = rows.applyAsLong(result);
+            if (operation.succeeded(start, count)) {
+                operation.logSlow(start, scanned, count, arguments);
+            }
+            return result;
+        } catch (RuntimeException | Error e) {
+            operation.failed(start);
+            throw e;
+        }
+    }
+}
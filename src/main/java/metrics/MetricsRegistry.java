@@ -0,0 +1,81 @@
+package metrics;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+// The named operations of one process. Instrumented classes look their
+// operations up once, when they are built, so recording never touches the
+// map. Once exported, every operation, including those created later, is an
+// MXBean on the platform MBean server (jconsole, VisualVM, JMX exporters).
+// Likewise, once a slow-operation log is attached, every operation reports
+// its slow calls to it.
+public class MetricsRegistry {
+    public static final String JMX_DOMAIN = "expense-tracker";
+    private static final MetricsRegistry SHARED = new MetricsRegistry();
+
+    private final Map<String, OperationMetrics> operations = new ConcurrentHashMap<>();
+    private volatile MBeanServer exportedTo;
+    private volatile SlowOperationLog slowLog;
+
+    // The registry the applications report to
+    public static MetricsRegistry shared() {
+        return SHARED;
+    }
+
+    public OperationMetrics operation(String name) {
+        OperationMetrics existing = operations.get(name);
+        if (existing != null) {
+            return existing;
+        }
+        synchronized (this) {
+            return operations.computeIfAbsent(name, key -> {
+                OperationMetrics created = new OperationMetrics(key);
+                if (exportedTo != null) {
+                    register(exportedTo, created);
+                }
+                if (slowLog != null) {
+                    created.logTo(slowLog);
+                }
+                return created;
+            });
+        }
+    }
+
+    // Every operation so far, by name
+    public Map<String, OperationMetrics> operations() {
+        return new TreeMap<>(operations);
+    }
+
+    public synchronized void exportToJmx() {
+        if (exportedTo != null) {
+            return;
+        }
+        exportedTo = ManagementFactory.getPlatformMBeanServer();
+        operations.values().forEach(operation -> register(exportedTo, operation));
+    }
+
+    public synchronized void logSlowOperations(SlowOperationLog log) {
+        slowLog = log;
+        operations.values().forEach(operation -> operation.logTo(log));
+    }
+
+    private static void register(MBeanServer server, OperationMetrics operation) {
+        try {
+            server.registerMBean(operation, objectName(operation.getName()));
+        } catch (InstanceAlreadyExistsException e) {
+            // Another registry in this JVM got there first; its numbers stay visible
+        } catch (JMException e) {
+            System.err.println("Warning: Could not export metrics for " + operation.getName() + ": " + e.getMessage());
+        }
+    }
+
+    static ObjectName objectName(String operation) throws JMException {
+        return new ObjectName(JMX_DOMAIN + ":type=Operation,name=" + operation);
+    }
+}
@@ -0,0 +1,97 @@
+package metrics;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Logs, every interval, one line per operation that ran during it: calls,
+// rate, latency percentiles, rows, bytes written and errors. Runs on one
+// daemon thread.
+//
+// The applications start one when -Dexpenses.metrics.log=<seconds> is set.
+public class MetricsReporter implements AutoCloseable {
+    public static final String INTERVAL_PROPERTY = "expenses.metrics.log";
+
+    private final MetricsRegistry registry;
+    private final Duration interval;
+    private final ScheduledExecutorService scheduler;
+    // What each operation had reached at the previous report
+    private final Map<String, Totals> previous = new HashMap<>();
+    private long previousNanos = System.nanoTime();
+
+    private static final class Totals {
+        final LatencyHistogram.Snapshot latency;
+        final long rows;
+        final long bytes;
+        final long errors;
+
+        Totals(OperationMetrics operation) {
+            this.latency = operation.latency();
+            this.rows = operation.getRowCount();
+            this.bytes = operation.getBytesWritten();
+            this.errors = operation.getErrorCount();
+        }
+    }
+
+    public MetricsReporter(MetricsRegistry registry, Duration interval) {
+        if (interval.isNegative() || interval.isZero()) {
+            throw new IllegalArgumentException("Report interval must be positive");
+        }
+        this.registry = registry;
+        this.interval = interval;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "metrics-reporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // A started reporter when INTERVAL_PROPERTY is set, otherwise null
+    public static MetricsReporter startIfConfigured(MetricsRegistry registry) {
+        Long seconds = Long.getLong(INTERVAL_PROPERTY);
+        if (seconds == null) {
+            return null;
+        }
+        MetricsReporter reporter = new MetricsReporter(registry, Duration.ofSeconds(seconds));
+        reporter.start();
+        return reporter;
+    }
+
+    public void start() {
+        long millis = interval.toMillis();
+        scheduler.scheduleAtFixedRate(this::report, millis, millis, TimeUnit.MILLISECONDS);
+    }
+
+    // Synchronized so a report from close() cannot interleave with a scheduled one
+    public synchronized void report() {
+        long now = System.nanoTime();
+        double seconds = Math.max(1, now - previousNanos) / 1e9;
+        previousNanos = now;
+        for (OperationMetrics operation : registry.operations().values()) {
+            Totals totals = new Totals(operation);
+            Totals before = previous.put(operation.getName(), totals);
+            LatencyHistogram.Snapshot latency = before == null ? totals.latency : totals.latency.since(before.latency);
+            if (latency.getCount() == 0) {
+                continue;
+            }
+            System.out.printf("metrics %s: %d calls (%.1f/s), p50 %.3f ms, p99 %.3f ms, max %.3f ms,"
+                            + " %d rows, %d bytes written, %d errors%n",
+                    operation.getName(), latency.getCount(), latency.getCount() / seconds,
+                    latency.getValueAtPercentile(50) / 1e6, latency.getValueAtPercentile(99) / 1e6,
+                    latency.getMaxNanos() / 1e6,
+                    totals.rows - (before == null ? 0 : before.rows),
+                    totals.bytes - (before == null ? 0 : before.bytes),
+                    totals.errors - (before == null ? 0 : before.errors));
+        }
+    }
+
+    // Stops reporting after one last report
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+        report();
+    }
+}
@@ -0,0 +1,17 @@
+package metrics;
+
+// One operation as it appears in JMX, under
+// expense-tracker:type=Operation,name=<operation>. Counts are totals since
+// start; latencies are taken from the whole history.
+public interface OperationMXBean {
+    long getCount();
+    long getErrorCount();
+    long getRowCount();
+    long getBytesWritten();
+    double getMeanMillis();
+    double getP50Millis();
+    double getP90Millis();
+    double getP99Millis();
+    double getP999Millis();
+    double getMaxMillis();
+}
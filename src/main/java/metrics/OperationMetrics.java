@@ -0,0 +1,140 @@
+package metrics;
+
+import persistence.QueryTrace;
+
+import java.util.concurrent.atomic.LongAdder;
+
+// Latency, outcome, row and byte counts of one named operation. Callers take
+// a start time with System.nanoTime() and report once the call returns:
+//
+//   long start = System.nanoTime();
+//   List<Expense> rows = repository.findAll();
+//   findAll.succeeded(start, rows.size());
+//
+// With a slow-operation log attached, succeeded() says whether the call
+// reached the operation's threshold, and the caller then logs it with its
+// arguments:
+//
+//   long start = System.nanoTime();
+//   long scanned = QueryTrace.rowsScanned();
+//   List<Expense> rows = repository.findByCategory(category);
+//   if (findByCategory.succeeded(start, rows.size())) {
+//       findByCategory.logSlow(start, scanned, rows.size(), category);
+//   }
+public class OperationMetrics implements OperationMXBean {
+    private final String name;
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder rows = new LongAdder();
+    private final LongAdder bytes = new LongAdder();
+    private volatile SlowOperationLog slowLog;
+    private volatile long slowNanos = Long.MAX_VALUE;
+
+    OperationMetrics(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    // True when the call was slow enough to log
+    public boolean succeeded(long startNanos) {
+        long elapsed = System.nanoTime() - startNanos;
+        latency.record(elapsed);
+        return elapsed >= slowNanos;
+    }
+
+    public boolean succeeded(long startNanos, long rowCount) {
+        long elapsed = System.nanoTime() - startNanos;
+        latency.record(elapsed);
+        if (rowCount > 0) {
+            rows.add(rowCount);
+        }
+        return elapsed >= slowNanos;
+    }
+
+    // Failed calls count towards latency too, so a slow failure is not hidden
+    public void failed(long startNanos) {
+        latency.record(System.nanoTime() - startNanos);
+        errors.increment();
+    }
+
+    // scannedBefore is QueryTrace.rowsScanned() as the call started
+    public void logSlow(long startNanos, long scannedBefore, long rowsReturned, Object... arguments) {
+        SlowOperationLog log = slowLog;
+        if (log != null) {
+            log.record(new SlowOperation(name, arguments, QueryTrace.rowsScanned() - scannedBefore, rowsReturned,
+                    System.nanoTime() - startNanos, Thread.currentThread().getName(), System.currentTimeMillis()));
+        }
+    }
+
+    void logTo(SlowOperationLog log) {
+        slowNanos = log.thresholdFor(name).toNanos();
+        slowLog = log;
+    }
+
+    public void addBytesWritten(long count) {
+        if (count > 0) {
+            bytes.add(count);
+        }
+    }
+
+    public LatencyHistogram.Snapshot latency() {
+        return latency.snapshot();
+    }
+
+    @Override
+    public long getCount() {
+        return latency.snapshot().getCount();
+    }
+
+    @Override
+    public long getErrorCount() {
+        return errors.sum();
+    }
+
+    @Override
+    public long getRowCount() {
+        return rows.sum();
+    }
+
+    @Override
+    public long getBytesWritten() {
+        return bytes.sum();
+    }
+
+    @Override
+    public double getMeanMillis() {
+        return latency.snapshot().getMeanNanos() / 1e6;
+    }
+
+    @Override
+    public double getP50Millis() {
+        return percentileMillis(50);
+    }
+
+    @Override
+    public double getP90Millis() {
+        return percentileMillis(90);
+    }
+
+    @Override
+    public double getP99Millis() {
+        return percentileMillis(99);
+    }
+
+    @Override
+    public double getP999Millis() {
+        return percentileMillis(99.9);
+    }
+
+    @Override
+    public double getMaxMillis() {
+        return latency.snapshot().getMaxNanos() / 1e6;
+    }
+
+    private double percentileMillis(double percentile) {
+        return latency.snapshot().getValueAtPercentile(percentile) / 1e6;
+    }
+}
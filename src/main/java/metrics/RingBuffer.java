@@ -0,0 +1,51 @@
+package metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+// A bounded queue for many producers and one consumer that never blocks:
+// producers claim a slot with one CAS and offer() fails once the consumer is
+// a full lap behind. A claimed slot reads as empty until its producer fills
+// it, so the consumer never sees a half-published element.
+final class RingBuffer<T> {
+    private final AtomicReferenceArray<T> slots;
+    private final int mask;
+    // Next slot to claim
+    private final AtomicLong head = new AtomicLong();
+    // Next slot to take; written by the consumer only
+    private volatile long tail;
+
+    RingBuffer(int capacity) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity must be a power of two: " + capacity);
+        }
+        this.slots = new AtomicReferenceArray<>(capacity);
+        this.mask = capacity - 1;
+    }
+
+    boolean offer(T element) {
+        long claimed;
+        do {
+            claimed = head.get();
+            if (claimed - tail > mask) {
+                return false;
+            }
+        } while (!head.compareAndSet(claimed, claimed + 1));
+        slots.set((int) (claimed & mask), element);
+        return true;
+    }
+
+    // The oldest element, or null if there is none yet. Consumer thread only.
+    T poll() {
+        long next = tail;
+        int index = (int) (next & mask);
+        T element = slots.get(index);
+        if (element == null) {
+            return null;
+        }
+        // Emptied before tail moves on, so producers lapping the ring find it free
+        slots.lazySet(index, null);
+        tail = next + 1;
+        return element;
+    }
+}
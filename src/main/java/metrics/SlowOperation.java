@@ -0,0 +1,66 @@
+package metrics;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Locale;
+
+// One call that took at least its operation's slow threshold. Arguments are
+// kept as passed and only turned into text by the log's writer thread, so
+// callers pass immutable values (ids, dates, counts), not collections.
+public final class SlowOperation {
+    private final String operation;
+    private final Object[] arguments;
+    private final long rowsScanned;
+    private final long rowsReturned;
+    private final long elapsedNanos;
+    private final String thread;
+    private final long finishedAtMillis;
+
+    public SlowOperation(String operation, Object[] arguments, long rowsScanned, long rowsReturned,
+                         long elapsedNanos, String thread, long finishedAtMillis) {
+        this.operation = operation;
+        this.arguments = arguments;
+        this.rowsScanned = rowsScanned;
+        this.rowsReturned = rowsReturned;
+        this.elapsedNanos = elapsedNanos;
+        this.thread = thread;
+        this.finishedAtMillis = finishedAtMillis;
+    }
+
+    public String getOperation() {
+        return operation;
+    }
+
+    public Object[] getArguments() {
+        return arguments.clone();
+    }
+
+    public long getRowsScanned() {
+        return rowsScanned;
+    }
+
+    public long getRowsReturned() {
+        return rowsReturned;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    public String getThread() {
+        return thread;
+    }
+
+    public long getFinishedAtMillis() {
+        return finishedAtMillis;
+    }
+
+    // 2024-03-01T09:30:00.125Z slow repository.findByDateRange(2014-01-01, 2024-12-31): 152.301 ms,
+    // 41230 rows scanned, 41230 returned, thread AWT-EventQueue-0
+    public String format() {
+        String args = Arrays.toString(arguments);
+        return String.format(Locale.ROOT, "%s slow %s(%s): %.3f ms, %d rows scanned, %d returned, thread %s",
+                Instant.ofEpochMilli(finishedAtMillis), operation, args.substring(1, args.length() - 1),
+                elapsedNanos / 1e6, rowsScanned, rowsReturned, thread);
+    }
+}
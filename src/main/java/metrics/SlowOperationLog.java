@@ -0,0 +1,184 @@
+package metrics;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+// Logs each call that took at least its operation's threshold, with its
+// arguments, rows scanned and returned, elapsed time and calling thread.
+// Callers only hand the entry to a ring buffer; one daemon thread formats and
+// writes it. When the buffer is full the entry is dropped and counted rather
+// than making the caller wait.
+//
+// The applications start one when -Dexpenses.slowlog.millis=<ms> is set.
+// -Dexpenses.slowlog.millis.<operation>=<ms> sets a threshold for one
+// operation (e.g. expenses.slowlog.millis.repository.findById=5), and
+// -Dexpenses.slowlog.file=<path> appends to a file instead of standard output.
+public class SlowOperationLog implements AutoCloseable {
+    public static final String THRESHOLD_PROPERTY = "expenses.slowlog.millis";
+    public static final String FILE_PROPERTY = "expenses.slowlog.file";
+    public static final Duration DEFAULT_THRESHOLD = Duration.ofMillis(100);
+    static final int CAPACITY = 1024;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(200);
+
+    private final Duration threshold;
+    private final Map<String, Duration> thresholds;
+    private final PrintWriter out;
+    private final boolean closeOut;
+    private final RingBuffer<SlowOperation> pending = new RingBuffer<>(CAPACITY);
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong logged = new AtomicLong();
+    private final Thread writer;
+    // Writer thread only
+    private long droppedReported;
+    private boolean failureReported;
+    private volatile boolean closed;
+
+    // Writes to standard output
+    public SlowOperationLog(Duration threshold, Map<String, Duration> thresholds) {
+        this(threshold, thresholds, new PrintWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8)), false);
+    }
+
+    // Appends to file, creating it if needed
+    public SlowOperationLog(Duration threshold, Map<String, Duration> thresholds, Path file) throws IOException {
+        this(threshold, thresholds, new PrintWriter(new BufferedWriter(new OutputStreamWriter(
+                Files.newOutputStream(file, StandardOpenOption.CREATE, StandardOpenOption.APPEND),
+                StandardCharsets.UTF_8))), true);
+    }
+
+    private SlowOperationLog(Duration threshold, Map<String, Duration> thresholds, PrintWriter out, boolean closeOut) {
+        if (threshold.isNegative()) {
+            throw new IllegalArgumentException("Slow threshold must not be negative");
+        }
+        thresholds.forEach((operation, limit) -> {
+            if (limit.isNegative()) {
+                throw new IllegalArgumentException("Slow threshold for " + operation + " must not be negative");
+            }
+        });
+        this.threshold = threshold;
+        this.thresholds = new HashMap<>(thresholds);
+        this.out = out;
+        this.closeOut = closeOut;
+        this.writer = new Thread(this::drain, "slow-operation-log");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    // A started log, reporting registry's operations, when any threshold
+    // property is set; otherwise null
+    public static SlowOperationLog startIfConfigured(MetricsRegistry registry) {
+        String prefix = THRESHOLD_PROPERTY + ".";
+        Map<String, Duration> thresholds = new HashMap<>();
+        for (String name : System.getProperties().stringPropertyNames()) {
+            Long millis = name.startsWith(prefix) ? Long.getLong(name) : null;
+            if (millis != null) {
+                thresholds.put(name.substring(prefix.length()), Duration.ofMillis(millis));
+            }
+        }
+        Long millis = Long.getLong(THRESHOLD_PROPERTY);
+        if (millis == null && thresholds.isEmpty()) {
+            return null;
+        }
+        Duration threshold = millis != null ? Duration.ofMillis(millis) : DEFAULT_THRESHOLD;
+        String file = System.getProperty(FILE_PROPERTY);
+        SlowOperationLog log;
+        try {
+            log = file != null ? new SlowOperationLog(threshold, thresholds, Paths.get(file))
+                    : new SlowOperationLog(threshold, thresholds);
+        } catch (IOException e) {
+            System.err.println("Warning: Could not open slow-operation log " + file + ": " + e.getMessage());
+            return null;
+        }
+        registry.logSlowOperations(log);
+        Runtime.getRuntime().addShutdownHook(new Thread(log::close, "slow-operation-log-shutdown"));
+        return log;
+    }
+
+    public Duration thresholdFor(String operation) {
+        return thresholds.getOrDefault(operation, threshold);
+    }
+
+    // Never blocks; returns false if the entry was dropped
+    public boolean record(SlowOperation operation) {
+        if (closed || !pending.offer(operation)) {
+            dropped.incrementAndGet();
+            return false;
+        }
+        LockSupport.unpark(writer);
+        return true;
+    }
+
+    public long getLoggedCount() {
+        return logged.get();
+    }
+
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    // Writes what is still buffered, then stops
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        LockSupport.unpark(writer);
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (closeOut) {
+            out.close();
+        }
+    }
+
+    private void drain() {
+        while (!closed) {
+            if (!writePending()) {
+                LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+            }
+        }
+        // Entries offered just before close
+        writePending();
+    }
+
+    // True if anything was written
+    private boolean writePending() {
+        boolean wrote = false;
+        SlowOperation operation;
+        while ((operation = pending.poll()) != null) {
+            out.println(operation.format());
+            logged.incrementAndGet();
+            wrote = true;
+        }
+        long droppedNow = dropped.get();
+        if (droppedNow > droppedReported) {
+            out.println("slow-operation log dropped " + (droppedNow - droppedReported)
+                    + " entries: more arrived than it could write");
+            droppedReported = droppedNow;
+            wrote = true;
+        }
+        if (wrote) {
+            out.flush();
+            if (out.checkError() && !failureReported) {
+                System.err.println("Warning: Failed to write the slow-operation log");
+                failureReported = true;
+            }
+        }
+        return wrote;
+    }
+}
@@ -0,0 +1,79 @@
+package model;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Maps category names to small, dense int codes. Every Expense stores a code
+// from the shared dictionary, so a category's text exists once per process no
+// matter how many rows use it, and grouping can index arrays by code. Codes
+// are never reused or removed and are only meaningful inside this process.
+public final class CategoryDictionary {
+    private static final CategoryDictionary SHARED = new CategoryDictionary();
+
+    private final ConcurrentHashMap<String, Integer> codes = new ConcurrentHashMap<>();
+    private volatile String[] names = new String[64];
+    private volatile int size;
+
+    public static CategoryDictionary shared() {
+        return SHARED;
+    }
+
+    public int encode(String name) {
+        Integer code = codes.get(name);
+        return code != null ? code : add(name);
+    }
+
+    private synchronized int add(String name) {
+        Integer existing = codes.get(name);
+        if (existing != null) {
+            return existing;
+        }
+        String[] current = names;
+        if (size == current.length) {
+            current = Arrays.copyOf(current, size * 2);
+        }
+        int code = size;
+        current[code] = name;
+        // Publish the name and size before the code can be seen
+        names = current;
+        size = code + 1;
+        codes.put(name, code);
+        return code;
+    }
+
+    public String decode(int code) {
+        if (code < 0 || code >= size) {
+            throw new IllegalArgumentException("Unknown category code: " + code);
+        }
+        return names[code];
+    }
+
+    // The shared instance of this name, for callers that keep the text
+    public String canonical(String name) {
+        return decode(encode(name));
+    }
+
+    // -1 if the name has never been seen; does not add it
+    public int codeOf(String name) {
+        Integer code = codes.get(name);
+        return code != null ? code : -1;
+    }
+
+    // All codes whose name equals the given one ignoring case
+    public BitSet codesIgnoringCase(String name) {
+        BitSet matches = new BitSet();
+        int count = size;
+        String[] current = names;
+        for (int code = 0; code < count; code++) {
+            if (current[code].equalsIgnoreCase(name)) {
+                matches.set(code);
+            }
+        }
+        return matches;
+    }
+
+    public int size() {
+        return size;
+    }
+}
@@ -1,35 +1,56 @@
 package model;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.util.Objects;
 
+// Kept small because a ledger holds every row in memory: the date is an epoch
+// day, the amount whole cents, the category a CategoryDictionary code and the
+// description UTF-8 bytes that are only decoded when asked for. Run
+// tools.ExpenseFootprint to see the per-row cost.
 public class Expense implements Serializable {
-    private static final long serialVersionUID = 1L;
+    // Bounds for open-ended date ranges. Any date between them has an epoch
+    // day that fits the int field; the constructor rejects dates that do not.
+    public static final LocalDate EARLIEST_DATE = LocalDate.of(1, 1, 1);
+    public static final LocalDate LATEST_DATE = LocalDate.of(9999, 12, 31);
+    private static final long serialVersionUID = 2L;
+    private static final byte[] NO_DESCRIPTION = new byte[0];
 
     private final String id;
-    private final double amount;
-    private final String category;
-    private final String description;
-    private final LocalDate date;
+    private final long amountCents;
+    private final int epochDay;
+    // Code in CategoryDictionary.shared(); written as the name when serialized
+    private transient int categoryCode;
+    private final byte[] description;
     private final PaymentMethod paymentMethod;
 
     public Expense(String id, double amount, String category, String description,
                    LocalDate date, PaymentMethod paymentMethod) {
         this.id = Objects.requireNonNull(id, "ID cannot be null");
-        this.amount = amount;
-        this.category = Objects.requireNonNull(category, "Category cannot be null");
-        this.description = description != null ? description : "";
-        this.date = date != null ? date : LocalDate.now();
+        this.amountCents = Math.round(amount * 100);
+        this.categoryCode = CategoryDictionary.shared().encode(
+                Objects.requireNonNull(category, "Category cannot be null"));
+        this.description = description == null || description.isEmpty()
+                ? NO_DESCRIPTION : description.getBytes(StandardCharsets.UTF_8);
+        this.epochDay = Math.toIntExact((date != null ? date : LocalDate.now()).toEpochDay());
         this.paymentMethod = paymentMethod != null ? paymentMethod : PaymentMethod.CASH;
     }
 
     // Getters
     public String getId() { return id; }
-    public double getAmount() { return amount; }
-    public String getCategory() { return category; }
-    public String getDescription() { return description; }
-    public LocalDate getDate() { return date; }
+    public double getAmount() { return amountCents / 100.0; }
+    public long getAmountCents() { return amountCents; }
+    public String getCategory() { return CategoryDictionary.shared().decode(categoryCode); }
+    public int getCategoryCode() { return categoryCode; }
+    public String getDescription() {
+        return description.length == 0 ? "" : new String(description, StandardCharsets.UTF_8);
+    }
+    public LocalDate getDate() { return LocalDate.ofEpochDay(epochDay); }
+    public int getEpochDay() { return epochDay; }
     public PaymentMethod getPaymentMethod() { return paymentMethod; }
 
     @Override
@@ -48,6 +69,16 @@ public class Expense implements Serializable {
     @Override
     public String toString() {
         return String.format("Expense{id='%s', amount=%.2f, category='%s', date=%s}",
-                id, amount, category, date);
+                id, getAmount(), getCategory(), getDate());
+    }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+        out.writeUTF(getCategory());
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        categoryCode = CategoryDictionary.shared().encode(in.readUTF());
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,18 @@
+package model;
+
+import java.util.UUID;
+
+@FunctionalInterface
+public interface IdGenerator {
+    String nextId();
+
+    // Time-ordered 26-character ids, generated without any shared state
+    static IdGenerator ulid() {
+        return () -> Ulid.next().toString();
+    }
+
+    // The original random 36-character ids
+    static IdGenerator uuid() {
+        return () -> UUID.randomUUID().toString();
+    }
+}
@@ -0,0 +1,127 @@
+package model;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+
+// 128-bit id: 48-bit millisecond timestamp followed by 80 random bits, written
+// as 26 Crockford base32 characters. Ids sort by creation time both as text
+// and as unsigned (msb, lsb) pairs. Each thread keeps its own state, so
+// generating never contends; within one millisecond a thread's ids increase
+// strictly by incrementing the random part.
+public final class Ulid implements Comparable<Ulid>, Serializable {
+    private static final long serialVersionUID = 1L;
+    private static final char[] ALPHABET = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray();
+    private static final byte[] DECODE = new byte[128];
+    private static final ThreadLocal<long[]> LAST = ThreadLocal.withInitial(() -> new long[3]);
+
+    static {
+        Arrays.fill(DECODE, (byte) -1);
+        for (int i = 0; i < ALPHABET.length; i++) {
+            DECODE[ALPHABET[i]] = (byte) i;
+        }
+    }
+
+    private final long msb;
+    private final long lsb;
+
+    public Ulid(long msb, long lsb) {
+        this.msb = msb;
+        this.lsb = lsb;
+    }
+
+    public static Ulid next() {
+        long now = System.currentTimeMillis();
+        long[] last = LAST.get(); // {millis, random high 16 bits, random low 64 bits}
+        if (now > last[0]) {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            last[0] = now;
+            last[1] = random.nextInt(1 << 16);
+            last[2] = random.nextLong();
+        } else if (++last[2] == 0) {
+            // The clock did not move (or went back): keep the last timestamp and count up
+            last[1] = (last[1] + 1) & 0xFFFF;
+        }
+        return new Ulid((last[0] << 16) | last[1], last[2]);
+    }
+
+    public static boolean isUlid(String text) {
+        if (text == null || text.length() != 26 || text.charAt(0) > '7') {
+            return false;
+        }
+        for (int i = 0; i < 26; i++) {
+            char c = text.charAt(i);
+            if (c >= 128 || DECODE[c] < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public static Ulid parse(String text) {
+        if (!isUlid(text)) {
+            throw new IllegalArgumentException("Not a ULID: " + text);
+        }
+        // 26 chars * 5 bits = 130 bits; the first char only carries 3
+        long msb = 0;
+        long lsb = 0;
+        for (int i = 0; i < 26; i++) {
+            long value = DECODE[text.charAt(i)];
+            msb = (msb << 5) | (lsb >>> 59);
+            lsb = (lsb << 5) | value;
+        }
+        return new Ulid(msb, lsb);
+    }
+
+    public long getMostSignificantBits() { return msb; }
+    public long getLeastSignificantBits() { return lsb; }
+
+    public long getTimestamp() {
+        return msb >>> 16;
+    }
+
+    @Override
+    public String toString() {
+        char[] chars = new char[26];
+        long high = msb;
+        long low = lsb;
+        for (int i = 25; i >= 0; i--) {
+            chars[i] = ALPHABET[(int) (low & 0x1F)];
+            low = (low >>> 5) | (high << 59);
+            high >>>= 5;
+        }
+        return new String(chars);
+    }
+
+    // Writes the text form as 26 ASCII bytes, for writers that never need the
+    // String; returns the offset after it
+    public static int encode(long msb, long lsb, byte[] target, int offset) {
+        long high = msb;
+        long low = lsb;
+        for (int i = 25; i >= 0; i--) {
+            target[offset + i] = (byte) ALPHABET[(int) (low & 0x1F)];
+            low = (low >>> 5) | (high << 59);
+            high >>>= 5;
+        }
+        return offset + 26;
+    }
+
+    @Override
+    public int compareTo(Ulid other) {
+        int byHigh = Long.compareUnsigned(msb, other.msb);
+        return byHigh != 0 ? byHigh : Long.compareUnsigned(lsb, other.lsb);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof Ulid)) return false;
+        Ulid other = (Ulid) o;
+        return msb == other.msb && lsb == other.lsb;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(msb) * 31 + Long.hashCode(lsb);
+    }
+}
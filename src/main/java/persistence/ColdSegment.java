@@ -0,0 +1,507 @@
+package persistence;
+
+import model.Expense;
+import model.PaymentMethod;
+import model.Ulid;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+// Compact archive encoding for segments that no longer change (".cold").
+// Header numbers are big-endian fixed width; block columns are varints.
+//
+//   file      := "EXPS" version:u8 rows:i32 categories:dict payments:dict
+//                blockCount:i32 blockEntry[blockCount] block[blockCount]
+//   dict      := size:i32 string[size]
+//   blockEntry:= rows:i32 sumCents:i64 minEpochDay:i32 maxEpochDay:i32
+//                length:i32 crc32c:i64
+//   block     := epochDay:zigzag[rows]        (first absolute, then deltas)
+//                amountCents:zigzag[rows] categoryCode:varint[rows]
+//                paymentCode:u8[rows] idEncoding:u8 ids
+//                descriptionsLength:varint deflate(string[rows])
+//   ids       := timestamp:zigzag[rows] (deltas) randomHigh:u16[rows]
+//                randomLow:i64[rows]                (idEncoding 1, ULIDs)
+//              | string[rows]                      (idEncoding 0)
+//   string    := length:varint utf8-bytes
+//
+// Rows are stored in NEWEST_FIRST order, so day and ULID timestamp deltas
+// are small. Categories and payment methods are coded against the file's own
+// dictionaries. The block entries carry each block's stats, so count and sum
+// queries read the header alone, and a block that straddles a query's dates
+// is decoded only up to its amount column; descriptions are never inflated
+// for a summary.
+//
+// open() reads only the header. Blocks are read from the file when needed,
+// so a parsed header can be kept and reused for as long as the file is not
+// rewritten.
+final class ColdSegment {
+    static final byte[] MAGIC = {'E', 'X', 'P', 'S'};
+    static final int VERSION = 1;
+    static final int BLOCK_SIZE = 1024;
+    // rows, sumCents, minEpochDay, maxEpochDay, length, crc32c
+    private static final int BLOCK_ENTRY_BYTES = 4 + 8 + 4 + 4 + 4 + 8;
+
+    private final Path file;
+    private final long fileLength;
+    private final String[] categories;
+    private final PaymentMethod[] payments;
+    private final ExpenseStats[] blockStats;
+    private final long[] blockOffsets;
+    private final int[] blockLengths;
+    private final long[] blockChecksums;
+    private final int rowCount;
+
+    private ColdSegment(Path file) throws IOException {
+        this.file = file;
+        String[] paymentNames;
+        int blocks;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            byte[] magic = new byte[MAGIC.length];
+            in.readFully(magic);
+            if (!Arrays.equals(magic, MAGIC) || in.readUnsignedByte() != VERSION) {
+                throw new IOException("Not a cold segment: " + file);
+            }
+            rowCount = in.readInt();
+            categories = readDictionary(in);
+            paymentNames = readDictionary(in);
+
+            blocks = in.readInt();
+            blockStats = new ExpenseStats[blocks];
+            blockOffsets = new long[blocks];
+            blockLengths = new int[blocks];
+            blockChecksums = new long[blocks];
+            for (int i = 0; i < blocks; i++) {
+                int rows = in.readInt();
+                long sum = in.readLong();
+                int min = in.readInt();
+                int max = in.readInt();
+                blockStats[i] = new ExpenseStats(rows, sum, min, max);
+                blockLengths[i] = in.readInt();
+                blockChecksums[i] = in.readLong();
+            }
+        }
+        payments = new PaymentMethod[paymentNames.length];
+        for (int i = 0; i < paymentNames.length; i++) {
+            payments[i] = PaymentMethod.valueOf(paymentNames[i]);
+        }
+
+        long offset = MAGIC.length + 1 + 4 + dictionaryLength(categories) + dictionaryLength(paymentNames)
+                + 4 + (long) blocks * BLOCK_ENTRY_BYTES;
+        for (int i = 0; i < blocks; i++) {
+            blockOffsets[i] = offset;
+            offset += blockLengths[i];
+        }
+        fileLength = offset;
+        if (fileLength != Files.size(file)) {
+            throw new IOException("Truncated cold segment: " + file);
+        }
+    }
+
+    static ColdSegment open(Path file) throws IOException {
+        return new ColdSegment(file);
+    }
+
+    // From the block stats alone
+    ExpenseStats getStats() {
+        ExpenseStats total = ExpenseStats.EMPTY;
+        for (ExpenseStats stats : blockStats) {
+            total = total.plus(stats);
+        }
+        return total;
+    }
+
+    // Blocks inside the range count from their stats; only the blocks that
+    // straddle it are read from the file, and decoded as far as their amounts
+    ExpenseStats summarize(LocalDate startDate, LocalDate endDate) throws IOException {
+        long start = startDate.toEpochDay();
+        long end = endDate.toEpochDay();
+        ExpenseStats total = ExpenseStats.EMPTY;
+        FileChannel channel = null;
+        try {
+            for (int b = 0; b < blockStats.length; b++) {
+                ExpenseStats stats = blockStats[b];
+                if (stats.getMaxEpochDay() < start || stats.getMinEpochDay() > end) {
+                    continue;
+                }
+                if (stats.getMinEpochDay() >= start && stats.getMaxEpochDay() <= end) {
+                    total = total.plus(stats);
+                    continue;
+                }
+                if (channel == null) {
+                    channel = openChannel();
+                }
+                byte[] block = readBlockBytes(channel, b);
+                if (!verify(b, block)) {
+                    continue;
+                }
+                int rows = (int) stats.getCount();
+                Cursor cursor = new Cursor(block, 0);
+                long[] days = readDays(cursor, rows);
+                long count = 0;
+                long sum = 0;
+                long min = Long.MAX_VALUE;
+                long max = Long.MIN_VALUE;
+                for (int i = 0; i < rows; i++) {
+                    long cents = cursor.zigzag();
+                    if (days[i] >= start && days[i] <= end) {
+                        count++;
+                        sum += cents;
+                        min = Math.min(min, days[i]);
+                        max = Math.max(max, days[i]);
+                    }
+                }
+                if (count > 0) {
+                    total = total.plus(new ExpenseStats(count, sum, min, max));
+                }
+            }
+        } finally {
+            if (channel != null) {
+                channel.close();
+            }
+        }
+        return total;
+    }
+
+    // Every row, in NEWEST_FIRST order; a damaged block is reported and skipped
+    List<Expense> readAll() throws IOException {
+        List<Expense> expenses = new ArrayList<>(rowCount);
+        try (FileChannel channel = openChannel()) {
+            for (int b = 0; b < blockStats.length; b++) {
+                byte[] block = readBlockBytes(channel, b);
+                if (verify(b, block)) {
+                    readBlock(b, block, expenses);
+                }
+            }
+        }
+        return expenses;
+    }
+
+    // Refuses a file that no longer has the length this header describes,
+    // i.e. one rewritten since it was opened
+    private FileChannel openChannel() throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        if (channel.size() != fileLength) {
+            channel.close();
+            throw new IOException("Cold segment " + file + " changed since its header was read");
+        }
+        return channel;
+    }
+
+    private byte[] readBlockBytes(FileChannel channel, int block) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(blockLengths[block]);
+        long position = blockOffsets[block];
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new IOException("Truncated cold segment: " + file);
+            }
+            position += read;
+        }
+        return buffer.array();
+    }
+
+    private boolean verify(int block, byte[] bytes) {
+        if (ExpenseLineFormat.checksum(bytes, 0, bytes.length) == blockChecksums[block]) {
+            return true;
+        }
+        System.err.println("Warning: Skipped corrupted block " + block + " (" + blockStats[block].getCount()
+                + " expenses) in " + file);
+        return false;
+    }
+
+    private void readBlock(int block, byte[] bytes, List<Expense> out) throws IOException {
+        int rows = (int) blockStats[block].getCount();
+        Cursor cursor = new Cursor(bytes, 0);
+        long[] days = readDays(cursor, rows);
+        long[] cents = new long[rows];
+        for (int i = 0; i < rows; i++) cents[i] = cursor.zigzag();
+        int[] categoryCodes = new int[rows];
+        for (int i = 0; i < rows; i++) categoryCodes[i] = (int) cursor.varint();
+        int[] paymentCodes = new int[rows];
+        for (int i = 0; i < rows; i++) paymentCodes[i] = cursor.data[cursor.position++] & 0xff;
+
+        String[] ids = new String[rows];
+        if (cursor.data[cursor.position++] == 1) {
+            long timestamp = 0;
+            long[] timestamps = new long[rows];
+            for (int i = 0; i < rows; i++) {
+                timestamp += cursor.zigzag();
+                timestamps[i] = timestamp;
+            }
+            int[] high = new int[rows];
+            for (int i = 0; i < rows; i++) high[i] = cursor.fixed(2);
+            for (int i = 0; i < rows; i++) {
+                ids[i] = new Ulid(timestamps[i] << 16 | high[i], cursor.fixedLong(8)).toString();
+            }
+        } else {
+            for (int i = 0; i < rows; i++) ids[i] = cursor.string();
+        }
+
+        int compressedLength = (int) cursor.varint();
+        Cursor descriptions = new Cursor(inflate(cursor.data, cursor.position, compressedLength), 0);
+        for (int i = 0; i < rows; i++) {
+            out.add(new Expense(ids[i], cents[i] / 100.0, categories[categoryCodes[i]], descriptions.string(),
+                    LocalDate.ofEpochDay(days[i]), payments[paymentCodes[i]]));
+        }
+    }
+
+    private static long[] readDays(Cursor cursor, int rows) {
+        long[] days = new long[rows];
+        long day = 0;
+        for (int i = 0; i < rows; i++) {
+            day += cursor.zigzag();
+            days[i] = day;
+        }
+        return days;
+    }
+
+    // Temp file, fsync, then rename over the target
+    static void write(Path file, List<Expense> rows) throws IOException {
+        Map<String, Integer> categoryCodes = new HashMap<>();
+        List<String> categoryNames = new ArrayList<>();
+        Map<PaymentMethod, Integer> paymentCodes = new HashMap<>();
+        List<String> paymentNames = new ArrayList<>();
+        List<byte[]> blocks = new ArrayList<>();
+        List<ExpenseStats> stats = new ArrayList<>();
+        for (int from = 0; from < rows.size(); from += BLOCK_SIZE) {
+            List<Expense> block = rows.subList(from, Math.min(rows.size(), from + BLOCK_SIZE));
+            for (Expense expense : block) {
+                if (!categoryCodes.containsKey(expense.getCategory())) {
+                    categoryCodes.put(expense.getCategory(), categoryNames.size());
+                    categoryNames.add(expense.getCategory());
+                }
+                if (!paymentCodes.containsKey(expense.getPaymentMethod())) {
+                    paymentCodes.put(expense.getPaymentMethod(), paymentNames.size());
+                    paymentNames.add(expense.getPaymentMethod().name());
+                }
+            }
+            blocks.add(encodeBlock(block, categoryCodes, paymentCodes));
+            stats.add(ExpenseStats.of(block));
+        }
+
+        Path temp = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+        try {
+            try (FileOutputStream stream = new FileOutputStream(temp.toFile());
+                 DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream))) {
+                out.write(MAGIC);
+                out.writeByte(VERSION);
+                out.writeInt(rows.size());
+                writeDictionary(out, categoryNames);
+                writeDictionary(out, paymentNames);
+                out.writeInt(blocks.size());
+                for (int i = 0; i < blocks.size(); i++) {
+                    ExpenseStats block = stats.get(i);
+                    out.writeInt((int) block.getCount());
+                    out.writeLong(block.getSumCents());
+                    out.writeInt((int) block.getMinEpochDay());
+                    out.writeInt((int) block.getMaxEpochDay());
+                    out.writeInt(blocks.get(i).length);
+                    out.writeLong(ExpenseLineFormat.checksum(blocks.get(i), 0, blocks.get(i).length));
+                }
+                for (byte[] block : blocks) {
+                    out.write(block);
+                }
+                out.flush();
+                stream.getFD().sync();
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static byte[] encodeBlock(List<Expense> rows, Map<String, Integer> categoryCodes,
+                                      Map<PaymentMethod, Integer> paymentCodes) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(rows.size() * 16);
+        long previousDay = 0;
+        for (Expense expense : rows) {
+            writeZigzag(out, expense.getEpochDay() - previousDay);
+            previousDay = expense.getEpochDay();
+        }
+        for (Expense expense : rows) writeZigzag(out, expense.getAmountCents());
+        for (Expense expense : rows) writeVarint(out, categoryCodes.get(expense.getCategory()));
+        for (Expense expense : rows) out.write(paymentCodes.get(expense.getPaymentMethod()));
+
+        boolean ulids = true;
+        for (Expense expense : rows) {
+            ulids &= Ulid.isUlid(expense.getId());
+        }
+        if (ulids) {
+            out.write(1);
+            Ulid[] parsed = new Ulid[rows.size()];
+            long previousTimestamp = 0;
+            for (int i = 0; i < parsed.length; i++) {
+                parsed[i] = Ulid.parse(rows.get(i).getId());
+                writeZigzag(out, parsed[i].getTimestamp() - previousTimestamp);
+                previousTimestamp = parsed[i].getTimestamp();
+            }
+            for (Ulid id : parsed) writeFixed(out, id.getMostSignificantBits() & 0xffff, 2);
+            for (Ulid id : parsed) writeFixed(out, id.getLeastSignificantBits(), 8);
+        } else {
+            out.write(0);
+            for (Expense expense : rows) writeString(out, expense.getId());
+        }
+
+        ByteArrayOutputStream descriptions = new ByteArrayOutputStream(rows.size() * 16);
+        for (Expense expense : rows) writeString(descriptions, expense.getDescription());
+        byte[] compressed = deflate(descriptions.toByteArray());
+        writeVarint(out, compressed.length);
+        out.write(compressed, 0, compressed.length);
+        return out.toByteArray();
+    }
+
+    private static byte[] deflate(byte[] bytes) {
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION, true);
+        try {
+            deflater.setInput(bytes);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length / 2 + 16);
+            byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(byte[] bytes, int offset, int length) throws IOException {
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(bytes, offset, length);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(length * 4);
+            byte[] buffer = new byte[8192];
+            while (!inflater.finished()) {
+                int read = inflater.inflate(buffer);
+                if (read == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IOException("Truncated description block");
+                }
+                out.write(buffer, 0, read);
+            }
+            return out.toByteArray();
+        } catch (DataFormatException e) {
+            throw new IOException("Bad description block: " + e.getMessage(), e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static void writeDictionary(DataOutputStream out, List<String> names) throws IOException {
+        out.writeInt(names.size());
+        for (String name : names) {
+            byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    // Bytes writeDictionary used for these names
+    private static long dictionaryLength(String[] names) {
+        long length = 4;
+        for (String name : names) {
+            length += 4 + name.getBytes(StandardCharsets.UTF_8).length;
+        }
+        return length;
+    }
+
+    private static String[] readDictionary(DataInputStream in) throws IOException {
+        String[] names = new String[in.readInt()];
+        for (int i = 0; i < names.length; i++) {
+            byte[] bytes = new byte[in.readInt()];
+            in.readFully(bytes);
+            names[i] = new String(bytes, StandardCharsets.UTF_8);
+        }
+        return names;
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7fL) != 0) {
+            out.write((int) (value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static void writeZigzag(ByteArrayOutputStream out, long value) {
+        writeVarint(out, (value << 1) ^ (value >> 63));
+    }
+
+    private static void writeFixed(ByteArrayOutputStream out, long value, int bytes) {
+        for (int shift = (bytes - 1) * 8; shift >= 0; shift -= 8) {
+            out.write((int) (value >>> shift) & 0xff);
+        }
+    }
+
+    private static void writeString(ByteArrayOutputStream out, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarint(out, bytes.length);
+        out.write(bytes, 0, bytes.length);
+    }
+
+    private static final class Cursor {
+        final byte[] data;
+        int position;
+
+        Cursor(byte[] data, int position) {
+            this.data = data;
+            this.position = position;
+        }
+
+        long varint() {
+            long value = 0;
+            for (int shift = 0; ; shift += 7) {
+                byte b = data[position++];
+                value |= (long) (b & 0x7f) << shift;
+                if (b >= 0) {
+                    return value;
+                }
+            }
+        }
+
+        long zigzag() {
+            long value = varint();
+            return (value >>> 1) ^ -(value & 1);
+        }
+
+        long fixedLong(int bytes) {
+            long value = 0;
+            for (int i = 0; i < bytes; i++) {
+                value = value << 8 | (data[position++] & 0xff);
+            }
+            return value;
+        }
+
+        int fixed(int bytes) {
+            return (int) fixedLong(bytes);
+        }
+
+        String string() {
+            int length = (int) varint();
+            String value = new String(data, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return value;
+        }
+    }
+}
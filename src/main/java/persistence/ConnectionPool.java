@@ -0,0 +1,152 @@
+package persistence;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+// A fixed-size JDBC connection pool. Connections are opened on demand up to
+// the limit and reused after that; a caller that finds them all in use waits.
+// A connection whose work failed with an SQLException is closed instead of
+// being handed out again, and a new one takes its place.
+public class ConnectionPool implements AutoCloseable {
+    private static final long ACQUIRE_TIMEOUT_SECONDS = 30;
+
+    @FunctionalInterface
+    public interface SqlWork<T> {
+        T run(Connection connection) throws SQLException;
+    }
+
+    private final String url;
+    private final int size;
+    private final BlockingQueue<Connection> idle;
+    private final List<Connection> all = new ArrayList<>();
+    private boolean closed;
+
+    public ConnectionPool(String url, int size) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("Pool size must be positive");
+        }
+        this.url = url;
+        this.size = size;
+        this.idle = new ArrayBlockingQueue<>(size);
+    }
+
+    // Runs work on a pooled connection with auto-commit on, as it was handed out
+    public <T> T execute(SqlWork<T> work) {
+        Connection connection = acquire();
+        boolean broken = false;
+        try {
+            return work.run(connection);
+        } catch (SQLException e) {
+            broken = true;
+            throw new RuntimeException("Database error on " + url + ": " + e.getMessage(), e);
+        } finally {
+            release(connection, !broken);
+        }
+    }
+
+    // Runs work in one transaction, rolled back if it throws
+    public <T> T transaction(SqlWork<T> work) {
+        return execute(connection -> {
+            connection.setAutoCommit(false);
+            try {
+                T result = work.run(connection);
+                connection.commit();
+                return result;
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        });
+    }
+
+    // execute() and transaction() pair these for the caller; they are used
+    // directly only for work that outlives one call, such as a streamed
+    // result set that keeps its connection until the stream is closed
+    Connection acquire() {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(ACQUIRE_TIMEOUT_SECONDS);
+        while (true) {
+            Connection connection = idle.poll();
+            if (connection != null) {
+                return connection;
+            }
+            synchronized (this) {
+                if (closed) {
+                    throw new IllegalStateException("Connection pool for " + url + " is closed");
+                }
+                if (all.size() < size) {
+                    try {
+                        connection = DriverManager.getConnection(url);
+                    } catch (SQLException e) {
+                        throw new RuntimeException("Failed to connect to " + url + ": " + e.getMessage(), e);
+                    }
+                    all.add(connection);
+                    return connection;
+                }
+            }
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                throw new IllegalStateException("No connection to " + url + " free after "
+                        + ACQUIRE_TIMEOUT_SECONDS + " seconds");
+            }
+            // Short waits, so a slot freed by a closed connection is noticed too
+            try {
+                connection = idle.poll(Math.min(remaining, TimeUnit.MILLISECONDS.toNanos(100)), TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted waiting for a connection to " + url, e);
+            }
+            if (connection != null) {
+                return connection;
+            }
+        }
+    }
+
+    void release(Connection connection, boolean healthy) {
+        synchronized (this) {
+            if (healthy && !closed) {
+                idle.offer(connection);
+                return;
+            }
+            all.remove(connection);
+        }
+        try {
+            connection.close();
+        } catch (SQLException ignored) {
+        }
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public int getOpenConnectionCount() {
+        synchronized (this) {
+            return all.size();
+        }
+    }
+
+    @Override
+    public void close() {
+        List<Connection> open;
+        synchronized (this) {
+            closed = true;
+            open = new ArrayList<>(all);
+            all.clear();
+            idle.clear();
+        }
+        for (Connection connection : open) {
+            try {
+                connection.close();
+            } catch (SQLException ignored) {
+            }
+        }
+    }
+}
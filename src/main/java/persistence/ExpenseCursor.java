@@ -0,0 +1,88 @@
+package persistence;
+
+import model.Expense;
+
+import java.time.LocalDate;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+
+// Keyset pagination over a repository in NEWEST_FIRST order. Only the current
+// page is held in memory; earlier page starts are remembered for previous().
+public class ExpenseCursor {
+    private final ExpenseRepository repository;
+    private final int pageSize;
+    private final Deque<Position> history = new ArrayDeque<>();
+    private Position start;
+    private List<Expense> page;
+
+    public ExpenseCursor(ExpenseRepository repository, int pageSize) {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("Page size must be positive");
+        }
+        this.repository = repository;
+        this.pageSize = pageSize;
+        this.start = new Position(Expense.LATEST_DATE, null);
+        this.page = load(start);
+    }
+
+    public List<Expense> current() {
+        return page;
+    }
+
+    public int getPageNumber() {
+        return history.size() + 1;
+    }
+
+    public boolean hasNext() {
+        if (page.size() < pageSize) {
+            return false;
+        }
+        Expense last = page.get(page.size() - 1);
+        return !repository.findPage(last.getDate(), last.getId(), 1).isEmpty();
+    }
+
+    public boolean hasPrevious() {
+        return !history.isEmpty();
+    }
+
+    public List<Expense> next() {
+        if (hasNext()) {
+            Expense last = page.get(page.size() - 1);
+            history.push(start);
+            start = new Position(last.getDate(), last.getId());
+            page = load(start);
+        }
+        return page;
+    }
+
+    public List<Expense> previous() {
+        if (hasPrevious()) {
+            start = history.pop();
+            page = load(start);
+        }
+        return page;
+    }
+
+    // Moves to the page starting with the newest expense on or before the date
+    public List<Expense> jumpTo(LocalDate date) {
+        history.push(start);
+        start = new Position(date, null);
+        page = load(start);
+        return page;
+    }
+
+    private List<Expense> load(Position position) {
+        return repository.findPage(position.date, position.afterId, pageSize);
+    }
+
+    private static final class Position {
+        private final LocalDate date;
+        private final String afterId;
+
+        Position(LocalDate date, String afterId) {
+            this.date = date;
+            this.afterId = afterId;
+        }
+    }
+}
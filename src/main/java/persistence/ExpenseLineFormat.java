@@ -0,0 +1,68 @@
+package persistence;
+
+import model.Expense;
+import model.PaymentMethod;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.zip.CRC32C;
+
+// The text record every file-based repository stores per expense:
+//
+//   id|amount|category|description|date|PAYMENT_METHOD
+//
+// Files start with FRAMED_HEADER and store each record framed as
+// "crc line", where crc is the CRC32C of the line's UTF-8 bytes in 8 hex
+// digits, so a damaged or half-written record is detected on read (see
+// ExpenseRecordReader). Older files hold bare lines.
+public final class ExpenseLineFormat {
+    public static final String FRAMED_HEADER = "#expenses v3 newest-first crc32c";
+    public static final int CHECKSUM_DIGITS = 8;
+
+    private ExpenseLineFormat() {
+    }
+
+    public static Expense parse(String line) {
+        String[] parts = line.split("\\|");
+        if (parts.length != 6) {
+            throw new IllegalArgumentException("Invalid expense format: " + line);
+        }
+
+        try {
+            String id = parts[0];
+            double amount = Double.parseDouble(parts[1]);
+            String category = parts[2];
+            String description = parts[3];
+            LocalDate date = LocalDate.parse(parts[4]);
+            PaymentMethod paymentMethod = PaymentMethod.valueOf(parts[5]);
+
+            return new Expense(id, amount, category, description, date, paymentMethod);
+
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Error parsing expense: " + e.getMessage(), e);
+        }
+    }
+
+    public static String format(Expense expense) {
+        return String.join("|",
+                expense.getId(),
+                String.valueOf(expense.getAmount()),
+                expense.getCategory(),
+                expense.getDescription(),
+                expense.getDate().toString(),
+                expense.getPaymentMethod().name()
+        );
+    }
+
+    public static String frame(Expense expense) {
+        String line = format(expense);
+        byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+        return String.format("%08x", checksum(bytes, 0, bytes.length)) + " " + line;
+    }
+
+    public static long checksum(byte[] bytes, int offset, int length) {
+        CRC32C crc = new CRC32C();
+        crc.update(bytes, offset, length);
+        return crc.getValue();
+    }
+}
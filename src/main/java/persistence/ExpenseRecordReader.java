@@ -0,0 +1,234 @@
+package persistence;
+
+import model.Expense;
+
+import java.io.Closeable;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+// Reads an expense file front to back in one sequential pass over raw bytes,
+// checking every framed record's CRC32C before decoding it. Damaged records
+// are skipped and reported as line/byte ranges instead of failing the load,
+// so every good record is usable as soon as it is read. A half-written last
+// record (no newline and a bad checksum) is a torn tail; with repair on, the
+// file is truncated back to the last complete record at end of input.
+//
+// Files without FRAMED_HEADER (older versions) hold bare lines in
+// legacyCharset, with no checksums to verify.
+public final class ExpenseRecordReader implements Closeable {
+    private static final String NEWEST_FIRST_HEADER = "#expenses v2 newest-first";
+
+    private final Path file;
+    private final Charset legacyCharset;
+    private final boolean repair;
+    private final InputStream in;
+    private final byte[] buffer = new byte[1 << 16];
+    private int pos;
+    private int limit;
+    private long bufferOffset;
+
+    private byte[] line = new byte[256];
+    private int lineLength;
+    private long lineOffset;
+    private long lineNumber;
+    private boolean lineTerminated;
+
+    private boolean framed;
+    private boolean newestFirst;
+    private boolean pendingFirstLine;
+    private long records;
+    private long tornBytes;
+    private final List<String> corruptedRanges = new ArrayList<>();
+    // Open run of bad lines, or -1
+    private long badFromLine = -1;
+    private long badFromOffset;
+    private long badToLine;
+    private long badToOffset;
+
+    public ExpenseRecordReader(Path file, boolean repair) throws IOException {
+        this(file, Charset.defaultCharset(), repair);
+    }
+
+    public ExpenseRecordReader(Path file, Charset legacyCharset, boolean repair) throws IOException {
+        this.file = file;
+        this.legacyCharset = legacyCharset;
+        this.repair = repair;
+        this.in = new FileInputStream(file.toFile());
+        if (readLine()) {
+            String first = new String(line, 0, lineLength, StandardCharsets.UTF_8);
+            framed = first.equals(ExpenseLineFormat.FRAMED_HEADER);
+            newestFirst = framed || first.equals(NEWEST_FIRST_HEADER);
+            // Headerless files start with a record
+            pendingFirstLine = !first.startsWith("#");
+        }
+    }
+
+    // Rows come in NEWEST_FIRST order, so a reader may stop at a date
+    public boolean isNewestFirst() {
+        return newestFirst;
+    }
+
+    public boolean isFramed() {
+        return framed;
+    }
+
+    // The next intact record, or null at end of input
+    public Expense next() throws IOException {
+        while (pendingFirstLine || readLine()) {
+            pendingFirstLine = false;
+            if (lineLength == 0 || line[0] == '#') {
+                continue;
+            }
+            Expense expense = decode();
+            if (expense != null) {
+                closeBadRun();
+                records++;
+                return expense;
+            }
+            if (!lineTerminated) {
+                tornBytes = lineLength;
+                break;
+            }
+            markBad();
+        }
+        finish();
+        return null;
+    }
+
+    public long getRecordCount() {
+        return records;
+    }
+
+    // Bytes consumed so far, through the last line read
+    public long getBytesRead() {
+        return bufferOffset + pos;
+    }
+
+    // Bytes of a half-written record found at the end, 0 if none
+    public long getTornBytes() {
+        return tornBytes;
+    }
+
+    // "lines a-b (bytes x-y)" per run of consecutive damaged records
+    public List<String> getCorruptedRanges() {
+        return corruptedRanges;
+    }
+
+    // Prints a warning per damaged range and for a torn tail
+    public void reportDamage() {
+        for (String range : corruptedRanges) {
+            System.err.println("Warning: Skipped corrupted records in " + file + ": " + range);
+        }
+        if (tornBytes > 0) {
+            System.err.println("Warning: " + (repair ? "Truncated" : "Ignored") + " an incomplete last record ("
+                    + tornBytes + " bytes) in " + file);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    private Expense decode() {
+        try {
+            if (!framed) {
+                return ExpenseLineFormat.parse(new String(line, 0, lineLength, legacyCharset));
+            }
+            int digits = ExpenseLineFormat.CHECKSUM_DIGITS;
+            if (lineLength <= digits || line[digits] != ' ') {
+                return null;
+            }
+            long expected = Long.parseLong(new String(line, 0, digits, StandardCharsets.US_ASCII), 16);
+            int payloadLength = lineLength - digits - 1;
+            if (ExpenseLineFormat.checksum(line, digits + 1, payloadLength) != expected) {
+                return null;
+            }
+            return ExpenseLineFormat.parse(new String(line, digits + 1, payloadLength, StandardCharsets.UTF_8));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private void markBad() {
+        if (badFromLine < 0) {
+            badFromLine = lineNumber;
+            badFromOffset = lineOffset;
+        }
+        badToLine = lineNumber;
+        badToOffset = bufferOffset + pos;
+    }
+
+    private void closeBadRun() {
+        if (badFromLine >= 0) {
+            corruptedRanges.add("lines " + badFromLine + "-" + badToLine
+                    + " (bytes " + badFromOffset + "-" + badToOffset + ")");
+            badFromLine = -1;
+        }
+    }
+
+    private void finish() throws IOException {
+        closeBadRun();
+        if (tornBytes > 0 && repair) {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                channel.truncate(lineOffset);
+                channel.force(true);
+            }
+        }
+    }
+
+    // Next line into line[0, lineLength), without its line terminator
+    private boolean readLine() throws IOException {
+        lineLength = 0;
+        lineOffset = bufferOffset + pos;
+        while (true) {
+            if (pos == limit) {
+                bufferOffset += limit;
+                pos = 0;
+                limit = 0;
+                int read = in.read(buffer);
+                if (read <= 0) {
+                    lineTerminated = false;
+                    if (lineLength == 0) {
+                        return false;
+                    }
+                    lineNumber++;
+                    return true;
+                }
+                limit = read;
+            }
+            int start = pos;
+            while (pos < limit && buffer[pos] != '\n') {
+                pos++;
+            }
+            append(start, pos - start);
+            if (pos < limit) {
+                pos++;
+                lineTerminated = true;
+                lineNumber++;
+                if (lineLength > 0 && line[lineLength - 1] == '\r') {
+                    lineLength--;
+                }
+                return true;
+            }
+        }
+    }
+
+    private void append(int start, int length) {
+        if (lineLength + length > line.length) {
+            byte[] grown = new byte[Math.max(line.length * 2, lineLength + length)];
+            System.arraycopy(line, 0, grown, 0, lineLength);
+            line = grown;
+        }
+        System.arraycopy(buffer, start, line, lineLength, length);
+        lineLength += length;
+    }
+}
@@ -1,12 +1,26 @@
 // src/persistence/ExpenseRepository.java
 package persistence;
 
+import jfr.QueryEvent;
 import model.Expense;
 
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 public interface ExpenseRepository {
+    // The order every listing uses: newest first, ties broken by id
+    Comparator<Expense> NEWEST_FIRST = (e1, e2) -> {
+        int byDate = Integer.compare(e2.getEpochDay(), e1.getEpochDay());
+        return byDate != 0 ? byDate : e1.getId().compareTo(e2.getId());
+    };
+
     void save(Expense expense);
     Optional<Expense> findById(String id);
     List<Expense> findAll();
@@ -14,4 +28,80 @@ public interface ExpenseRepository {
     List<Expense> findByDateRange(String startDate, String endDate);
     boolean delete(String id);
     void update(Expense expense);
-}
\ No newline at end of file
+
+    // Stores many expenses at once; implementations should persist them in one write
+    default void saveAll(Collection<Expense> expenses) {
+        expenses.forEach(this::save);
+    }
+
+    // Up to limit expenses in NEWEST_FIRST order, starting at the given date.
+    // With afterId set, starts right after that expense on that date instead.
+    default List<Expense> findPage(LocalDate fromDate, String afterId, int limit) {
+        return findAll().stream()
+                .sorted(NEWEST_FIRST)
+                .filter(expense -> isAtOrAfter(expense, fromDate, afterId))
+                .limit(limit)
+                .collect(Collectors.toList());
+    }
+
+    // Count and total of the expenses dated in [startDate, endDate]. Layouts
+    // that keep stats per period answer whole periods without reading rows.
+    default ExpenseStats summarize(LocalDate startDate, LocalDate endDate) {
+        QueryEvent event = new QueryEvent();
+        event.begin();
+        ExpenseStats stats;
+        try (Stream<Expense> rows = streamByDateRange(startDate, endDate)) {
+            stats = ExpenseStats.of(rows::iterator);
+        }
+        QueryTrace.finish(event, "summarize", stats.getCount(), stats.getCount());
+        return stats;
+    }
+
+    // The same per category name. SQL-backed repositories answer it with GROUP BY.
+    default Map<String, ExpenseStats> summarizeByCategory(LocalDate startDate, LocalDate endDate) {
+        QueryEvent event = new QueryEvent();
+        event.begin();
+        Map<String, ExpenseStats> byCategory;
+        try (Stream<Expense> rows = streamByDateRange(startDate, endDate)) {
+            byCategory = ExpenseStats.byCategory(rows::iterator);
+        }
+        long covered = 0;
+        for (ExpenseStats stats : byCategory.values()) {
+            covered += stats.getCount();
+        }
+        QueryTrace.finish(event, "summarizeByCategory", covered, covered);
+        return byCategory;
+    }
+
+    // Completes once every stored expense is in memory. Repositories that open
+    // lazily load older data in the background until then.
+    default CompletableFuture<Void> warmUp() {
+        return CompletableFuture.completedFuture(null);
+    }
+
+    // One consistent version of all expenses. Implementations that keep
+    // versions return the current one in O(1); this fallback copies.
+    default ExpenseSnapshot snapshot() {
+        return ExpenseSnapshot.of(findAll());
+    }
+
+    // Bytes written to storage since this repository was opened, for
+    // repositories that can tell; 0 otherwise
+    default long getBytesWritten() {
+        return 0;
+    }
+
+    // Lazily streams expenses in [startDate, endDate], newest first
+    default Stream<Expense> streamByDateRange(LocalDate startDate, LocalDate endDate) {
+        return findByDateRange(startDate.toString(), endDate.toString()).stream()
+                .sorted(NEWEST_FIRST);
+    }
+
+    private static boolean isAtOrAfter(Expense expense, LocalDate fromDate, String afterId) {
+        int byDate = Long.compare(expense.getEpochDay(), fromDate.toEpochDay());
+        if (byDate != 0) {
+            return byDate < 0;
+        }
+        return afterId == null || expense.getId().compareTo(afterId) > 0;
+    }
+}
@@ -0,0 +1,295 @@
+package persistence;
+
+import model.Expense;
+
+import java.time.LocalDate;
+import java.util.AbstractList;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+// One immutable version of a repository's contents, in NEWEST_FIRST order.
+// Writers never change a snapshot: they derive the next version by copying
+// only the O(log n) nodes on the changed paths and sharing everything else,
+// then publish it. A reader that pins a snapshot can iterate it for as long
+// as it likes, without locks or copies, and sees exactly one version.
+//
+// The nodes form a treap: a search tree in NEWEST_FIRST order that is also a
+// max-heap on a priority derived from the expense id, which keeps it balanced
+// in expectation no matter the insertion order.
+public final class ExpenseSnapshot implements Iterable<Expense> {
+    private static final ExpenseSnapshot EMPTY = new ExpenseSnapshot(null, 0);
+
+    private final Node root;
+    private final long version;
+
+    private static final class Node {
+        final Expense value;
+        final int priority;
+        // Only assigned while the node is being built, before it is published
+        Node left;
+        Node right;
+        int size;
+
+        Node(Expense value, Node left, Node right) {
+            this(value, priority(value), left, right);
+        }
+
+        Node(Expense value, int priority, Node left, Node right) {
+            this.value = value;
+            this.priority = priority;
+            this.left = left;
+            this.right = right;
+            this.size = 1 + sizeOf(left) + sizeOf(right);
+        }
+
+        Node withChildren(Node left, Node right) {
+            return new Node(value, priority, left, right);
+        }
+    }
+
+    private ExpenseSnapshot(Node root, long version) {
+        this.root = root;
+        this.version = version;
+    }
+
+    public static ExpenseSnapshot empty() {
+        return EMPTY;
+    }
+
+    // A version-0 snapshot of any collection of distinct expenses
+    public static ExpenseSnapshot of(Collection<Expense> expenses) {
+        List<Expense> sorted = new ArrayList<>(expenses);
+        sorted.sort(ExpenseRepository.NEWEST_FIRST);
+        return new ExpenseSnapshot(build(sorted), 0);
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public int size() {
+        return sizeOf(root);
+    }
+
+    public boolean isEmpty() {
+        return root == null;
+    }
+
+    // The next version: removed expenses taken out, added ones put in. Every
+    // removed expense must be in this snapshot and no added one may be.
+    public ExpenseSnapshot with(Collection<Expense> removed, Collection<Expense> added) {
+        Node next = root;
+        for (Expense expense : removed) {
+            next = remove(next, expense);
+        }
+        if (added.size() == 1) {
+            next = union(next, new Node(added.iterator().next(), null, null));
+        } else if (!added.isEmpty()) {
+            List<Expense> sorted = new ArrayList<>(added);
+            sorted.sort(ExpenseRepository.NEWEST_FIRST);
+            next = union(next, build(sorted));
+        }
+        return new ExpenseSnapshot(next, version + 1);
+    }
+
+    @Override
+    public Iterator<Expense> iterator() {
+        return new InOrder(root, null, true);
+    }
+
+    public Stream<Expense> stream() {
+        return StreamSupport.stream(Spliterators.spliterator(iterator(), size(),
+                Spliterator.ORDERED | Spliterator.NONNULL | Spliterator.IMMUTABLE), false);
+    }
+
+    // Expenses dated in [startDate, endDate], newest first
+    public Stream<Expense> streamByDateRange(LocalDate startDate, LocalDate endDate) {
+        long startDay = startDate.toEpochDay();
+        Iterator<Expense> from = new InOrder(root, new Expense("", 0, "", "", endDate, null), true);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(from,
+                Spliterator.ORDERED | Spliterator.NONNULL | Spliterator.IMMUTABLE), false)
+                .takeWhile(expense -> expense.getEpochDay() >= startDay);
+    }
+
+    // Starts at the given position in NEWEST_FIRST order, or just after it
+    Iterator<Expense> iteratorFrom(Expense position, boolean inclusive) {
+        return new InOrder(root, position, inclusive);
+    }
+
+    // A read-only list view; iterating it walks the tree, get(i) is O(log n)
+    public List<Expense> asList() {
+        return new AbstractList<Expense>() {
+            @Override
+            public Expense get(int index) {
+                if (index < 0 || index >= size()) {
+                    throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size());
+                }
+                Node node = root;
+                while (true) {
+                    int leftSize = sizeOf(node.left);
+                    if (index < leftSize) {
+                        node = node.left;
+                    } else if (index == leftSize) {
+                        return node.value;
+                    } else {
+                        index -= leftSize + 1;
+                        node = node.right;
+                    }
+                }
+            }
+
+            @Override
+            public int size() {
+                return ExpenseSnapshot.this.size();
+            }
+
+            @Override
+            public Iterator<Expense> iterator() {
+                return ExpenseSnapshot.this.iterator();
+            }
+        };
+    }
+
+    private static int sizeOf(Node node) {
+        return node == null ? 0 : node.size;
+    }
+
+    private static int priority(Expense expense) {
+        // murmur3 finalizer, so similar ids still get unrelated priorities
+        int h = expense.getId().hashCode();
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+
+    private static int compare(Expense a, Expense b) {
+        return ExpenseRepository.NEWEST_FIRST.compare(a, b);
+    }
+
+    // Builds a treap from sorted expenses in O(n): the classic stack
+    // construction of a Cartesian tree, then a pass to fill in sizes
+    private static Node build(List<Expense> sorted) {
+        Deque<Node> spine = new ArrayDeque<>();
+        for (Expense expense : sorted) {
+            Node node = new Node(expense, null, null);
+            Node last = null;
+            while (!spine.isEmpty() && spine.peek().priority < node.priority) {
+                last = spine.pop();
+            }
+            node.left = last;
+            if (!spine.isEmpty()) {
+                spine.peek().right = node;
+            }
+            spine.push(node);
+        }
+        Node root = spine.peekLast();
+        fillSizes(root);
+        return root;
+    }
+
+    private static int fillSizes(Node node) {
+        if (node == null) {
+            return 0;
+        }
+        node.size = 1 + fillSizes(node.left) + fillSizes(node.right);
+        return node.size;
+    }
+
+    private static Node remove(Node node, Expense expense) {
+        if (node == null) {
+            return null;
+        }
+        int cmp = compare(expense, node.value);
+        if (cmp < 0) {
+            return node.withChildren(remove(node.left, expense), node.right);
+        } else if (cmp > 0) {
+            return node.withChildren(node.left, remove(node.right, expense));
+        }
+        return merge(node.left, node.right);
+    }
+
+    // All of a sorts before all of b
+    private static Node merge(Node a, Node b) {
+        if (a == null) return b;
+        if (b == null) return a;
+        if (a.priority >= b.priority) {
+            return a.withChildren(a.left, merge(a.right, b));
+        }
+        return b.withChildren(merge(a, b.left), b.right);
+    }
+
+    // Union of two treaps with no expense in common
+    private static Node union(Node a, Node b) {
+        if (a == null) return b;
+        if (b == null) return a;
+        if (a.priority < b.priority) {
+            Node swap = a;
+            a = b;
+            b = swap;
+        }
+        Node[] parts = split(b, a.value);
+        return a.withChildren(union(a.left, parts[0]), union(a.right, parts[1]));
+    }
+
+    // {before key, after key}
+    private static Node[] split(Node node, Expense key) {
+        if (node == null) {
+            return new Node[2];
+        }
+        if (compare(node.value, key) < 0) {
+            Node[] parts = split(node.right, key);
+            parts[0] = node.withChildren(node.left, parts[0]);
+            return parts;
+        }
+        Node[] parts = split(node.left, key);
+        parts[1] = node.withChildren(parts[1], node.right);
+        return parts;
+    }
+
+    private static final class InOrder implements Iterator<Expense> {
+        private final Deque<Node> stack = new ArrayDeque<>();
+
+        // With a position, starts at the first expense not before it (or after it)
+        InOrder(Node root, Expense position, boolean inclusive) {
+            Node node = root;
+            while (node != null) {
+                int cmp = position == null ? 1 : compare(node.value, position);
+                if (cmp > 0 || (cmp == 0 && inclusive)) {
+                    stack.push(node);
+                    node = node.left;
+                } else {
+                    node = node.right;
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !stack.isEmpty();
+        }
+
+        @Override
+        public Expense next() {
+            if (stack.isEmpty()) {
+                throw new NoSuchElementException();
+            }
+            Node node = stack.pop();
+            for (Node child = node.right; child != null; child = child.left) {
+                stack.push(child);
+            }
+            return node.value;
+        }
+    }
+}
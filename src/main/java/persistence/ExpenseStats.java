@@ -0,0 +1,102 @@
+package persistence;
+
+import model.CategoryDictionary;
+import model.Expense;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+// Count, total and date bounds of a set of expenses. Small enough to keep per
+// stored period, so totals over whole periods never need the rows themselves.
+public final class ExpenseStats {
+    public static final ExpenseStats EMPTY = new ExpenseStats(0, 0, Long.MAX_VALUE, Long.MIN_VALUE);
+
+    private final long count;
+    private final long sumCents;
+    private final long minEpochDay;
+    private final long maxEpochDay;
+
+    public ExpenseStats(long count, long sumCents, long minEpochDay, long maxEpochDay) {
+        this.count = count;
+        this.sumCents = sumCents;
+        this.minEpochDay = minEpochDay;
+        this.maxEpochDay = maxEpochDay;
+    }
+
+    public static ExpenseStats of(Iterable<Expense> expenses) {
+        long count = 0;
+        long sum = 0;
+        long min = Long.MAX_VALUE;
+        long max = Long.MIN_VALUE;
+        for (Expense expense : expenses) {
+            count++;
+            sum += expense.getAmountCents();
+            min = Math.min(min, expense.getEpochDay());
+            max = Math.max(max, expense.getEpochDay());
+        }
+        return count == 0 ? EMPTY : new ExpenseStats(count, sum, min, max);
+    }
+
+    // Stats per category name; rows are grouped on dictionary codes, so no
+    // string is hashed or compared per row
+    public static Map<String, ExpenseStats> byCategory(Iterable<Expense> expenses) {
+        CategoryDictionary dictionary = CategoryDictionary.shared();
+        int size = dictionary.size();
+        long[] counts = new long[size];
+        long[] sums = new long[size];
+        long[] mins = new long[size];
+        long[] maxs = new long[size];
+        for (Expense expense : expenses) {
+            int code = expense.getCategoryCode();
+            if (code >= counts.length) {
+                int grown = Math.max(code + 1, dictionary.size());
+                counts = Arrays.copyOf(counts, grown);
+                sums = Arrays.copyOf(sums, grown);
+                mins = Arrays.copyOf(mins, grown);
+                maxs = Arrays.copyOf(maxs, grown);
+            }
+            long day = expense.getEpochDay();
+            if (counts[code]++ == 0) {
+                mins[code] = day;
+                maxs[code] = day;
+            } else {
+                mins[code] = Math.min(mins[code], day);
+                maxs[code] = Math.max(maxs[code], day);
+            }
+            sums[code] += expense.getAmountCents();
+        }
+
+        Map<String, ExpenseStats> stats = new HashMap<>();
+        for (int code = 0; code < counts.length; code++) {
+            if (counts[code] > 0) {
+                stats.put(dictionary.decode(code), new ExpenseStats(counts[code], sums[code], mins[code], maxs[code]));
+            }
+        }
+        return stats;
+    }
+
+    public ExpenseStats plus(ExpenseStats other) {
+        if (other.count == 0) return this;
+        if (count == 0) return other;
+        return new ExpenseStats(count + other.count, sumCents + other.sumCents,
+                Math.min(minEpochDay, other.minEpochDay), Math.max(maxEpochDay, other.maxEpochDay));
+    }
+
+    public long getCount() { return count; }
+    public long getSumCents() { return sumCents; }
+    public double getSum() { return sumCents / 100.0; }
+    public long getMinEpochDay() { return minEpochDay; }
+    public long getMaxEpochDay() { return maxEpochDay; }
+
+    // Both null when empty
+    public LocalDate getMinDate() { return count == 0 ? null : LocalDate.ofEpochDay(minEpochDay); }
+    public LocalDate getMaxDate() { return count == 0 ? null : LocalDate.ofEpochDay(maxEpochDay); }
+
+    @Override
+    public String toString() {
+        return String.format("ExpenseStats{count=%d, sum=%.2f, from=%s, to=%s}",
+                count, getSum(), getMinDate(), getMaxDate());
+    }
+}
@@ -1,29 +1,90 @@
 package persistence;
 
+import jfr.QueryEvent;
+import jfr.RepositoryLoadEvent;
+import jfr.RepositorySaveEvent;
+import model.CategoryDictionary;
 import model.Expense;
-import model.PaymentMethod;
 
 import java.io.*;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.time.LocalDate;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 public class FileExpenseRepository implements ExpenseRepository {
     private final String dataFile;
+    // Id lookup; always holds exactly the expenses of the current snapshot
     private final Map<String, Expense> expenses;
+    // The latest published version, in NEWEST_FIRST order. Readers take it
+    // with one volatile read and never lock.
+    private volatile ExpenseSnapshot current = ExpenseSnapshot.empty();
+    // Writers derive and publish versions one at a time
+    private final Object writeLock = new Object();
+    private final Object fileLock = new Object();
+    private long savedVersion; // guarded by fileLock
+    private final AtomicLong bytesWritten = new AtomicLong();
+    // Completes once every stored expense is in memory
+    private final CompletableFuture<Void> history = new CompletableFuture<>();
+    // Every stored expense dated on or after this day is in memory
+    private volatile long loadedFromEpochDay = Long.MIN_VALUE;
+    private final long openMillis;
 
     public FileExpenseRepository(String dataDirectory) {
+        this(dataDirectory, -1);
+    }
+
+    // Returns once the last recentDays days of expenses are in memory and
+    // loads the older history on a background thread. Queries that only need
+    // the recent window are answered right away; anything that needs older
+    // rows, and every write, waits for the history (see warmUp()).
+    public static FileExpenseRepository openLazily(String dataDirectory, int recentDays) {
+        if (recentDays < 0) {
+            throw new IllegalArgumentException("Recent window cannot be negative");
+        }
+        return new FileExpenseRepository(dataDirectory, recentDays);
+    }
+
+    private FileExpenseRepository(String dataDirectory, int recentDays) {
+        // A directory split into monthly segments keeps its expenses there;
+        // writing an expenses.txt beside them would fork the data
+        if (SegmentedExpenseRepository.isSegmented(dataDirectory)) {
+            throw new IllegalStateException("Data directory " + dataDirectory + " uses monthly segments; open it with -D"
+                    + RepositoryLayout.STORAGE_PROPERTY + "=" + RepositoryLayout.SEGMENTED);
+        }
         // Use .txt format instead of .dat for better compatibility
         this.dataFile = dataDirectory + File.separator + "expenses.txt";
         this.expenses = new ConcurrentHashMap<>();
-        loadData();
+        long start = System.nanoTime();
+        loadData(recentDays);
+        this.openMillis = (System.nanoTime() - start) / 1_000_000;
+    }
+
+    // Time the constructor took, i.e. until the repository could answer queries
+    public long getOpenMillis() {
+        return openMillis;
+    }
+
+    @Override
+    public CompletableFuture<Void> warmUp() {
+        return history.copy();
     }
 
-    private void loadData() {
+    @Override
+    public long getBytesWritten() {
+        return bytesWritten.get();
+    }
+
+    private void loadData(int recentDays) {
         File file = new File(dataFile);
 
         // Create directory if it doesn't exist
@@ -32,80 +93,156 @@ public class FileExpenseRepository implements ExpenseRepository {
             boolean dirsCreated = parentDir.mkdirs();
             if (!dirsCreated) {
                 System.err.println("Warning: Could not create data directory: " + parentDir.getAbsolutePath());
+                history.complete(null);
                 return;
             }
         }
 
         if (!file.exists()) {
             System.out.println("Data file doesn't exist yet. It will be created on first save.");
+            history.complete(null);
             return;
         }
 
-        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
-            String line;
+        RepositoryLoadEvent event = new RepositoryLoadEvent();
+        event.begin();
+        ExpenseRecordReader reader = null;
+        try {
+            // Checks every record as it goes: damaged ones are reported and
+            // skipped, and a torn last record is cut off the file
+            reader = new ExpenseRecordReader(file.toPath(), true);
+            // Only a newest-first file can stop at the end of the recent window
+            long cutoff = recentDays >= 0 && reader.isNewestFirst()
+                    ? LocalDate.now().minusDays(recentDays).toEpochDay() : Long.MIN_VALUE;
             int loadedCount = 0;
+            // A repeated id keeps its last line
+            Map<String, Expense> loaded = new LinkedHashMap<>();
+            Expense older = null;
 
-            while ((line = reader.readLine()) != null) {
-                if (line.trim().isEmpty()) continue;
-
-                try {
-                    Expense expense = parseExpense(line);
-                    if (expense != null) {
-                        expenses.put(expense.getId(), expense);
-                        loadedCount++;
-                    }
-                } catch (Exception e) {
-                    System.err.println("Failed to parse expense line: " + line + " - " + e.getMessage());
+            Expense expense;
+            while ((expense = reader.next()) != null) {
+                if (expense.getEpochDay() < cutoff) {
+                    older = expense;
+                    break;
                 }
+                loaded.put(expense.getId(), expense);
+                loadedCount++;
             }
 
-            System.out.println("Loaded " + loadedCount + " expenses from " + dataFile);
+            expenses.putAll(loaded);
+            current = ExpenseSnapshot.of(loaded.values());
+            event.end();
+            if (event.shouldCommit()) {
+                event.source = dataFile;
+                event.phase = older == null ? "full" : "recent";
+                event.rows = loadedCount;
+                event.bytes = reader.getBytesRead();
+                event.commit();
+            }
+            if (older == null) {
+                reader.reportDamage();
+                System.out.println("Loaded " + loadedCount + " expenses from " + dataFile);
+                history.complete(null);
+            } else {
+                loadedFromEpochDay = cutoff;
+                System.out.println("Loaded " + loadedCount + " recent expenses from " + dataFile
+                        + ", loading older history in the background");
+                loadHistory(reader, older);
+                reader = null;
+            }
 
         } catch (IOException e) {
             System.err.println("Warning: Failed to load expense data from " + dataFile + ": " + e.getMessage());
+            history.complete(null);
+        } finally {
+            if (reader != null) {
+                try {
+                    reader.close();
+                } catch (IOException ignored) {
+                }
+            }
         }
     }
 
-    private Expense parseExpense(String line) {
-        try {
-            String[] parts = line.split("\\|");
-            if (parts.length != 6) {
-                System.err.println("Invalid expense format: " + line);
-                return null;
+    // Reads the rest of a newest-first file and publishes it as one version
+    private void loadHistory(ExpenseRecordReader reader, Expense first) {
+        Thread loader = new Thread(() -> {
+            RepositoryLoadEvent event = new RepositoryLoadEvent();
+            event.begin();
+            long bytesBefore = reader.getBytesRead();
+            try (ExpenseRecordReader in = reader) {
+                List<Expense> older = new ArrayList<>();
+                older.add(first);
+                Expense expense;
+                while ((expense = in.next()) != null) {
+                    older.add(expense);
+                }
+                in.reportDamage();
+                // Writers wait for the history, so nothing else changes the state meanwhile
+                synchronized (writeLock) {
+                    List<Expense> added = new ArrayList<>(older.size());
+                    for (Expense row : older) {
+                        if (expenses.putIfAbsent(row.getId(), row) == null) {
+                            added.add(row);
+                        }
+                    }
+                    current = current.with(Collections.emptyList(), added);
+                    loadedFromEpochDay = Long.MIN_VALUE;
+                }
+                event.end();
+                if (event.shouldCommit()) {
+                    event.source = dataFile;
+                    event.phase = "history";
+                    event.rows = older.size();
+                    event.bytes = in.getBytesRead() - bytesBefore;
+                    event.commit();
+                }
+                System.out.println("Loaded " + older.size() + " older expenses from " + dataFile);
+                history.complete(null);
+            } catch (IOException | RuntimeException e) {
+                System.err.println("Warning: Failed to load expense history from " + dataFile + ": " + e.getMessage());
+                history.completeExceptionally(e);
             }
+        }, "expense-history-loader");
+        loader.setDaemon(true);
+        loader.start();
+    }
 
-            String id = parts[0];
-            double amount = Double.parseDouble(parts[1]);
-            String category = parts[2];
-            String description = parts[3];
-            LocalDate date = LocalDate.parse(parts[4]);
-            PaymentMethod paymentMethod = PaymentMethod.valueOf(parts[5]);
-
-            return new Expense(id, amount, category, description, date, paymentMethod);
-
-        } catch (Exception e) {
-            System.err.println("Error parsing expense: " + e.getMessage());
-            return null;
+    // Writes must not replace the file before the whole history is in memory
+    private void awaitHistory() {
+        try {
+            history.join();
+        } catch (CompletionException e) {
+            throw new RuntimeException("Expense history from " + dataFile + " failed to load: "
+                    + e.getCause().getMessage(), e.getCause());
         }
     }
 
-    private String formatExpense(Expense expense) {
-        return String.join("|",
-                expense.getId(),
-                String.valueOf(expense.getAmount()),
-                expense.getCategory(),
-                expense.getDescription(),
-                expense.getDate().toString(),
-                expense.getPaymentMethod().name()
-        );
+    // Writers publish a new snapshot first, then call this (through persist())
+    // with its version.
+    // Only one thread writes the file at a time, always from one whole
+    // snapshot; callers whose version a finished write already covered return
+    // at once. Each write goes to a temp file that is synced and then renamed
+    // over the data file, so the file on disk is always complete.
+    private void saveData(long target) {
+        synchronized (fileLock) {
+            if (savedVersion >= target) {
+                return;
+            }
+            ExpenseSnapshot snapshot = current;
+            writeFile(snapshot);
+            savedVersion = snapshot.getVersion();
+        }
     }
 
-    private void saveData() {
+    private void writeFile(ExpenseSnapshot snapshot) {
+        RepositorySaveEvent event = new RepositorySaveEvent();
+        event.begin();
         try {
-            File file = new File(dataFile);
+            Path file = Paths.get(dataFile);
 
             // Ensure directory exists
-            File parentDir = file.getParentFile();
+            File parentDir = file.toFile().getParentFile();
             if (!parentDir.exists()) {
                 boolean dirsCreated = parentDir.mkdirs();
                 if (!dirsCreated) {
@@ -113,12 +250,38 @@ public class FileExpenseRepository implements ExpenseRepository {
                 }
             }
 
-            // Write data as text
-            try (PrintWriter writer = new PrintWriter(new FileWriter(file))) {
-                for (Expense expense : expenses.values()) {
-                    writer.println(formatExpense(expense));
+            // A unique name, so two processes sharing the directory never write one temp file
+            Path temp = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+            try {
+                int count = 0;
+                try (FileOutputStream stream = new FileOutputStream(temp.toFile());
+                     PrintWriter writer = new PrintWriter(new BufferedWriter(
+                             new OutputStreamWriter(stream, StandardCharsets.UTF_8)))) {
+                    // Rows follow in NEWEST_FIRST order, each with its checksum
+                    writer.println(ExpenseLineFormat.FRAMED_HEADER);
+                    for (Expense expense : snapshot) {
+                        writer.println(ExpenseLineFormat.frame(expense));
+                        count++;
+                    }
+                    writer.flush();
+                    if (writer.checkError()) {
+                        throw new IOException("Write to " + temp + " failed");
+                    }
+                    stream.getFD().sync();
+                }
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                long size = Files.size(file);
+                bytesWritten.addAndGet(size);
+                event.end();
+                if (event.shouldCommit()) {
+                    event.target = dataFile;
+                    event.rows = count;
+                    event.bytes = size;
+                    event.commit();
                 }
-                System.out.println("Saved " + expenses.size() + " expenses to " + dataFile);
+                System.out.println("Saved " + count + " expenses to " + dataFile);
+            } finally {
+                Files.deleteIfExists(temp);
             }
 
         } catch (IOException e) {
@@ -126,58 +289,211 @@ public class FileExpenseRepository implements ExpenseRepository {
         }
     }
 
+    // Applies one change to the map and publishes the next snapshot; returns its version
+    private long publish(Collection<Expense> removed, Collection<Expense> added) {
+        synchronized (writeLock) {
+            for (Expense expense : removed) {
+                expenses.remove(expense.getId());
+            }
+            for (Expense expense : added) {
+                expenses.put(expense.getId(), expense);
+            }
+            current = current.with(removed, added);
+            return current.getVersion();
+        }
+    }
+
+    // Writes the version a change was published in. If the write fails the
+    // change is taken back out of memory before the exception reaches the
+    // caller, so the next unrelated save does not persist it. Readers may
+    // have seen it in the meantime. Rows a later writer has already replaced
+    // are left to that writer.
+    private void persist(long version, Collection<Expense> removed, Collection<Expense> added) {
+        // Held through the rollback, so no other write can persist the change first
+        synchronized (fileLock) {
+            try {
+                saveData(version);
+            } catch (RuntimeException e) {
+                rollBack(removed, added);
+                throw e;
+            }
+        }
+    }
+
+    private void rollBack(Collection<Expense> removed, Collection<Expense> added) {
+        synchronized (writeLock) {
+            List<Expense> undone = new ArrayList<>();
+            for (Expense expense : added) {
+                if (expenses.get(expense.getId()) == expense) {
+                    undone.add(expense);
+                }
+            }
+            List<Expense> restored = new ArrayList<>();
+            for (Expense expense : removed) {
+                Expense now = expenses.get(expense.getId());
+                if (now == null || undone.contains(now)) {
+                    restored.add(expense);
+                }
+            }
+            publish(undone, restored);
+        }
+    }
+
     @Override
     public void save(Expense expense) {
-        expenses.put(expense.getId(), expense);
-        saveData();
+        awaitHistory();
+        List<Expense> removed;
+        long version;
+        synchronized (writeLock) {
+            Expense previous = expenses.get(expense.getId());
+            removed = previous != null ? List.of(previous) : List.of();
+            version = publish(removed, List.of(expense));
+        }
+        persist(version, removed, List.of(expense));
+    }
+
+    @Override
+    public void saveAll(Collection<Expense> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        awaitHistory();
+        // Later entries for the same id win, as with repeated save()
+        Map<String, Expense> added = new LinkedHashMap<>();
+        for (Expense expense : batch) {
+            added.put(expense.getId(), expense);
+        }
+        List<Expense> replaced = new ArrayList<>();
+        long version;
+        synchronized (writeLock) {
+            for (String id : added.keySet()) {
+                Expense previous = expenses.get(id);
+                if (previous != null) {
+                    replaced.add(previous);
+                }
+            }
+            version = publish(replaced, added.values());
+        }
+        persist(version, replaced, added.values());
+    }
+
+    @Override
+    public ExpenseSnapshot snapshot() {
+        awaitHistory();
+        return current;
     }
 
     @Override
     public Optional<Expense> findById(String id) {
-        return Optional.ofNullable(expenses.get(id));
+        Expense expense = expenses.get(id);
+        if (expense == null && !history.isDone()) {
+            awaitHistory();
+            expense = expenses.get(id);
+        }
+        return Optional.ofNullable(expense);
     }
 
     @Override
     public List<Expense> findAll() {
         // Return sorted by date (newest first)
-        return expenses.values().stream()
-                .sorted((e1, e2) -> e2.getDate().compareTo(e1.getDate()))
-                .collect(Collectors.toList());
+        QueryEvent event = new QueryEvent();
+        event.begin();
+        awaitHistory();
+        List<Expense> all = new ArrayList<>(current.asList());
+        QueryTrace.finish(event, "findAll", all.size(), all.size());
+        return all;
     }
 
     @Override
     public List<Expense> findByCategory(String category) {
-        return expenses.values().stream()
-                .filter(expense -> expense.getCategory().equalsIgnoreCase(category))
-                .sorted((e1, e2) -> e2.getDate().compareTo(e1.getDate()))
+        BitSet codes = CategoryDictionary.shared().codesIgnoringCase(category);
+        QueryEvent event = new QueryEvent();
+        event.begin();
+        awaitHistory();
+        ExpenseSnapshot snapshot = current;
+        List<Expense> rows = snapshot.stream()
+                .filter(expense -> codes.get(expense.getCategoryCode()))
                 .collect(Collectors.toList());
+        QueryTrace.finish(event, "findByCategory", snapshot.size(), rows.size());
+        return rows;
     }
 
     @Override
     public List<Expense> findByDateRange(String startDate, String endDate) {
-        LocalDate start = LocalDate.parse(startDate);
-        LocalDate end = LocalDate.parse(endDate);
-
-        return expenses.values().stream()
-                .filter(expense -> !expense.getDate().isBefore(start) && !expense.getDate().isAfter(end))
-                .sorted((e1, e2) -> e2.getDate().compareTo(e1.getDate()))
+        QueryEvent event = new QueryEvent();
+        event.begin();
+        // Snapshots are in date order, so only rows in the range are scanned
+        List<Expense> rows = streamByDateRange(LocalDate.parse(startDate), LocalDate.parse(endDate))
                 .collect(Collectors.toList());
+        QueryTrace.finish(event, "findByDateRange", rows.size(), rows.size());
+        return rows;
+    }
+
+    @Override
+    public List<Expense> findPage(LocalDate fromDate, String afterId, int limit) {
+        QueryEvent event = new QueryEvent();
+        event.begin();
+        List<Expense> page = pageOf(current, fromDate, afterId, limit);
+        // The recent window is a prefix of the full order, so a full page from it is final
+        if (page.size() < limit && !history.isDone()) {
+            awaitHistory();
+            page = pageOf(current, fromDate, afterId, limit);
+        }
+        QueryTrace.finish(event, "findPage", page.size(), page.size());
+        return page;
+    }
+
+    private static List<Expense> pageOf(ExpenseSnapshot snapshot, LocalDate fromDate, String afterId, int limit) {
+        Iterator<Expense> rows = snapshot.iteratorFrom(probe(fromDate, afterId), afterId == null);
+        List<Expense> page = new ArrayList<>(Math.min(limit, 1024));
+        while (page.size() < limit && rows.hasNext()) {
+            page.add(rows.next());
+        }
+        return page;
+    }
+
+    @Override
+    public Stream<Expense> streamByDateRange(LocalDate startDate, LocalDate endDate) {
+        if (startDate.toEpochDay() < loadedFromEpochDay) {
+            awaitHistory();
+        }
+        return current.streamByDateRange(startDate, endDate);
+    }
+
+    // Sorts before every real expense on that date (ids are never empty),
+    // or exactly at the expense with the given id
+    private static Expense probe(LocalDate date, String id) {
+        return new Expense(id != null ? id : "", 0, "", "", date, null);
     }
 
     @Override
     public boolean delete(String id) {
-        boolean removed = expenses.remove(id) != null;
-        if (removed) {
-            saveData();
+        awaitHistory();
+        Expense previous;
+        long version;
+        synchronized (writeLock) {
+            previous = expenses.get(id);
+            if (previous == null) {
+                return false;
+            }
+            version = publish(List.of(previous), List.of());
         }
-        return removed;
+        persist(version, List.of(previous), List.of());
+        return true;
     }
 
     @Override
     public void update(Expense expense) {
-        if (expenses.containsKey(expense.getId())) {
-            expenses.put(expense.getId(), expense);
-            saveData();
+        awaitHistory();
+        Expense previous;
+        long version;
+        synchronized (writeLock) {
+            previous = expenses.get(expense.getId());
+            if (previous == null) {
+                return;
+            }
+            version = publish(List.of(previous), List.of(expense));
         }
+        persist(version, List.of(previous), List.of(expense));
     }
 }
\ No newline at end of file
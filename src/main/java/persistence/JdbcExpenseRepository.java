@@ -0,0 +1,385 @@
+package persistence;
+
+import jfr.QueryEvent;
+import jfr.RepositorySaveEvent;
+import model.Expense;
+import model.PaymentMethod;
+
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+// Stores expenses in an embedded SQL database: by default an H2 file
+// (<dataDirectory>/expenses.mv.db), or any JDBC URL. Lookups, date ranges,
+// pages and summaries all run in the database on indexes over (date, id)
+// and (category, date); summaries are GROUP BY queries, so only the result
+// rows come back into the JVM. Every write is one statement or one batched
+// transaction, which the database serializes, so no locking happens here.
+//
+// Only standard SQL is used (upserts are an UPDATE batch followed by an
+// INSERT batch for the rows it missed), so another embedded engine can be
+// plugged in by URL.
+public class JdbcExpenseRepository implements ExpenseRepository, AutoCloseable {
+    static final int DEFAULT_POOL_SIZE = 8;
+    // Rows a driver that supports it fetches per round trip while streaming
+    private static final int STREAM_FETCH_SIZE = 500;
+    private static final String COLUMNS = "id, amount_cents, category, description, epoch_day, payment_method";
+    private static final String SELECT = "SELECT " + COLUMNS + " FROM expenses";
+    private static final String ORDER = " ORDER BY epoch_day DESC, id";
+    private static final String INSERT = "INSERT INTO expenses (" + COLUMNS + ", category_key) VALUES (?, ?, ?, ?, ?, ?, ?)";
+    private static final String UPDATE = "UPDATE expenses SET amount_cents = ?, category = ?, description = ?,"
+            + " epoch_day = ?, payment_method = ?, category_key = ? WHERE id = ?";
+    private static final String STATS = "SELECT COUNT(*), COALESCE(SUM(amount_cents), 0), MIN(epoch_day), MAX(epoch_day)";
+
+    private final ConnectionPool pool;
+
+    public JdbcExpenseRepository(String dataDirectory) {
+        this("jdbc:h2:file:" + Paths.get(dataDirectory, "expenses").toAbsolutePath(), DEFAULT_POOL_SIZE);
+    }
+
+    public JdbcExpenseRepository(String jdbcUrl, int poolSize) {
+        this.pool = new ConnectionPool(jdbcUrl, poolSize);
+        createSchema();
+    }
+
+    private void createSchema() {
+        pool.execute(connection -> {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("CREATE TABLE IF NOT EXISTS expenses ("
+                        + "id VARCHAR(64) PRIMARY KEY, "
+                        + "amount_cents BIGINT NOT NULL, "
+                        + "category VARCHAR(255) NOT NULL, "
+                        // Lower-cased copy, so category lookups ignoring case can use an index
+                        + "category_key VARCHAR(255) NOT NULL, "
+                        + "description VARCHAR(100000) NOT NULL, "
+                        + "epoch_day INT NOT NULL, "
+                        + "payment_method VARCHAR(32) NOT NULL)");
+                statement.execute("CREATE INDEX IF NOT EXISTS expenses_by_date ON expenses (epoch_day DESC, id)");
+                statement.execute("CREATE INDEX IF NOT EXISTS expenses_by_category ON expenses (category_key, epoch_day)");
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public void save(Expense expense) {
+        saveAll(List.of(expense));
+    }
+
+    // Updates every row that exists in one batch, then inserts the rest in
+    // another, all in one transaction
+    @Override
+    public void saveAll(Collection<Expense> expenses) {
+        if (expenses.isEmpty()) {
+            return;
+        }
+        // Later entries for the same id win, as with repeated save()
+        Map<String, Expense> latest = new LinkedHashMap<>();
+        for (Expense expense : expenses) {
+            latest.put(expense.getId(), expense);
+        }
+        List<Expense> rows = new ArrayList<>(latest.values());
+
+        RepositorySaveEvent event = new RepositorySaveEvent();
+        event.begin();
+        pool.transaction(connection -> {
+            int[] updated;
+            try (PreparedStatement update = connection.prepareStatement(UPDATE)) {
+                for (Expense expense : rows) {
+                    bindUpdate(update, expense);
+                    update.addBatch();
+                }
+                updated = update.executeBatch();
+            }
+            try (PreparedStatement insert = connection.prepareStatement(INSERT)) {
+                boolean any = false;
+                for (int i = 0; i < rows.size(); i++) {
+                    if (updated[i] == 0) {
+                        bindInsert(insert, rows.get(i));
+                        insert.addBatch();
+                        any = true;
+                    }
+                }
+                if (any) {
+                    insert.executeBatch();
+                }
+            }
+            return null;
+        });
+        event.end();
+        if (event.shouldCommit()) {
+            event.target = pool.getUrl();
+            event.rows = rows.size();
+            event.commit();
+        }
+    }
+
+    @Override
+    public void update(Expense expense) {
+        pool.execute(connection -> {
+            try (PreparedStatement update = connection.prepareStatement(UPDATE)) {
+                bindUpdate(update, expense);
+                return update.executeUpdate();
+            }
+        });
+    }
+
+    @Override
+    public boolean delete(String id) {
+        return pool.execute(connection -> {
+            try (PreparedStatement delete = connection.prepareStatement("DELETE FROM expenses WHERE id = ?")) {
+                delete.setString(1, id);
+                return delete.executeUpdate() > 0;
+            }
+        });
+    }
+
+    @Override
+    public Optional<Expense> findById(String id) {
+        List<Expense> rows = query("findById", SELECT + " WHERE id = ?", id);
+        return rows.isEmpty() ? Optional.empty() : Optional.of(rows.get(0));
+    }
+
+    @Override
+    public List<Expense> findAll() {
+        return query("findAll", SELECT + ORDER);
+    }
+
+    @Override
+    public List<Expense> findByCategory(String category) {
+        return query("findByCategory", SELECT + " WHERE category_key = ?" + ORDER, categoryKey(category));
+    }
+
+    @Override
+    public List<Expense> findByDateRange(String startDate, String endDate) {
+        return query("findByDateRange", SELECT + " WHERE epoch_day BETWEEN ? AND ?" + ORDER,
+                LocalDate.parse(startDate).toEpochDay(), LocalDate.parse(endDate).toEpochDay());
+    }
+
+    // Rows are read from the open result set as the stream is consumed. Its
+    // statement and pooled connection are held until the stream is closed,
+    // so callers must close it (try-with-resources).
+    @Override
+    public Stream<Expense> streamByDateRange(LocalDate startDate, LocalDate endDate) {
+        QueryEvent event = new QueryEvent();
+        event.begin();
+        Connection connection = pool.acquire();
+        PreparedStatement select = null;
+        try {
+            // Already in NEWEST_FIRST order
+            select = connection.prepareStatement(SELECT + " WHERE epoch_day BETWEEN ? AND ?" + ORDER);
+            select.setFetchSize(STREAM_FETCH_SIZE);
+            select.setLong(1, startDate.toEpochDay());
+            select.setLong(2, endDate.toEpochDay());
+            RowCursor cursor = new RowCursor(connection, select, select.executeQuery());
+            return StreamSupport.stream(cursor, false).onClose(() -> {
+                cursor.close();
+                QueryTrace.finish(event, "streamByDateRange", cursor.read, cursor.read);
+            });
+        } catch (SQLException e) {
+            if (select != null) {
+                try {
+                    select.close();
+                } catch (SQLException ignored) {
+                }
+            }
+            pool.release(connection, false);
+            throw databaseError(e);
+        }
+    }
+
+    @Override
+    public List<Expense> findPage(LocalDate fromDate, String afterId, int limit) {
+        long day = fromDate.toEpochDay();
+        if (afterId == null) {
+            return query("findPage", SELECT + " WHERE epoch_day <= ?" + ORDER + " LIMIT ?", day, limit);
+        }
+        return query("findPage", SELECT + " WHERE epoch_day < ? OR (epoch_day = ? AND id > ?)" + ORDER + " LIMIT ?",
+                day, day, afterId, limit);
+    }
+
+    @Override
+    public ExpenseStats summarize(LocalDate startDate, LocalDate endDate) {
+        QueryEvent event = new QueryEvent();
+        event.begin();
+        ExpenseStats stats = pool.execute(connection -> {
+            try (PreparedStatement select = connection.prepareStatement(
+                    STATS + " FROM expenses WHERE epoch_day BETWEEN ? AND ?")) {
+                select.setLong(1, startDate.toEpochDay());
+                select.setLong(2, endDate.toEpochDay());
+                try (ResultSet rows = select.executeQuery()) {
+                    rows.next();
+                    return stats(rows, 1);
+                }
+            }
+        });
+        QueryTrace.finish(event, "summarize", stats.getCount(), stats.getCount());
+        return stats;
+    }
+
+    @Override
+    public Map<String, ExpenseStats> summarizeByCategory(LocalDate startDate, LocalDate endDate) {
+        QueryEvent event = new QueryEvent();
+        event.begin();
+        Map<String, ExpenseStats> result = pool.execute(connection -> {
+            try (PreparedStatement select = connection.prepareStatement(
+                    "SELECT category, " + STATS.substring("SELECT ".length())
+                            + " FROM expenses WHERE epoch_day BETWEEN ? AND ? GROUP BY category")) {
+                select.setLong(1, startDate.toEpochDay());
+                select.setLong(2, endDate.toEpochDay());
+                Map<String, ExpenseStats> byCategory = new HashMap<>();
+                try (ResultSet rows = select.executeQuery()) {
+                    while (rows.next()) {
+                        byCategory.put(rows.getString(1), stats(rows, 2));
+                    }
+                }
+                return byCategory;
+            }
+        });
+        long covered = 0;
+        for (ExpenseStats stats : result.values()) {
+            covered += stats.getCount();
+        }
+        QueryTrace.finish(event, "summarizeByCategory", covered, covered);
+        return result;
+    }
+
+    @Override
+    public void close() {
+        pool.close();
+    }
+
+    // The database does the scanning here, so the event counts the rows read back for both
+    private List<Expense> query(String type, String sql, Object... parameters) {
+        QueryEvent event = new QueryEvent();
+        event.begin();
+        List<Expense> result = pool.execute(connection -> {
+            try (PreparedStatement select = connection.prepareStatement(sql)) {
+                for (int i = 0; i < parameters.length; i++) {
+                    select.setObject(i + 1, parameters[i]);
+                }
+                List<Expense> expenses = new ArrayList<>();
+                try (ResultSet rows = select.executeQuery()) {
+                    while (rows.next()) {
+                        expenses.add(expense(rows));
+                    }
+                }
+                return expenses;
+            }
+        });
+        QueryTrace.finish(event, type, result.size(), result.size());
+        return result;
+    }
+
+    private static Expense expense(ResultSet rows) throws SQLException {
+        return new Expense(rows.getString(1), rows.getLong(2) / 100.0, rows.getString(3),
+                rows.getString(4), LocalDate.ofEpochDay(rows.getInt(5)),
+                PaymentMethod.valueOf(rows.getString(6)));
+    }
+
+    private RuntimeException databaseError(SQLException e) {
+        return new RuntimeException("Database error on " + pool.getUrl() + ": " + e.getMessage(), e);
+    }
+
+    private static ExpenseStats stats(ResultSet rows, int firstColumn) throws SQLException {
+        long count = rows.getLong(firstColumn);
+        if (count == 0) {
+            return ExpenseStats.EMPTY;
+        }
+        return new ExpenseStats(count, rows.getLong(firstColumn + 1),
+                rows.getLong(firstColumn + 2), rows.getLong(firstColumn + 3));
+    }
+
+    private static void bindInsert(PreparedStatement insert, Expense expense) throws SQLException {
+        insert.setString(1, expense.getId());
+        insert.setLong(2, expense.getAmountCents());
+        insert.setString(3, expense.getCategory());
+        insert.setString(4, expense.getDescription());
+        insert.setInt(5, expense.getEpochDay());
+        insert.setString(6, expense.getPaymentMethod().name());
+        insert.setString(7, categoryKey(expense.getCategory()));
+    }
+
+    private static void bindUpdate(PreparedStatement update, Expense expense) throws SQLException {
+        update.setLong(1, expense.getAmountCents());
+        update.setString(2, expense.getCategory());
+        update.setString(3, expense.getDescription());
+        update.setInt(4, expense.getEpochDay());
+        update.setString(5, expense.getPaymentMethod().name());
+        update.setString(6, categoryKey(expense.getCategory()));
+        update.setString(7, expense.getId());
+    }
+
+    private static String categoryKey(String category) {
+        return category.toLowerCase(Locale.ROOT);
+    }
+
+    // Reads one row per tryAdvance from a result set left open for the stream.
+    // A connection whose read or close failed is dropped instead of reused.
+    private final class RowCursor extends Spliterators.AbstractSpliterator<Expense> {
+        private final Connection connection;
+        private final PreparedStatement select;
+        private final ResultSet rows;
+        private long read;
+        private boolean broken;
+        private boolean closed;
+
+        RowCursor(Connection connection, PreparedStatement select, ResultSet rows) {
+            super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL);
+            this.connection = connection;
+            this.select = select;
+            this.rows = rows;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super Expense> action) {
+            if (closed) {
+                return false;
+            }
+            Expense expense;
+            try {
+                if (!rows.next()) {
+                    return false;
+                }
+                expense = expense(rows);
+            } catch (SQLException e) {
+                broken = true;
+                throw databaseError(e);
+            }
+            read++;
+            action.accept(expense);
+            return true;
+        }
+
+        // Closing the statement also closes its result set
+        void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                select.close();
+            } catch (SQLException e) {
+                broken = true;
+            }
+            pool.release(connection, !broken);
+        }
+    }
+}
@@ -0,0 +1,253 @@
+package persistence;
+
+import model.Expense;
+
+import java.io.File;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+// Keeps one storage partition per ledger (a user's or household's expenses),
+// each in its own directory under the base directory. A partition is opened
+// on first use and dropped again after sitting idle, so only active ledgers
+// use memory.
+//
+// Reads go straight to the open partition without locking. Writes, opening
+// and eviction of a ledger hold one of STRIPES locks chosen by ledger id, so
+// writers to different ledgers almost never wait on each other while writes
+// to one ledger reach its file one at a time.
+public class PartitionedExpenseRepository implements AutoCloseable {
+    private static final Pattern LEDGER_ID = Pattern.compile("[A-Za-z0-9_-]{1,64}");
+    private static final int STRIPES = 64;
+
+    private final Function<String, ExpenseRepository> opener;
+    private final long idleNanos;
+    private final Map<String, Partition> partitions = new ConcurrentHashMap<>();
+    private final ReentrantLock[] stripes = new ReentrantLock[STRIPES];
+    private final ScheduledExecutorService evictor;
+
+    private static final class Partition {
+        final ExpenseRepository repository;
+        volatile long lastAccess = System.nanoTime();
+
+        Partition(ExpenseRepository repository) {
+            this.repository = repository;
+        }
+    }
+
+    public PartitionedExpenseRepository(String baseDirectory) {
+        this(baseDirectory, Duration.ofMinutes(10));
+    }
+
+    public PartitionedExpenseRepository(String baseDirectory, Duration idleTimeout) {
+        this(ledgerId -> new FileExpenseRepository(baseDirectory + File.separator + ledgerId), idleTimeout);
+    }
+
+    public PartitionedExpenseRepository(Function<String, ExpenseRepository> opener, Duration idleTimeout) {
+        if (idleTimeout.isNegative() || idleTimeout.isZero()) {
+            throw new IllegalArgumentException("Idle timeout must be positive");
+        }
+        this.opener = opener;
+        this.idleNanos = idleTimeout.toNanos();
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        this.evictor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ledger-evictor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = Math.max(1, idleTimeout.toMillis() / 2);
+        evictor.scheduleWithFixedDelay(this::evictIdle, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    // A repository scoped to one ledger. It holds no partition itself, so it
+    // stays valid across eviction and reopens the ledger when next used.
+    public ExpenseRepository ledger(String ledgerId) {
+        if (ledgerId == null || !LEDGER_ID.matcher(ledgerId).matches()) {
+            throw new IllegalArgumentException("Invalid ledger id: " + ledgerId);
+        }
+        return new LedgerRepository(ledgerId);
+    }
+
+    public int getOpenPartitionCount() {
+        return partitions.size();
+    }
+
+    // Drops partitions idle for longer than the timeout; returns how many
+    public int evictIdle() {
+        int evicted = 0;
+        long now = System.nanoTime();
+        for (Map.Entry<String, Partition> entry : partitions.entrySet()) {
+            if (now - entry.getValue().lastAccess < idleNanos) {
+                continue;
+            }
+            ReentrantLock lock = stripe(entry.getKey());
+            lock.lock();
+            try {
+                // A writer may have touched it since the scan looked
+                Partition partition = partitions.get(entry.getKey());
+                if (partition != null && System.nanoTime() - partition.lastAccess >= idleNanos) {
+                    partitions.remove(entry.getKey());
+                    evicted++;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        return evicted;
+    }
+
+    @Override
+    public void close() {
+        evictor.shutdownNow();
+        partitions.clear();
+    }
+
+    private ReentrantLock stripe(String ledgerId) {
+        int hash = ledgerId.hashCode();
+        return stripes[(hash ^ (hash >>> 16)) & (STRIPES - 1)];
+    }
+
+    private ExpenseRepository read(String ledgerId) {
+        Partition partition = partitions.get(ledgerId);
+        if (partition == null) {
+            ReentrantLock lock = stripe(ledgerId);
+            lock.lock();
+            try {
+                partition = open(ledgerId);
+            } finally {
+                lock.unlock();
+            }
+        }
+        partition.lastAccess = System.nanoTime();
+        return partition.repository;
+    }
+
+    private <T> T write(String ledgerId, Function<ExpenseRepository, T> action) {
+        ReentrantLock lock = stripe(ledgerId);
+        lock.lock();
+        try {
+            Partition partition = open(ledgerId);
+            partition.lastAccess = System.nanoTime();
+            return action.apply(partition.repository);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Caller holds the ledger's stripe lock
+    private Partition open(String ledgerId) {
+        Partition partition = partitions.get(ledgerId);
+        if (partition == null) {
+            partition = new Partition(opener.apply(ledgerId));
+            partitions.put(ledgerId, partition);
+        }
+        return partition;
+    }
+
+    private final class LedgerRepository implements ExpenseRepository {
+        private final String ledgerId;
+
+        LedgerRepository(String ledgerId) {
+            this.ledgerId = ledgerId;
+        }
+
+        @Override
+        public void save(Expense expense) {
+            write(ledgerId, repository -> {
+                repository.save(expense);
+                return null;
+            });
+        }
+
+        @Override
+        public void saveAll(Collection<Expense> expenses) {
+            write(ledgerId, repository -> {
+                repository.saveAll(expenses);
+                return null;
+            });
+        }
+
+        @Override
+        public void update(Expense expense) {
+            write(ledgerId, repository -> {
+                repository.update(expense);
+                return null;
+            });
+        }
+
+        @Override
+        public boolean delete(String id) {
+            return write(ledgerId, repository -> repository.delete(id));
+        }
+
+        @Override
+        public Optional<Expense> findById(String id) {
+            return read(ledgerId).findById(id);
+        }
+
+        @Override
+        public List<Expense> findAll() {
+            return read(ledgerId).findAll();
+        }
+
+        @Override
+        public List<Expense> findByCategory(String category) {
+            return read(ledgerId).findByCategory(category);
+        }
+
+        @Override
+        public List<Expense> findByDateRange(String startDate, String endDate) {
+            return read(ledgerId).findByDateRange(startDate, endDate);
+        }
+
+        @Override
+        public List<Expense> findPage(LocalDate fromDate, String afterId, int limit) {
+            return read(ledgerId).findPage(fromDate, afterId, limit);
+        }
+
+        @Override
+        public Stream<Expense> streamByDateRange(LocalDate startDate, LocalDate endDate) {
+            return read(ledgerId).streamByDateRange(startDate, endDate);
+        }
+
+        @Override
+        public ExpenseStats summarize(LocalDate startDate, LocalDate endDate) {
+            return read(ledgerId).summarize(startDate, endDate);
+        }
+
+        @Override
+        public Map<String, ExpenseStats> summarizeByCategory(LocalDate startDate, LocalDate endDate) {
+            return read(ledgerId).summarizeByCategory(startDate, endDate);
+        }
+
+        @Override
+        public CompletableFuture<Void> warmUp() {
+            return read(ledgerId).warmUp();
+        }
+
+        @Override
+        public ExpenseSnapshot snapshot() {
+            return read(ledgerId).snapshot();
+        }
+
+        // Restarts from 0 when an idle partition is reopened
+        @Override
+        public long getBytesWritten() {
+            return read(ledgerId).getBytesWritten();
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package persistence;
+
+import jfr.QueryEvent;
+
+// A running count, per thread, of the rows queries have looked at. Callers
+// that only see results (the slow-operation log) read it before and after a
+// call; the difference is what that call scanned, including the queries it
+// made on its own.
+public final class QueryTrace {
+    private static final ThreadLocal<long[]> SCANNED = ThreadLocal.withInitial(() -> new long[1]);
+
+    private QueryTrace() {
+    }
+
+    public static long rowsScanned() {
+        return SCANNED.get()[0];
+    }
+
+    public static void addRowsScanned(long rows) {
+        SCANNED.get()[0] += rows;
+    }
+
+    // Ends a repository query: counts its scan and commits its event if recorded
+    static void finish(QueryEvent event, String type, long rowsScanned, long rowsReturned) {
+        addRowsScanned(rowsScanned);
+        event.commit(type, rowsScanned, rowsReturned);
+    }
+}
@@ -0,0 +1,30 @@
+package persistence;
+
+// Picks the on-disk layout the front ends open. By default a data directory
+// holds a single expenses.txt (FileExpenseRepository); -Dexpenses.storage=segmented
+// opts in to monthly segments (SegmentedExpenseRepository). The first segmented
+// open moves expenses.txt aside, and FileExpenseRepository refuses a directory
+// that has segments, so there is only ever one live copy.
+public final class RepositoryLayout {
+    public static final String STORAGE_PROPERTY = "expenses.storage";
+    public static final String SEGMENTED = "segmented";
+
+    private RepositoryLayout() {
+    }
+
+    public static boolean isSegmented() {
+        return SEGMENTED.equals(System.getProperty(STORAGE_PROPERTY));
+    }
+
+    public static ExpenseRepository open(String dataDirectory) {
+        return isSegmented() ? new SegmentedExpenseRepository(dataDirectory) : new FileExpenseRepository(dataDirectory);
+    }
+
+    // Segments are already read on demand, so recentDays only applies to the
+    // single-file layout (see FileExpenseRepository.openLazily)
+    public static ExpenseRepository openLazily(String dataDirectory, int recentDays) {
+        return isSegmented()
+                ? new SegmentedExpenseRepository(dataDirectory)
+                : FileExpenseRepository.openLazily(dataDirectory, recentDays);
+    }
+}
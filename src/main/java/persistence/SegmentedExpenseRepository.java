@@ -0,0 +1,770 @@
+package persistence;
+
+import jfr.QueryEvent;
+import jfr.RepositoryLoadEvent;
+import jfr.RepositorySaveEvent;
+import model.CategoryDictionary;
+import model.Expense;
+import model.Ulid;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// Stores expenses as one segment file per month (segments/2024-03.txt, same
+// line format as expenses.txt) plus a manifest with each segment's count,
+// total and date bounds. A write rewrites only the segments it touches and the
+// manifest; a segment is read from disk the first time a query needs it.
+// Date-range queries open only the overlapping months, and summaries over
+// whole months come straight from the manifest.
+//
+// The manifest also records each segment file's size and modification time.
+// A segment is renamed into place before the manifest is rewritten, so after
+// a crash in between, open finds the entry that no longer matches its file
+// and recomputes that month's stats from the file.
+//
+// On first open of a directory that still has an expenses.txt, its contents
+// are split into segments once and the old file is renamed to
+// expenses.txt.migrated. From then on the manifest marks the directory as
+// segmented and FileExpenseRepository refuses to open it (see RepositoryLayout).
+//
+// Months that are closed can be archived (archiveBefore) into the compact
+// ColdSegment encoding (segments/2021-03.cold). They stay fully readable and
+// writable; summaries over part of a cold month use its block stats instead
+// of loading its rows.
+public class SegmentedExpenseRepository implements ExpenseRepository {
+    private static final String MANIFEST = "manifest.txt";
+    private static final String LEGACY_FILE = "expenses.txt";
+
+    private final Path segmentDirectory;
+    private final Path manifestFile;
+    // Newest month first, like NEWEST_FIRST
+    private final ConcurrentSkipListMap<YearMonth, Segment> segments =
+            new ConcurrentSkipListMap<>(Comparator.reverseOrder());
+    // Month of every expense in a loaded segment
+    private final Map<String, YearMonth> loadedIds = new ConcurrentHashMap<>();
+    private final Object writeLock = new Object();
+    private final AtomicLong bytesWritten = new AtomicLong();
+
+    private final class Segment {
+        final YearMonth month;
+        volatile ExpenseStats stats;
+        volatile boolean cold;
+        // Null until first read; then an immutable list in NEWEST_FIRST order,
+        // replaced as a whole by writers
+        volatile List<Expense> rows;
+        // Size and modification time of its file when the stats were taken
+        volatile long fileSize = -1;
+        volatile long fileModified = -1;
+        // Oldest and newest ULID timestamp among its ids. Until the rows have
+        // been seen the range is unbounded, so no id is ruled out.
+        volatile long minIdTime = Long.MIN_VALUE;
+        volatile long maxIdTime = Long.MAX_VALUE;
+        // Parsed header of its cold file, kept for partial-month summaries;
+        // null until needed and whenever the file is rewritten
+        volatile ColdSegment coldHeader;
+
+        Segment(YearMonth month, ExpenseStats stats) {
+            this.month = month;
+            this.stats = stats;
+            this.cold = Files.exists(coldFile(month));
+        }
+
+        List<Expense> rows() {
+            List<Expense> loaded = rows;
+            if (loaded == null) {
+                synchronized (this) {
+                    loaded = rows;
+                    if (loaded == null) {
+                        loaded = readSegment(month, cold);
+                        for (Expense expense : loaded) {
+                            loadedIds.put(expense.getId(), month);
+                        }
+                        noteIds(loaded);
+                        rows = loaded;
+                    }
+                }
+            }
+            return loaded;
+        }
+
+        void noteIds(List<Expense> loaded) {
+            long min = Long.MAX_VALUE;
+            long max = Long.MIN_VALUE;
+            for (Expense expense : loaded) {
+                if (Ulid.isUlid(expense.getId())) {
+                    long time = Ulid.parse(expense.getId()).getTimestamp();
+                    min = Math.min(min, time);
+                    max = Math.max(max, time);
+                }
+            }
+            minIdTime = min;
+            maxIdTime = max;
+        }
+
+        ColdSegment coldHeader() throws IOException {
+            ColdSegment header = coldHeader;
+            if (header == null) {
+                header = ColdSegment.open(coldFile(month));
+                coldHeader = header;
+            }
+            return header;
+        }
+
+        boolean mayHold(long idTime) {
+            return idTime >= minIdTime && idTime <= maxIdTime;
+        }
+
+        boolean covers(LocalDate startDate, LocalDate endDate) {
+            ExpenseStats current = stats;
+            return current.getMinEpochDay() >= startDate.toEpochDay()
+                    && current.getMaxEpochDay() <= endDate.toEpochDay();
+        }
+    }
+
+    public SegmentedExpenseRepository(String dataDirectory) {
+        this.segmentDirectory = Paths.get(dataDirectory, "segments");
+        this.manifestFile = segmentDirectory.resolve(MANIFEST);
+        try {
+            Files.createDirectories(segmentDirectory);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to create " + segmentDirectory + ": " + e.getMessage(), e);
+        }
+
+        Path legacyFile = Paths.get(dataDirectory, LEGACY_FILE);
+        if (Files.exists(manifestFile)) {
+            readManifest();
+            reconcile();
+            if (Files.exists(legacyFile)) {
+                System.err.println("Warning: Ignoring " + legacyFile + "; this directory's expenses are in "
+                        + segmentDirectory);
+            }
+        } else if (hasSegmentFiles()) {
+            rebuildManifest();
+        } else {
+            migrate(legacyFile);
+        }
+        System.out.println("Opened " + segments.size() + " monthly segments in " + segmentDirectory);
+    }
+
+    // True once a segmented repository has been opened on the directory
+    public static boolean isSegmented(String dataDirectory) {
+        return Files.exists(Paths.get(dataDirectory, "segments", MANIFEST));
+    }
+
+    // Reads every segment not yet in memory, newest month first
+    @Override
+    public CompletableFuture<Void> warmUp() {
+        return CompletableFuture.runAsync(() -> segments.values().forEach(Segment::rows));
+    }
+
+    // Segments, cold archives and manifests
+    @Override
+    public long getBytesWritten() {
+        return bytesWritten.get();
+    }
+
+    public Map<YearMonth, ExpenseStats> getSegmentStats() {
+        Map<YearMonth, ExpenseStats> stats = new LinkedHashMap<>();
+        segments.forEach((month, segment) -> stats.put(month, segment.stats));
+        return stats;
+    }
+
+    // Rewrites every month before the given one that is not archived yet into
+    // the cold encoding; returns how many were archived
+    public int archiveBefore(YearMonth month) {
+        int archived = 0;
+        synchronized (writeLock) {
+            for (Segment segment : segments.tailMap(month, false).values()) {
+                if (segment.cold) {
+                    continue;
+                }
+                List<Expense> rows = segment.rows();
+                writeSegment(segment.month, rows, true);
+                // Only once the archive is in place; a failed write leaves the month hot
+                segment.coldHeader = null;
+                segment.cold = true;
+                stamp(segment);
+                archived++;
+            }
+            if (archived > 0) {
+                writeManifest();
+            }
+        }
+        if (archived > 0) {
+            System.out.println("Archived " + archived + " monthly segments before " + month);
+        }
+        return archived;
+    }
+
+    @Override
+    public ExpenseStats summarize(LocalDate startDate, LocalDate endDate) {
+        QueryEvent event = new QueryEvent();
+        event.begin();
+        long scanned = 0;
+        ExpenseStats total = ExpenseStats.EMPTY;
+        for (Segment segment : overlapping(startDate, endDate)) {
+            if (segment.covers(startDate, endDate)) {
+                total = total.plus(segment.stats);
+            } else if (segment.cold && segment.rows == null) {
+                total = total.plus(summarizeCold(segment, startDate, endDate));
+            } else {
+                long start = startDate.toEpochDay();
+                long end = endDate.toEpochDay();
+                List<Expense> inRange = new ArrayList<>();
+                scanned += segment.rows().size();
+                for (Expense expense : segment.rows()) {
+                    if (expense.getEpochDay() >= start && expense.getEpochDay() <= end) {
+                        inRange.add(expense);
+                    }
+                }
+                total = total.plus(ExpenseStats.of(inRange));
+            }
+        }
+        // Whole months and cold archives are answered from stats, without scanning rows
+        QueryTrace.finish(event, "summarize", scanned, total.getCount());
+        return total;
+    }
+
+    @Override
+    public Stream<Expense> streamByDateRange(LocalDate startDate, LocalDate endDate) {
+        long start = startDate.toEpochDay();
+        long end = endDate.toEpochDay();
+        return overlapping(startDate, endDate).stream()
+                .flatMap(segment -> segment.covers(startDate, endDate)
+                        ? segment.rows().stream()
+                        : segment.rows().stream().filter(e -> e.getEpochDay() >= start && e.getEpochDay() <= end));
+    }
+
+    @Override
+    public List<Expense> findByDateRange(String startDate, String endDate) {
+        QueryEvent event = new QueryEvent();
+        event.begin();
+        List<Expense> found;
+        try (Stream<Expense> rows = streamByDateRange(LocalDate.parse(startDate), LocalDate.parse(endDate))) {
+            found = rows.collect(Collectors.toList());
+        }
+        QueryTrace.finish(event, "findByDateRange", found.size(), found.size());
+        return found;
+    }
+
+    @Override
+    public List<Expense> findPage(LocalDate fromDate, String afterId, int limit) {
+        QueryEvent event = new QueryEvent();
+        event.begin();
+        Expense position = new Expense(afterId != null ? afterId : "", 0, "", "", fromDate, null);
+        List<Expense> page = new ArrayList<>(Math.min(limit, 1024));
+        long scanned = 0;
+        for (Segment segment : segments.tailMap(YearMonth.from(fromDate), true).values()) {
+            for (Expense expense : segment.rows()) {
+                if (page.size() == limit) {
+                    QueryTrace.finish(event, "findPage", scanned, page.size());
+                    return page;
+                }
+                scanned++;
+                int cmp = NEWEST_FIRST.compare(expense, position);
+                if (cmp > 0 || (cmp == 0 && afterId == null)) {
+                    page.add(expense);
+                }
+            }
+        }
+        QueryTrace.finish(event, "findPage", scanned, page.size());
+        return page;
+    }
+
+    @Override
+    public List<Expense> findAll() {
+        QueryEvent event = new QueryEvent();
+        event.begin();
+        List<Expense> all = allRows();
+        QueryTrace.finish(event, "findAll", all.size(), all.size());
+        return all;
+    }
+
+    @Override
+    public List<Expense> findByCategory(String category) {
+        QueryEvent event = new QueryEvent();
+        event.begin();
+        BitSet codes = CategoryDictionary.shared().codesIgnoringCase(category);
+        List<Expense> all = allRows();
+        List<Expense> rows = all.stream()
+                .filter(expense -> codes.get(expense.getCategoryCode()))
+                .collect(Collectors.toList());
+        QueryTrace.finish(event, "findByCategory", all.size(), rows.size());
+        return rows;
+    }
+
+    private List<Expense> allRows() {
+        List<Expense> all = new ArrayList<>();
+        for (Segment segment : segments.values()) {
+            all.addAll(segment.rows());
+        }
+        return all;
+    }
+
+    // Recent months are searched first, and loading stops once the id is found.
+    // A ULID is only looked for in segments whose recorded id time range
+    // contains its timestamp, so saving a new expense loads no other month.
+    @Override
+    public Optional<Expense> findById(String id) {
+        YearMonth month = loadedIds.get(id);
+        if (month == null) {
+            boolean ulid = Ulid.isUlid(id);
+            long idTime = ulid ? Ulid.parse(id).getTimestamp() : 0;
+            for (Segment segment : segments.values()) {
+                if (segment.rows == null && (!ulid || segment.mayHold(idTime))) {
+                    segment.rows();
+                    month = loadedIds.get(id);
+                    if (month != null) {
+                        break;
+                    }
+                }
+            }
+        }
+        if (month == null) {
+            return Optional.empty();
+        }
+        Segment segment = segments.get(month);
+        if (segment == null) {
+            return Optional.empty();
+        }
+        for (Expense expense : segment.rows()) {
+            if (expense.getId().equals(id)) {
+                return Optional.of(expense);
+            }
+        }
+        return Optional.empty();
+    }
+
+    @Override
+    public void save(Expense expense) {
+        saveAll(Collections.singletonList(expense));
+    }
+
+    @Override
+    public void saveAll(Collection<Expense> expenses) {
+        if (expenses.isEmpty()) {
+            return;
+        }
+        synchronized (writeLock) {
+            Map<YearMonth, Map<String, Expense>> removed = new HashMap<>();
+            Map<YearMonth, Map<String, Expense>> added = new HashMap<>();
+            for (Expense expense : expenses) {
+                findById(expense.getId()).ifPresent(previous -> removed
+                        .computeIfAbsent(YearMonth.from(previous.getDate()), m -> new HashMap<>())
+                        .put(previous.getId(), previous));
+                added.computeIfAbsent(YearMonth.from(expense.getDate()), m -> new LinkedHashMap<>())
+                        .put(expense.getId(), expense);
+            }
+            apply(removed, added);
+        }
+    }
+
+    @Override
+    public void update(Expense expense) {
+        synchronized (writeLock) {
+            if (findById(expense.getId()).isPresent()) {
+                save(expense);
+            }
+        }
+    }
+
+    @Override
+    public boolean delete(String id) {
+        synchronized (writeLock) {
+            Optional<Expense> previous = findById(id);
+            if (!previous.isPresent()) {
+                return false;
+            }
+            Map<YearMonth, Map<String, Expense>> removed = new HashMap<>();
+            removed.computeIfAbsent(YearMonth.from(previous.get().getDate()), m -> new HashMap<>())
+                    .put(id, previous.get());
+            apply(removed, Collections.emptyMap());
+            return true;
+        }
+    }
+
+    // Caller holds writeLock. Rewrites each touched month once, then the manifest.
+    private void apply(Map<YearMonth, Map<String, Expense>> removed,
+                       Map<YearMonth, Map<String, Expense>> added) {
+        List<YearMonth> touched = new ArrayList<>(removed.keySet());
+        for (YearMonth month : added.keySet()) {
+            if (!removed.containsKey(month)) {
+                touched.add(month);
+            }
+        }
+
+        for (YearMonth month : touched) {
+            Segment segment = segments.get(month);
+            Map<String, Expense> gone = removed.getOrDefault(month, Collections.emptyMap());
+            Map<String, Expense> fresh = added.getOrDefault(month, Collections.emptyMap());
+
+            List<Expense> rows = new ArrayList<>(segment != null ? segment.rows().size() + fresh.size() : fresh.size());
+            if (segment != null) {
+                for (Expense expense : segment.rows()) {
+                    if (!gone.containsKey(expense.getId()) && !fresh.containsKey(expense.getId())) {
+                        rows.add(expense);
+                    }
+                }
+            }
+            rows.addAll(fresh.values());
+            rows.sort(NEWEST_FIRST);
+
+            writeSegment(month, rows, segment != null && segment.cold);
+            if (segment != null) {
+                segment.coldHeader = null;
+            }
+            for (String id : gone.keySet()) {
+                loadedIds.remove(id);
+            }
+            for (Expense expense : fresh.values()) {
+                loadedIds.put(expense.getId(), month);
+            }
+            if (rows.isEmpty()) {
+                segments.remove(month);
+            } else {
+                if (segment == null) {
+                    segment = new Segment(month, ExpenseStats.EMPTY);
+                    segments.put(month, segment);
+                }
+                segment.rows = Collections.unmodifiableList(rows);
+                segment.noteIds(rows);
+                segment.stats = ExpenseStats.of(rows);
+                stamp(segment);
+            }
+        }
+        writeManifest();
+    }
+
+    private List<Segment> overlapping(LocalDate startDate, LocalDate endDate) {
+        if (startDate.isAfter(endDate)) {
+            return Collections.emptyList();
+        }
+        // Descending map: the end month comes first
+        return new ArrayList<>(segments.subMap(YearMonth.from(endDate), true, YearMonth.from(startDate), true).values());
+    }
+
+    private Path segmentFile(YearMonth month) {
+        return segmentDirectory.resolve(month + ".txt");
+    }
+
+    private Path coldFile(YearMonth month) {
+        return segmentDirectory.resolve(month + ".cold");
+    }
+
+    private List<Expense> readSegment(YearMonth month, boolean cold) {
+        RepositoryLoadEvent event = new RepositoryLoadEvent();
+        event.begin();
+        if (cold) {
+            Path file = coldFile(month);
+            try {
+                List<Expense> rows = ColdSegment.open(file).readAll();
+                event.end();
+                if (event.shouldCommit()) {
+                    commitLoad(event, file, rows.size(), Files.size(file));
+                }
+                return Collections.unmodifiableList(rows);
+            } catch (IOException | RuntimeException e) {
+                throw new RuntimeException("Failed to read segment " + file + ": " + e.getMessage(), e);
+            }
+        }
+        List<Expense> rows = new ArrayList<>();
+        Path file = segmentFile(month);
+        if (!Files.exists(file)) {
+            return Collections.emptyList();
+        }
+        try (ExpenseRecordReader reader = new ExpenseRecordReader(file, StandardCharsets.UTF_8, true)) {
+            Expense expense;
+            while ((expense = reader.next()) != null) {
+                rows.add(expense);
+            }
+            reader.reportDamage();
+            rows.sort(NEWEST_FIRST);
+            event.end();
+            if (event.shouldCommit()) {
+                commitLoad(event, file, rows.size(), reader.getBytesRead());
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to read segment " + file + ": " + e.getMessage(), e);
+        }
+        return Collections.unmodifiableList(rows);
+    }
+
+    private static void commitLoad(RepositoryLoadEvent event, Path file, long rows, long bytes) {
+        event.source = file.toString();
+        event.phase = "segment";
+        event.rows = rows;
+        event.bytes = bytes;
+        event.commit();
+    }
+
+    // A header cached before a concurrent rewrite no longer matches the file;
+    // it is dropped and the file's new header read once
+    private ExpenseStats summarizeCold(Segment segment, LocalDate startDate, LocalDate endDate) {
+        Path file = coldFile(segment.month);
+        try {
+            try {
+                return segment.coldHeader().summarize(startDate, endDate);
+            } catch (IOException e) {
+                segment.coldHeader = null;
+                return segment.coldHeader().summarize(startDate, endDate);
+            }
+        } catch (IOException | RuntimeException e) {
+            throw new RuntimeException("Failed to read segment " + file + ": " + e.getMessage(), e);
+        }
+    }
+
+    private void writeSegment(YearMonth month, List<Expense> rows, boolean cold) {
+        Path file = cold ? coldFile(month) : segmentFile(month);
+        RepositorySaveEvent event = new RepositorySaveEvent();
+        event.begin();
+        try {
+            if (rows.isEmpty()) {
+                Files.deleteIfExists(file);
+                return;
+            }
+            long size;
+            if (cold) {
+                ColdSegment.write(file, rows);
+                size = Files.size(file);
+                // Once the archive is in place the text copy is redundant
+                Files.deleteIfExists(segmentFile(month));
+            } else {
+                size = writeAtomically(file, Stream.concat(Stream.of(ExpenseLineFormat.FRAMED_HEADER),
+                        rows.stream().map(ExpenseLineFormat::frame)).iterator());
+            }
+            bytesWritten.addAndGet(size);
+            event.end();
+            if (event.shouldCommit()) {
+                event.target = file.toString();
+                event.rows = rows.size();
+                event.bytes = size;
+                event.commit();
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to write segment " + file + ": " + e.getMessage(), e);
+        }
+    }
+
+    // month|count|sumCents|minEpochDay|maxEpochDay|fileSize|fileModified|minIdTime|maxIdTime
+    // (older manifests lack the file fields, so every entry is checked once,
+    // or the id times, which are then learned when the segment is loaded)
+    private void readManifest() {
+        try (BufferedReader reader = Files.newBufferedReader(manifestFile)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.trim().isEmpty()) continue;
+                String[] parts = line.split("\\|");
+                YearMonth month = YearMonth.parse(parts[0]);
+                Segment segment = new Segment(month, new ExpenseStats(Long.parseLong(parts[1]),
+                        Long.parseLong(parts[2]), Long.parseLong(parts[3]), Long.parseLong(parts[4])));
+                if (parts.length >= 7) {
+                    segment.fileSize = Long.parseLong(parts[5]);
+                    segment.fileModified = Long.parseLong(parts[6]);
+                }
+                if (parts.length >= 9) {
+                    segment.minIdTime = Long.parseLong(parts[7]);
+                    segment.maxIdTime = Long.parseLong(parts[8]);
+                }
+                segments.put(month, segment);
+            }
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Warning: unreadable manifest " + manifestFile + ", rebuilding: " + e.getMessage());
+            segments.clear();
+            rebuildManifest();
+        }
+    }
+
+    private void writeManifest() {
+        List<String> lines = new ArrayList<>();
+        segments.forEach((month, segment) -> {
+            ExpenseStats stats = segment.stats;
+            lines.add(month + "|" + stats.getCount() + "|" + stats.getSumCents() + "|"
+                    + stats.getMinEpochDay() + "|" + stats.getMaxEpochDay() + "|"
+                    + segment.fileSize + "|" + segment.fileModified + "|"
+                    + segment.minIdTime + "|" + segment.maxIdTime);
+        });
+        try {
+            bytesWritten.addAndGet(writeAtomically(manifestFile, lines.iterator()));
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to write manifest " + manifestFile + ": " + e.getMessage(), e);
+        }
+    }
+
+    private boolean hasSegmentFiles() {
+        try (Stream<Path> files = Files.list(segmentDirectory)) {
+            return files.anyMatch(this::isSegmentFile);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private boolean isSegmentFile(Path file) {
+        String name = file.getFileName().toString();
+        return name.matches("\\d{4}-\\d{2}\\.(txt|cold)");
+    }
+
+    // Reads every segment once to recreate lost or damaged stats
+    private void rebuildManifest() {
+        addUnlistedSegments();
+        writeManifest();
+    }
+
+    // Drops entries whose file is gone, recomputes those whose file changed
+    // since the manifest was written, and adds segments it does not list
+    private void reconcile() {
+        int mismatched = 0;
+        try {
+            for (Segment segment : new ArrayList<>(segments.values())) {
+                Path file = currentFile(segment);
+                if (!Files.exists(file)) {
+                    segments.remove(segment.month);
+                    mismatched++;
+                    continue;
+                }
+                BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+                if (attributes.size() != segment.fileSize
+                        || attributes.lastModifiedTime().toMillis() != segment.fileModified) {
+                    segment.minIdTime = Long.MIN_VALUE;
+                    segment.maxIdTime = Long.MAX_VALUE;
+                    segment.coldHeader = null;
+                    segment.stats = statsOf(segment);
+                    stamp(segment);
+                    mismatched++;
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to check segments in " + segmentDirectory + ": " + e.getMessage(), e);
+        }
+        mismatched += addUnlistedSegments();
+        if (mismatched > 0) {
+            System.err.println("Warning: Manifest " + manifestFile + " did not match " + mismatched
+                    + " segments; recomputed their stats");
+            writeManifest();
+        }
+    }
+
+    // Returns how many were added
+    private int addUnlistedSegments() {
+        int added = 0;
+        try (Stream<Path> files = Files.list(segmentDirectory)) {
+            for (Path file : (Iterable<Path>) files.filter(this::isSegmentFile)::iterator) {
+                String name = file.getFileName().toString();
+                YearMonth month = YearMonth.parse(name.substring(0, 7));
+                if (segments.containsKey(month)) {
+                    continue;
+                }
+                Segment segment = new Segment(month, ExpenseStats.EMPTY);
+                segment.stats = statsOf(segment);
+                stamp(segment);
+                segments.put(month, segment);
+                added++;
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to scan " + segmentDirectory + ": " + e.getMessage(), e);
+        }
+        return added;
+    }
+
+    private ExpenseStats statsOf(Segment segment) throws IOException {
+        return segment.cold ? segment.coldHeader().getStats() : ExpenseStats.of(segment.rows());
+    }
+
+    private Path currentFile(Segment segment) {
+        return segment.cold ? coldFile(segment.month) : segmentFile(segment.month);
+    }
+
+    // Records the size and modification time of the segment's file as it is now
+    private void stamp(Segment segment) {
+        Path file = currentFile(segment);
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            segment.fileSize = attributes.size();
+            segment.fileModified = attributes.lastModifiedTime().toMillis();
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to read attributes of " + file + ": " + e.getMessage(), e);
+        }
+    }
+
+    // Writes the manifest even when there is nothing to split, so the
+    // directory is marked as segmented from the first open
+    private void migrate(Path legacyFile) {
+        if (!Files.exists(legacyFile)) {
+            writeManifest();
+            return;
+        }
+        Map<YearMonth, Map<String, Expense>> byMonth = new HashMap<>();
+        // Written by FileExpenseRepository; unframed versions in the platform charset
+        try (ExpenseRecordReader reader = new ExpenseRecordReader(legacyFile, false)) {
+            Expense expense;
+            while ((expense = reader.next()) != null) {
+                byMonth.computeIfAbsent(YearMonth.from(expense.getDate()), m -> new LinkedHashMap<>())
+                        .put(expense.getId(), expense);
+            }
+            reader.reportDamage();
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to migrate " + legacyFile + ": " + e.getMessage(), e);
+        }
+        synchronized (writeLock) {
+            apply(Collections.emptyMap(), byMonth);
+        }
+        Path migrated = Paths.get(legacyFile + ".migrated");
+        try {
+            Files.move(legacyFile, migrated, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to move " + legacyFile + " aside: " + e.getMessage(), e);
+        }
+        System.out.println("Split " + legacyFile + " into " + byMonth.size() + " monthly segments; kept it as "
+                + migrated);
+    }
+
+    // Temp file, fsync, then rename over the target; returns the file's size
+    private static long writeAtomically(Path file, Iterator<String> lines) throws IOException {
+        Path temp = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+        try {
+            try (FileOutputStream stream = new FileOutputStream(temp.toFile());
+                 PrintWriter writer = new PrintWriter(new BufferedWriter(new OutputStreamWriter(stream, StandardCharsets.UTF_8)))) {
+                while (lines.hasNext()) {
+                    writer.println(lines.next());
+                }
+                writer.flush();
+                if (writer.checkError()) {
+                    throw new IOException("Write to " + temp + " failed");
+                }
+                stream.getFD().sync();
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return Files.size(file);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package report;
+
+public enum ChartFormat {
+    PNG("png"),
+    SVG("svg");
+
+    private final String extension;
+
+    ChartFormat(String extension) {
+        this.extension = extension;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+}
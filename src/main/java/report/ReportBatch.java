@@ -0,0 +1,89 @@
+package report;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+
+// Command-line entry point for rendering reports on a server without a display:
+//
+//   java -cp ... report.ReportBatch --out reports --month 2024-03 --format svg data/alice data/bob
+//
+// Each ledger directory gets its charts under <out>/<ledger name>/.
+public class ReportBatch {
+
+    public static void main(String[] args) {
+        // Must be set before any AWT class is loaded
+        System.setProperty("java.awt.headless", "true");
+
+        Path outputDirectory = Paths.get("reports");
+        Path cacheDirectory = null;
+        YearMonth month = YearMonth.now();
+        ChartFormat format = ChartFormat.PNG;
+        int width = 800;
+        int height = 500;
+        int threads = Runtime.getRuntime().availableProcessors();
+        List<String> ledgers = new ArrayList<>();
+
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--out":
+                        outputDirectory = Paths.get(args[++i]);
+                        break;
+                    case "--cache":
+                        cacheDirectory = Paths.get(args[++i]);
+                        break;
+                    case "--month":
+                        month = YearMonth.parse(args[++i]);
+                        break;
+                    case "--format":
+                        format = ChartFormat.valueOf(args[++i].toUpperCase());
+                        break;
+                    case "--size":
+                        String[] size = args[++i].split("x");
+                        width = Integer.parseInt(size[0]);
+                        height = Integer.parseInt(size[1]);
+                        break;
+                    case "--threads":
+                        threads = Integer.parseInt(args[++i]);
+                        break;
+                    default:
+                        ledgers.add(args[i]);
+                }
+            }
+        } catch (RuntimeException e) {
+            System.err.println("Invalid arguments: " + e.getMessage());
+            printUsage();
+            System.exit(2);
+        }
+
+        if (ledgers.isEmpty()) {
+            printUsage();
+            System.exit(2);
+        }
+        if (cacheDirectory == null) {
+            cacheDirectory = outputDirectory.resolve(".chart-cache");
+        }
+
+        List<ReportJob> jobs = new ArrayList<>();
+        for (String ledger : ledgers) {
+            Path ledgerName = Paths.get(ledger).getFileName();
+            jobs.add(new ReportJob(ledger, outputDirectory.resolve(ledgerName.toString()), month));
+        }
+
+        long start = System.nanoTime();
+        ReportRenderer renderer = new ReportRenderer(cacheDirectory, format, width, height, threads);
+        renderer.renderAll(jobs);
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        System.out.printf("Rendered %d report(s) in %d ms: %d chart(s) drawn, %d served from cache%n",
+                jobs.size(), elapsedMillis, renderer.getRenderedCount(), renderer.getCacheHitCount());
+    }
+
+    private static void printUsage() {
+        System.err.println("Usage: ReportBatch [--out dir] [--cache dir] [--month yyyy-MM] "
+                + "[--format png|svg] [--size WxH] [--threads n] ledgerDir...");
+    }
+}
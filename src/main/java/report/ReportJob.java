@@ -0,0 +1,27 @@
+package report;
+
+import java.nio.file.Path;
+import java.time.YearMonth;
+import java.util.Objects;
+
+// One ledger's monthly report: the charts for the month are written to the output directory
+public class ReportJob {
+    private final String dataDirectory;
+    private final Path outputDirectory;
+    private final YearMonth month;
+
+    public ReportJob(String dataDirectory, Path outputDirectory, YearMonth month) {
+        this.dataDirectory = Objects.requireNonNull(dataDirectory, "Data directory cannot be null");
+        this.outputDirectory = Objects.requireNonNull(outputDirectory, "Output directory cannot be null");
+        this.month = Objects.requireNonNull(month, "Month cannot be null");
+    }
+
+    public String getDataDirectory() { return dataDirectory; }
+    public Path getOutputDirectory() { return outputDirectory; }
+    public YearMonth getMonth() { return month; }
+
+    @Override
+    public String toString() {
+        return dataDirectory + " (" + month + ")";
+    }
+}
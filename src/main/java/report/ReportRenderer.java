@@ -0,0 +1,176 @@
+package report;
+
+import org.jfree.chart.ChartUtils;
+import org.jfree.chart.JFreeChart;
+import org.jfree.data.category.DefaultCategoryDataset;
+import org.jfree.data.general.DefaultPieDataset;
+import org.jfree.svg.SVGGraphics2D;
+import persistence.ExpenseSnapshot;
+import persistence.RepositoryLayout;
+import service.ChartService;
+import service.ExpenseService;
+
+import java.awt.Rectangle;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+// Renders report charts straight to image files without a display. Each image
+// is cached under a hash of the dataset it was drawn from, so a chart whose
+// data did not change since the last run is copied instead of re-rendered.
+public class ReportRenderer {
+    private final Path cacheDirectory;
+    private final ChartFormat format;
+    private final int width;
+    private final int height;
+    private final int threads;
+    private final AtomicInteger rendered = new AtomicInteger();
+    private final AtomicInteger cacheHits = new AtomicInteger();
+
+    public ReportRenderer(Path cacheDirectory, ChartFormat format, int width, int height, int threads) {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("Chart size must be positive");
+        }
+        if (threads <= 0) {
+            throw new IllegalArgumentException("Thread count must be positive");
+        }
+        this.cacheDirectory = cacheDirectory;
+        this.format = format;
+        this.width = width;
+        this.height = height;
+        this.threads = threads;
+    }
+
+    public void renderAll(List<ReportJob> jobs) {
+        ExecutorService workers = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (ReportJob job : jobs) {
+                futures.add(workers.submit(() -> render(job)));
+            }
+
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    futures.get(i).get();
+                } catch (ExecutionException e) {
+                    System.err.println("Failed to render report for " + jobs.get(i) + ": "
+                            + e.getCause().getMessage());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        } finally {
+            workers.shutdownNow();
+        }
+    }
+
+    public void render(ReportJob job) {
+        ExpenseService expenseService = new ExpenseService(RepositoryLayout.open(job.getDataDirectory()));
+        ChartService charts = new ChartService(expenseService);
+        LocalDate monthStart = job.getMonth().atDay(1);
+        LocalDate referenceDate = job.getMonth().atEndOfMonth();
+        ExpenseSnapshot snapshot = expenseService.snapshot();
+
+        try {
+            Files.createDirectories(job.getOutputDirectory());
+            Files.createDirectories(cacheDirectory);
+
+            DefaultPieDataset<String> categories = charts.createCategoryDataset(snapshot, monthStart, referenceDate);
+            writeChart(job, "category-breakdown", hash("category", categories),
+                    categories, ChartService::buildCategoryPieChart);
+            DefaultCategoryDataset monthly = charts.createMonthlyDataset(snapshot, referenceDate);
+            writeChart(job, "monthly-spending", hash("monthly", monthly),
+                    monthly, ChartService::buildMonthlyBarChart);
+            DefaultCategoryDataset trend = charts.createTrendDataset(snapshot, referenceDate);
+            writeChart(job, "spending-trend", hash("trend", trend),
+                    trend, ChartService::buildSpendingTrendChart);
+            DefaultPieDataset<String> payments = charts.createPaymentMethodDataset(snapshot, monthStart, referenceDate);
+            writeChart(job, "payment-methods", hash("payment", payments),
+                    payments, ChartService::buildPaymentMethodChart);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write report for " + job + ": " + e.getMessage(), e);
+        }
+    }
+
+    public int getRenderedCount() { return rendered.get(); }
+    public int getCacheHitCount() { return cacheHits.get(); }
+
+    private <D> void writeChart(ReportJob job, String name, String datasetHash, D dataset,
+                                Function<D, JFreeChart> builder) throws IOException {
+        Path cached = cacheDirectory.resolve(name + "-" + datasetHash + "." + format.getExtension());
+
+        if (Files.exists(cached)) {
+            cacheHits.incrementAndGet();
+        } else {
+            // Render to a private temp file, then publish it under the cache key in one step
+            Path temp = Files.createTempFile(cacheDirectory, name, ".tmp");
+            try {
+                JFreeChart chart = builder.apply(dataset);
+                if (format == ChartFormat.PNG) {
+                    ChartUtils.saveChartAsPNG(temp.toFile(), chart, width, height);
+                } else {
+                    SVGGraphics2D graphics = new SVGGraphics2D(width, height);
+                    chart.draw(graphics, new Rectangle(0, 0, width, height));
+                    Files.write(temp, graphics.getSVGDocument().getBytes(StandardCharsets.UTF_8));
+                }
+                Files.move(temp, cached, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                rendered.incrementAndGet();
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        }
+
+        Files.copy(cached, job.getOutputDirectory().resolve(name + "." + format.getExtension()),
+                StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private String hash(String chart, DefaultPieDataset<String> dataset) {
+        StringBuilder content = new StringBuilder(chart);
+        for (String key : dataset.getKeys()) {
+            content.append('\n').append(key).append('=').append(dataset.getValue(key));
+        }
+        return digest(content);
+    }
+
+    private String hash(String chart, DefaultCategoryDataset dataset) {
+        StringBuilder content = new StringBuilder(chart);
+        for (Object row : dataset.getRowKeys()) {
+            for (Object column : dataset.getColumnKeys()) {
+                content.append('\n').append(row).append('|').append(column).append('=')
+                        .append(dataset.getValue((Comparable<?>) row, (Comparable<?>) column));
+            }
+        }
+        return digest(content);
+    }
+
+    // Output settings are part of the key so a size or format change never serves a stale image
+    private String digest(StringBuilder content) {
+        content.append('\n').append(format).append(' ').append(width).append('x').append(height);
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256")
+                    .digest(content.toString().getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder();
+            for (int i = 0; i < 16; i++) {
+                hex.append(String.format("%02x", hash[i]));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package search;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+// Runs a query off the UI thread once input has been quiet for the delay.
+// A newer submission cancels the pending or running one, and results of a
+// superseded query are never delivered.
+public class DebouncedQuery<T> {
+    private final Function<String, T> query;
+    private final Consumer<T> onResult;
+    private final Executor resultExecutor;
+    private final long delayMillis;
+    private final ScheduledExecutorService scheduler;
+    private final AtomicLong generation = new AtomicLong();
+    private ScheduledFuture<?> pending;
+
+    public DebouncedQuery(Function<String, T> query, Consumer<T> onResult,
+                          Executor resultExecutor, long delayMillis) {
+        this.query = query;
+        this.onResult = onResult;
+        this.resultExecutor = resultExecutor;
+        this.delayMillis = delayMillis;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "debounced-query");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public synchronized void submit(String text) {
+        long current = generation.incrementAndGet();
+        if (pending != null) {
+            pending.cancel(true);
+        }
+        pending = scheduler.schedule(() -> run(text, current), delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    // Drops the pending or running query, so its result is never delivered;
+    // call it before showing rows that did not come from this query
+    public synchronized void cancel() {
+        generation.incrementAndGet();
+        if (pending != null) {
+            pending.cancel(true);
+            pending = null;
+        }
+    }
+
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    private void run(String text, long submitted) {
+        if (generation.get() != submitted) {
+            return;
+        }
+        try {
+            T result = query.apply(text);
+            resultExecutor.execute(() -> {
+                if (generation.get() == submitted) {
+                    onResult.accept(result);
+                }
+            });
+        } catch (CancellationException e) {
+            // Superseded by a newer query
+        } catch (RuntimeException e) {
+            System.err.println("Query failed for '" + text + "': " + e.getMessage());
+        }
+    }
+}
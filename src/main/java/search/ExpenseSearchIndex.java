@@ -0,0 +1,244 @@
+package search;
+
+import model.Expense;
+import persistence.ExpenseRepository;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Inverted index over expense descriptions and categories.
+//
+// Query syntax: whitespace-separated terms must all match ("rent march"),
+// "OR" separates alternatives ("uber OR lyft"), and a trailing '*' matches
+// every term with that prefix ("groc*").
+public class ExpenseSearchIndex {
+
+    private final NavigableMap<String, PostingList> postings = new TreeMap<>();
+    private final Map<String, Integer> docIdsByExpenseId = new HashMap<>();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private Expense[] docs = new Expense[1024];
+    private int docCount;
+    private BitSet deleted = new BitSet();
+    private int deletedCount;
+
+    public ExpenseSearchIndex() {
+    }
+
+    public ExpenseSearchIndex(Collection<Expense> expenses) {
+        expenses.forEach(this::index);
+    }
+
+    public void index(Expense expense) {
+        lock.writeLock().lock();
+        try {
+            removeInternal(expense.getId());
+            addInternal(expense);
+            compactIfSparse();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(String expenseId) {
+        lock.writeLock().lock();
+        try {
+            removeInternal(expenseId);
+            compactIfSparse();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return docIdsByExpenseId.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public List<Expense> search(String query) {
+        if (query == null || query.trim().isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        lock.readLock().lock();
+        try {
+            int[] matches = new int[0];
+            for (String alternative : query.trim().split("\\s+OR\\s+")) {
+                matches = union(matches, matchAll(alternative));
+            }
+
+            List<Expense> results = new ArrayList<>(matches.length);
+            for (int docId : matches) {
+                if (!deleted.get(docId)) {
+                    results.add(docs[docId]);
+                }
+            }
+            results.sort(ExpenseRepository.NEWEST_FIRST);
+            return results;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Exact terms are intersected by walking the shortest list and advancing
+    // the others with their skip points; prefix terms are expanded up front.
+    private int[] matchAll(String conjunction) {
+        List<PostingList> exact = new ArrayList<>();
+        List<int[]> expanded = new ArrayList<>();
+        for (String term : conjunction.trim().split("\\s+")) {
+            boolean prefix = term.endsWith("*");
+            String word = prefix ? term.substring(0, term.length() - 1) : term;
+            for (String token : Tokenizer.tokenize(word)) {
+                if (prefix) {
+                    expanded.add(matchPrefix(token));
+                } else {
+                    PostingList list = postings.get(token);
+                    if (list == null) {
+                        return new int[0];
+                    }
+                    exact.add(list);
+                }
+            }
+        }
+        if (exact.isEmpty() && expanded.isEmpty()) {
+            return new int[0];
+        }
+
+        exact.sort(Comparator.comparingInt(PostingList::size));
+        expanded.sort(Comparator.comparingInt(docIds -> docIds.length));
+        int[] candidates;
+        if (!exact.isEmpty() && (expanded.isEmpty() || exact.get(0).size() <= expanded.get(0).length)) {
+            candidates = exact.remove(0).toArray();
+        } else {
+            candidates = expanded.remove(0);
+        }
+
+        for (int[] docIds : expanded) {
+            candidates = intersect(candidates, docIds);
+        }
+        for (PostingList list : exact) {
+            PostingList.Cursor cursor = list.cursor();
+            int n = 0;
+            for (int candidate : candidates) {
+                int doc = cursor.advance(candidate);
+                if (doc < 0) {
+                    break;
+                }
+                if (doc == candidate) {
+                    candidates[n++] = candidate;
+                }
+            }
+            candidates = Arrays.copyOf(candidates, n);
+        }
+        return candidates;
+    }
+
+    private int[] matchPrefix(String prefix) {
+        int[] result = new int[0];
+        for (PostingList list : postings.subMap(prefix, true, prefix + Character.MAX_VALUE, false).values()) {
+            result = union(result, list.toArray());
+        }
+        return result;
+    }
+
+    private void addInternal(Expense expense) {
+        if (docCount == docs.length) {
+            docs = Arrays.copyOf(docs, docCount * 2);
+        }
+        int docId = docCount++;
+        docs[docId] = expense;
+        docIdsByExpenseId.put(expense.getId(), docId);
+
+        List<String> tokens = new ArrayList<>(Tokenizer.tokenize(expense.getDescription()));
+        for (String token : Tokenizer.tokenize(expense.getCategory())) {
+            if (!tokens.contains(token)) {
+                tokens.add(token);
+            }
+        }
+        for (String token : tokens) {
+            postings.computeIfAbsent(token, key -> new PostingList()).add(docId);
+        }
+    }
+
+    private void removeInternal(String expenseId) {
+        Integer docId = docIdsByExpenseId.remove(expenseId);
+        if (docId != null) {
+            deleted.set(docId);
+            docs[docId] = null;
+            deletedCount++;
+        }
+    }
+
+    // Dead doc ids still sit in the posting lists; rebuild once they dominate
+    private void compactIfSparse() {
+        if (deletedCount > 1024 && deletedCount > docCount / 2) {
+            compact();
+        }
+    }
+
+    private void compact() {
+        List<Expense> live = new ArrayList<>(docIdsByExpenseId.size());
+        for (int docId = 0; docId < docCount; docId++) {
+            if (!deleted.get(docId)) {
+                live.add(docs[docId]);
+            }
+        }
+
+        postings.clear();
+        docIdsByExpenseId.clear();
+        docs = new Expense[Math.max(1024, live.size() * 2)];
+        docCount = 0;
+        deleted = new BitSet();
+        deletedCount = 0;
+        live.forEach(this::addInternal);
+    }
+
+    private static int[] intersect(int[] a, int[] b) {
+        int[] out = new int[Math.min(a.length, b.length)];
+        int i = 0, j = 0, n = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                out[n++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(out, n);
+    }
+
+    private static int[] union(int[] a, int[] b) {
+        if (a.length == 0) return b;
+        if (b.length == 0) return a;
+
+        int[] out = new int[a.length + b.length];
+        int i = 0, j = 0, n = 0;
+        while (i < a.length || j < b.length) {
+            if (j == b.length || (i < a.length && a[i] < b[j])) {
+                out[n++] = a[i++];
+            } else if (i == a.length || b[j] < a[i]) {
+                out[n++] = b[j++];
+            } else {
+                out[n++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(out, n);
+    }
+}
@@ -0,0 +1,116 @@
+package search;
+
+import java.util.Arrays;
+
+// Sorted doc ids stored as variable-length deltas. Doc ids are handed out in
+// increasing order, so an append never has to touch the existing bytes.
+// Every SKIP_INTERVAL entries a skip point is recorded so that intersections
+// can jump over long runs without decoding them.
+final class PostingList {
+    private static final int SKIP_INTERVAL = 64;
+
+    private byte[] data = new byte[8];
+    private int length;
+    private int count;
+    private int lastDoc = -1;
+    private int[] skipDocs = new int[0];
+    private int[] skipOffsets = new int[0];
+    private int skipCount;
+
+    void add(int docId) {
+        if (docId <= lastDoc) {
+            throw new IllegalArgumentException("Doc ids must be appended in increasing order");
+        }
+        if (count > 0 && count % SKIP_INTERVAL == 0) {
+            addSkip();
+        }
+        int delta = docId - lastDoc;
+        ensureCapacity(length + 5);
+        while ((delta & ~0x7F) != 0) {
+            data[length++] = (byte) ((delta & 0x7F) | 0x80);
+            delta >>>= 7;
+        }
+        data[length++] = (byte) delta;
+        lastDoc = docId;
+        count++;
+    }
+
+    int size() {
+        return count;
+    }
+
+    int[] toArray() {
+        int[] docs = new int[count];
+        Cursor cursor = cursor();
+        for (int i = 0; i < count; i++) {
+            docs[i] = cursor.next();
+        }
+        return docs;
+    }
+
+    Cursor cursor() {
+        return new Cursor();
+    }
+
+    // Skip point: the doc id preceding the block and the byte offset where the block starts
+    private void addSkip() {
+        if (skipCount == skipDocs.length) {
+            skipDocs = Arrays.copyOf(skipDocs, Math.max(4, skipCount * 2));
+            skipOffsets = Arrays.copyOf(skipOffsets, Math.max(4, skipCount * 2));
+        }
+        skipDocs[skipCount] = lastDoc;
+        skipOffsets[skipCount] = length;
+        skipCount++;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > data.length) {
+            data = Arrays.copyOf(data, Math.max(capacity, data.length * 2));
+        }
+    }
+
+    final class Cursor {
+        private int position;
+        private int index;
+        private int doc = -1;
+
+        // Next doc id, or -1 when exhausted
+        int next() {
+            if (index >= count) {
+                return -1;
+            }
+            int delta = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = data[position++];
+                delta |= (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+            doc += delta;
+            index++;
+            return doc;
+        }
+
+        // First doc id >= target, or -1 when there is none
+        int advance(int target) {
+            if (doc >= target) {
+                return doc;
+            }
+
+            int skip = Arrays.binarySearch(skipDocs, 0, skipCount, target);
+            skip = skip >= 0 ? skip - 1 : -skip - 2;
+            if (skip >= 0 && skipDocs[skip] > doc) {
+                doc = skipDocs[skip];
+                position = skipOffsets[skip];
+                index = (skip + 1) * SKIP_INTERVAL;
+            }
+
+            int next;
+            do {
+                next = next();
+            } while (next >= 0 && next < target);
+            return next;
+        }
+    }
+}
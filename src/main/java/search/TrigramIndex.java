@@ -0,0 +1,204 @@
+package search;
+
+import model.Expense;
+import persistence.ExpenseRepository;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Substring filter over description and category. Every lower-cased trigram
+// of an expense maps to the docs containing it, so a query only verifies the
+// docs that contain all of its trigrams instead of scanning every row.
+public class TrigramIndex {
+    // How often a running filter checks whether it has been cancelled
+    private static final int CANCEL_CHECK_INTERVAL = 4096;
+
+    private final Map<Long, IntList> postings = new HashMap<>();
+    private final Map<String, Integer> docIdsByExpenseId = new HashMap<>();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private Expense[] docs = new Expense[1024];
+    private int docCount;
+    private BitSet deleted = new BitSet();
+    private int deletedCount;
+
+    public TrigramIndex() {
+    }
+
+    public TrigramIndex(Collection<Expense> expenses) {
+        expenses.forEach(this::index);
+    }
+
+    public void index(Expense expense) {
+        lock.writeLock().lock();
+        try {
+            removeInternal(expense.getId());
+            addInternal(expense);
+            compactIfSparse();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(String expenseId) {
+        lock.writeLock().lock();
+        try {
+            removeInternal(expenseId);
+            compactIfSparse();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Expenses whose description or category contains the text, ignoring case,
+    // newest first. Throws CancellationException if the calling thread is interrupted.
+    public List<Expense> filter(String text) {
+        String needle = text == null ? "" : text.trim().toLowerCase(Locale.ROOT);
+
+        lock.readLock().lock();
+        try {
+            List<Expense> matches = new ArrayList<>();
+            int[] candidates = needle.length() < 3 ? null : candidates(needle);
+            int total = candidates == null ? docCount : candidates.length;
+
+            for (int i = 0; i < total; i++) {
+                if (i % CANCEL_CHECK_INTERVAL == 0 && Thread.currentThread().isInterrupted()) {
+                    throw new CancellationException("Filter cancelled: " + text);
+                }
+                int docId = candidates == null ? i : candidates[i];
+                if (deleted.get(docId)) {
+                    continue;
+                }
+                Expense expense = docs[docId];
+                if (containsIgnoreCase(expense.getDescription(), needle)
+                        || containsIgnoreCase(expense.getCategory(), needle)) {
+                    matches.add(expense);
+                }
+            }
+
+            matches.sort(ExpenseRepository.NEWEST_FIRST);
+            return matches;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private int[] candidates(String needle) {
+        List<IntList> lists = new ArrayList<>();
+        for (long trigram : trigrams(needle)) {
+            IntList list = postings.get(trigram);
+            if (list == null) {
+                return new int[0];
+            }
+            lists.add(list);
+        }
+        lists.sort(Comparator.comparingInt(list -> list.size));
+
+        int[] result = Arrays.copyOf(lists.get(0).values, lists.get(0).size);
+        for (int i = 1; i < lists.size() && result.length > 0; i++) {
+            result = intersect(result, lists.get(i));
+        }
+        return result;
+    }
+
+    private void addInternal(Expense expense) {
+        if (docCount == docs.length) {
+            docs = Arrays.copyOf(docs, docCount * 2);
+        }
+        int docId = docCount++;
+        docs[docId] = expense;
+        docIdsByExpenseId.put(expense.getId(), docId);
+
+        Set<Long> trigrams = trigrams(expense.getDescription().toLowerCase(Locale.ROOT));
+        trigrams.addAll(trigrams(expense.getCategory().toLowerCase(Locale.ROOT)));
+        for (long trigram : trigrams) {
+            postings.computeIfAbsent(trigram, key -> new IntList()).add(docId);
+        }
+    }
+
+    private void removeInternal(String expenseId) {
+        Integer docId = docIdsByExpenseId.remove(expenseId);
+        if (docId != null) {
+            deleted.set(docId);
+            docs[docId] = null;
+            deletedCount++;
+        }
+    }
+
+    private void compactIfSparse() {
+        if (deletedCount > 1024 && deletedCount > docCount / 2) {
+            List<Expense> live = new ArrayList<>(docIdsByExpenseId.size());
+            for (int docId = 0; docId < docCount; docId++) {
+                if (!deleted.get(docId)) {
+                    live.add(docs[docId]);
+                }
+            }
+
+            postings.clear();
+            docIdsByExpenseId.clear();
+            docs = new Expense[Math.max(1024, live.size() * 2)];
+            docCount = 0;
+            deleted = new BitSet();
+            deletedCount = 0;
+            live.forEach(this::addInternal);
+        }
+    }
+
+    // Three UTF-16 chars packed into one long
+    private static Set<Long> trigrams(String text) {
+        Set<Long> trigrams = new HashSet<>();
+        for (int i = 0; i + 3 <= text.length(); i++) {
+            trigrams.add(((long) text.charAt(i) << 32) | ((long) text.charAt(i + 1) << 16) | text.charAt(i + 2));
+        }
+        return trigrams;
+    }
+
+    private static boolean containsIgnoreCase(String haystack, String lowerNeedle) {
+        int max = haystack.length() - lowerNeedle.length();
+        for (int i = 0; i <= max; i++) {
+            if (haystack.regionMatches(true, i, lowerNeedle, 0, lowerNeedle.length())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int[] intersect(int[] a, IntList b) {
+        int[] out = new int[Math.min(a.length, b.size)];
+        int i = 0, j = 0, n = 0;
+        while (i < a.length && j < b.size) {
+            if (a[i] < b.values[j]) {
+                i++;
+            } else if (a[i] > b.values[j]) {
+                j++;
+            } else {
+                out[n++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(out, n);
+    }
+
+    private static final class IntList {
+        private int[] values = new int[4];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+    }
+}
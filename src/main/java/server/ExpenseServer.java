@@ -0,0 +1,377 @@
+package server;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import jfr.FlightRecording;
+import metrics.InstrumentedExpenseRepository;
+import metrics.InstrumentedExpenseService;
+import metrics.MetricsRegistry;
+import metrics.MetricsReporter;
+import metrics.SlowOperationLog;
+import model.Expense;
+import model.PaymentMethod;
+import persistence.ExpenseSnapshot;
+import persistence.ExpenseStats;
+import persistence.RepositoryLayout;
+import service.ExpenseService;
+import validation.ValidationException;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+// Local HTTP API over one ExpenseService, so several clients share a single
+// repository instead of each front end opening the data directory itself:
+//
+//   GET    /expenses[?from=&to= | ?category= | ?q=]   JSON array, streamed
+//   GET    /expenses/{id}
+//   POST   /expenses      {"amount": 12.5, "category": "Food", "description": "...",
+//                          "date": "2024-03-01", "paymentMethod": "CASH"}
+//   DELETE /expenses/{id}
+//   GET    /summary[?from=&to= | ?year=&month=]
+//
+// At most maxConcurrent requests are served at once; others wait up to a
+// second for a slot and then get 503. Requests run on virtual threads when
+// the JVM has them (Java 21+), so any number can wait. On the platform-thread
+// fallback the pool has twice maxConcurrent threads, so as many requests
+// can wait as are being served. Up to maxConcurrent more queue for a thread.
+// Past that the JDK server closes the connection without a response, since
+// its executor cannot answer a request it rejects. Connections stay open
+// between requests (HTTP/1.1 keep-alive), and listings are written row by
+// row with chunked encoding.
+public class ExpenseServer {
+    private static final int MAX_BODY_BYTES = 64 * 1024;
+    private static final long SLOT_WAIT_MILLIS = 1000;
+
+    private final ExpenseService service;
+    private final HttpServer http;
+    private final ExecutorService executor;
+    private final boolean virtualThreads;
+    private final Semaphore slots;
+
+    public ExpenseServer(ExpenseService service, InetSocketAddress address, int maxConcurrent) throws IOException {
+        if (maxConcurrent <= 0) {
+            throw new IllegalArgumentException("Concurrency limit must be positive");
+        }
+        this.service = service;
+        this.slots = new Semaphore(maxConcurrent);
+        ExecutorService virtual = virtualThreadExecutor();
+        this.virtualThreads = virtual != null;
+        if (virtual != null) {
+            this.executor = virtual;
+        } else {
+            AtomicInteger count = new AtomicInteger();
+            // Threads beyond the slots are what let a request wait for one and get its 503
+            int threads = 2 * maxConcurrent;
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                    new ArrayBlockingQueue<>(maxConcurrent), task -> {
+                        Thread thread = new Thread(task, "http-worker-" + count.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+            pool.allowCoreThreadTimeOut(true);
+            this.executor = pool;
+        }
+        // Without TCP_NODELAY small responses on a kept-alive connection
+        // stall on delayed ACKs (~40 ms each)
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+        this.http = HttpServer.create(address, 0);
+        this.http.setExecutor(executor);
+        this.http.createContext("/", this::handle);
+    }
+
+    // Executors.newVirtualThreadPerTaskExecutor() where it exists; the build
+    // still targets Java 11, so it is looked up rather than called directly
+    private static ExecutorService virtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    public void start() {
+        http.start();
+        System.out.println("Expense API listening on http://" + http.getAddress().getHostString() + ":" + getPort()
+                + (virtualThreads ? " (virtual threads)" : " (platform threads)"));
+    }
+
+    public void stop(int delaySeconds) {
+        http.stop(delaySeconds);
+        executor.shutdown();
+    }
+
+    public int getPort() {
+        return http.getAddress().getPort();
+    }
+
+    public boolean usesVirtualThreads() {
+        return virtualThreads;
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            if (!slots.tryAcquire(SLOT_WAIT_MILLIS, TimeUnit.MILLISECONDS)) {
+                exchange.getResponseHeaders().set("Retry-After", "1");
+                sendError(exchange, 503, "Server busy, try again");
+                return;
+            }
+            try {
+                route(exchange);
+            } finally {
+                slots.release();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            sendError(exchange, 503, "Server shutting down");
+        } catch (IllegalArgumentException | ValidationException | DateTimeParseException e) {
+            sendError(exchange, 400, e.getMessage());
+        } catch (IOException e) {
+            // Usually the client went away mid-response
+            System.err.println("Request " + exchange.getRequestURI() + " failed: " + e.getMessage());
+        } catch (RuntimeException e) {
+            System.err.println("Request " + exchange.getRequestURI() + " failed: " + e);
+            sendError(exchange, 500, "Internal error: " + e.getMessage());
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void route(HttpExchange exchange) throws IOException {
+        String method = exchange.getRequestMethod();
+        String path = exchange.getRequestURI().getPath();
+        Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+
+        if (path.equals("/expenses") || path.equals("/expenses/")) {
+            if (method.equals("GET")) {
+                listExpenses(exchange, query);
+            } else if (method.equals("POST")) {
+                addExpense(exchange);
+            } else {
+                sendError(exchange, 405, "Use GET or POST on /expenses");
+            }
+        } else if (path.startsWith("/expenses/")) {
+            String id = path.substring("/expenses/".length());
+            if (method.equals("GET")) {
+                Optional<Expense> expense = service.findExpenseById(id);
+                if (expense.isPresent()) {
+                    send(exchange, 200, Json.expense(expense.get()));
+                } else {
+                    sendError(exchange, 404, "Expense not found with ID: " + id);
+                }
+            } else if (method.equals("DELETE")) {
+                if (service.deleteExpense(id)) {
+                    exchange.sendResponseHeaders(204, -1);
+                } else {
+                    sendError(exchange, 404, "Expense not found with ID: " + id);
+                }
+            } else {
+                sendError(exchange, 405, "Use GET or DELETE on /expenses/{id}");
+            }
+        } else if (path.equals("/summary")) {
+            if (method.equals("GET")) {
+                summary(exchange, query);
+            } else {
+                sendError(exchange, 405, "Use GET on /summary");
+            }
+        } else {
+            sendError(exchange, 404, "No such endpoint: " + path);
+        }
+    }
+
+    private void listExpenses(HttpExchange exchange, Map<String, String> query) throws IOException {
+        if (query.containsKey("q")) {
+            stream(exchange, service.searchExpenses(query.get("q")).iterator());
+        } else if (query.containsKey("category")) {
+            stream(exchange, service.getExpensesByCategory(query.get("category")).iterator());
+        } else if (query.containsKey("from") || query.containsKey("to")) {
+            try (Stream<Expense> rows = service.streamExpenses(date(query, "from", Expense.EARLIEST_DATE),
+                    date(query, "to", Expense.LATEST_DATE))) {
+                stream(exchange, rows.iterator());
+            }
+        } else {
+            // One pinned version, walked in place
+            stream(exchange, service.snapshot().iterator());
+        }
+    }
+
+    private void addExpense(HttpExchange exchange) throws IOException {
+        byte[] body = exchange.getRequestBody().readNBytes(MAX_BODY_BYTES + 1);
+        if (body.length > MAX_BODY_BYTES) {
+            sendError(exchange, 413, "Request body larger than " + MAX_BODY_BYTES + " bytes");
+            return;
+        }
+        Map<String, String> fields = Json.parseObject(new String(body, StandardCharsets.UTF_8));
+        String amount = fields.get("amount");
+        if (amount == null) {
+            throw new IllegalArgumentException("amount is required");
+        }
+        String date = fields.get("date");
+        String paymentMethod = fields.get("paymentMethod");
+
+        Expense expense = service.addExpense(Double.parseDouble(amount),
+                fields.getOrDefault("category", ""),
+                fields.getOrDefault("description", ""),
+                date != null ? LocalDate.parse(date) : LocalDate.now(),
+                paymentMethod != null ? PaymentMethod.valueOf(paymentMethod.trim().toUpperCase())
+                        : PaymentMethod.CASH);
+        exchange.getResponseHeaders().set("Location", "/expenses/" + expense.getId());
+        send(exchange, 201, Json.expense(expense));
+    }
+
+    private void summary(HttpExchange exchange, Map<String, String> query) throws IOException {
+        Map<String, Object> result = new LinkedHashMap<>();
+        if (query.containsKey("year") || query.containsKey("month")) {
+            int year = Integer.parseInt(required(query, "year"));
+            int month = Integer.parseInt(required(query, "month"));
+            Map<String, Double> categories = service.getMonthlySummary(year, month);
+            result.put("year", year);
+            result.put("month", month);
+            result.put("total", categories.values().stream().mapToDouble(Double::doubleValue).sum());
+            result.put("categories", new TreeMap<>(categories));
+        } else if (query.containsKey("from") || query.containsKey("to")) {
+            LocalDate from = date(query, "from", Expense.EARLIEST_DATE);
+            LocalDate to = date(query, "to", Expense.LATEST_DATE);
+            ExpenseStats stats = service.getStats(from, to);
+            result.put("from", from.toString());
+            result.put("to", to.toString());
+            result.put("count", stats.getCount());
+            result.put("total", stats.getSum());
+        } else {
+            ExpenseSnapshot snapshot = service.snapshot();
+            result.put("count", snapshot.size());
+            result.put("total", service.getTotalSpent(snapshot));
+            result.put("categories", new TreeMap<>(service.getCategorySummary(snapshot)));
+        }
+        send(exchange, 200, Json.object(result));
+    }
+
+    private static void stream(HttpExchange exchange, Iterator<Expense> rows) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        // Length 0: chunked, so rows go out as they are written
+        exchange.sendResponseHeaders(200, 0);
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(exchange.getResponseBody(),
+                StandardCharsets.UTF_8), 1 << 16)) {
+            out.write('[');
+            boolean first = true;
+            while (rows.hasNext()) {
+                if (!first) {
+                    out.write(',');
+                }
+                first = false;
+                Json.writeExpense(out, rows.next());
+            }
+            out.write(']');
+        }
+    }
+
+    private static void send(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static void sendError(HttpExchange exchange, int status, String message) {
+        // Nothing more can be said once a response has started
+        if (exchange.getResponseCode() != -1) {
+            return;
+        }
+        Map<String, Object> error = new HashMap<>();
+        error.put("error", message != null ? message : "");
+        try {
+            send(exchange, status, Json.object(error));
+        } catch (IOException e) {
+            System.err.println("Failed to send error response: " + e.getMessage());
+        }
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> query = new HashMap<>();
+        if (rawQuery == null || rawQuery.isEmpty()) {
+            return query;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int equals = pair.indexOf('=');
+            String name = equals < 0 ? pair : pair.substring(0, equals);
+            String value = equals < 0 ? "" : pair.substring(equals + 1);
+            query.put(URLDecoder.decode(name, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return query;
+    }
+
+    private static String required(Map<String, String> query, String name) {
+        String value = query.get(name);
+        if (value == null || value.isEmpty()) {
+            throw new IllegalArgumentException(name + " is required");
+        }
+        return value;
+    }
+
+    private static LocalDate date(Map<String, String> query, String name, LocalDate fallback) {
+        String value = query.get(name);
+        return value == null || value.isEmpty() ? fallback : LocalDate.parse(value);
+    }
+
+    //   java -cp ... server.ExpenseServer [--data dir] [--port n] [--max-concurrent n]
+    public static void main(String[] args) throws IOException {
+        String data = "data";
+        int port = 8080;
+        int maxConcurrent = 64;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--data":
+                    data = args[++i];
+                    break;
+                case "--port":
+                    port = Integer.parseInt(args[++i]);
+                    break;
+                case "--max-concurrent":
+                    maxConcurrent = Integer.parseInt(args[++i]);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+
+        // Started before the repository opens, so the initial load is recorded
+        FlightRecording.startIfConfigured();
+        MetricsRegistry metrics = MetricsRegistry.shared();
+        ExpenseService service = new InstrumentedExpenseService(
+                new InstrumentedExpenseRepository(RepositoryLayout.openLazily(data, 90), metrics), metrics);
+        metrics.exportToJmx();
+        MetricsReporter.startIfConfigured(metrics);
+        SlowOperationLog.startIfConfigured(metrics);
+        // Local use only: bound to the loopback interface
+        ExpenseServer server = new ExpenseServer(service,
+                new InetSocketAddress(InetAddress.getLoopbackAddress(), port), maxConcurrent);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> server.stop(1), "expense-api-shutdown"));
+        server.start();
+    }
+}
@@ -0,0 +1,226 @@
+package server;
+
+import model.Expense;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Just enough JSON for the HTTP API: expenses and flat objects out, one flat
+// object of strings and numbers in
+final class Json {
+    private Json() {
+    }
+
+    static void writeExpense(Appendable out, Expense expense) throws IOException {
+        out.append("{\"id\":");
+        writeString(out, expense.getId());
+        out.append(",\"date\":\"").append(expense.getDate().toString());
+        out.append("\",\"amount\":").append(String.valueOf(expense.getAmount()));
+        out.append(",\"category\":");
+        writeString(out, expense.getCategory());
+        out.append(",\"paymentMethod\":\"").append(expense.getPaymentMethod().name());
+        out.append("\",\"description\":");
+        writeString(out, expense.getDescription());
+        out.append('}');
+    }
+
+    static String expense(Expense expense) {
+        StringBuilder out = new StringBuilder(128);
+        try {
+            writeExpense(out, expense);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return out.toString();
+    }
+
+    // Values must be String, Number, Boolean or a nested Map
+    static String object(Map<String, ?> fields) {
+        StringBuilder out = new StringBuilder();
+        try {
+            writeObject(out, fields);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return out.toString();
+    }
+
+    private static void writeObject(Appendable out, Map<String, ?> fields) throws IOException {
+        out.append('{');
+        boolean first = true;
+        for (Map.Entry<String, ?> field : fields.entrySet()) {
+            if (!first) {
+                out.append(',');
+            }
+            first = false;
+            writeString(out, field.getKey());
+            out.append(':');
+            Object value = field.getValue();
+            if (value instanceof Map) {
+                @SuppressWarnings("unchecked")
+                Map<String, ?> nested = (Map<String, ?>) value;
+                writeObject(out, nested);
+            } else if (value instanceof Number || value instanceof Boolean) {
+                out.append(String.valueOf(value));
+            } else {
+                writeString(out, String.valueOf(value));
+            }
+        }
+        out.append('}');
+    }
+
+    static void writeString(Appendable out, String value) throws IOException {
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"': out.append("\\\""); break;
+                case '\\': out.append("\\\\"); break;
+                case '\n': out.append("\\n"); break;
+                case '\r': out.append("\\r"); break;
+                case '\t': out.append("\\t"); break;
+                default:
+                    if (c < 0x20) {
+                        out.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.append(c);
+                    }
+            }
+        }
+        out.append('"');
+    }
+
+    // {"name": "text" | number | true | false | null, ...}; numbers are
+    // returned as their text
+    static Map<String, String> parseObject(String text) {
+        Parser parser = new Parser(text);
+        Map<String, String> fields = parser.object();
+        parser.skipSpace();
+        if (parser.position != text.length()) {
+            throw parser.error("Unexpected text after object");
+        }
+        return fields;
+    }
+
+    private static final class Parser {
+        private final String text;
+        private int position;
+
+        Parser(String text) {
+            this.text = text;
+        }
+
+        Map<String, String> object() {
+            Map<String, String> fields = new LinkedHashMap<>();
+            expect('{');
+            skipSpace();
+            if (peek() == '}') {
+                position++;
+                return fields;
+            }
+            while (true) {
+                skipSpace();
+                String name = string();
+                skipSpace();
+                expect(':');
+                skipSpace();
+                fields.put(name, value());
+                skipSpace();
+                char c = next();
+                if (c == '}') {
+                    return fields;
+                }
+                if (c != ',') {
+                    throw error("Expected ',' or '}'");
+                }
+            }
+        }
+
+        private String value() {
+            char c = peek();
+            if (c == '"') {
+                return string();
+            }
+            int start = position;
+            while (position < text.length() && "{}[],: \t\r\n\"".indexOf(text.charAt(position)) < 0) {
+                position++;
+            }
+            String literal = text.substring(start, position);
+            if (literal.equals("null")) {
+                return null;
+            }
+            if (literal.isEmpty() || !(literal.equals("true") || literal.equals("false")
+                    || literal.matches("-?\\d+(\\.\\d+)?([eE][+-]?\\d+)?"))) {
+                throw error("Expected a string, number or literal");
+            }
+            return literal;
+        }
+
+        private String string() {
+            expect('"');
+            StringBuilder value = new StringBuilder();
+            while (true) {
+                char c = next();
+                if (c == '"') {
+                    return value.toString();
+                }
+                if (c != '\\') {
+                    value.append(c);
+                    continue;
+                }
+                char escaped = next();
+                switch (escaped) {
+                    case '"': case '\\': case '/': value.append(escaped); break;
+                    case 'b': value.append('\b'); break;
+                    case 'f': value.append('\f'); break;
+                    case 'n': value.append('\n'); break;
+                    case 'r': value.append('\r'); break;
+                    case 't': value.append('\t'); break;
+                    case 'u':
+                        if (position + 4 > text.length()) {
+                            throw error("Bad unicode escape");
+                        }
+                        try {
+                            value.append((char) Integer.parseInt(text.substring(position, position + 4), 16));
+                        } catch (NumberFormatException e) {
+                            throw error("Bad unicode escape");
+                        }
+                        position += 4;
+                        break;
+                    default:
+                        throw error("Bad escape");
+                }
+            }
+        }
+
+        void skipSpace() {
+            while (position < text.length() && Character.isWhitespace(text.charAt(position))) {
+                position++;
+            }
+        }
+
+        private char peek() {
+            if (position >= text.length()) {
+                throw error("Unexpected end of input");
+            }
+            return text.charAt(position);
+        }
+
+        private char next() {
+            char c = peek();
+            position++;
+            return c;
+        }
+
+        private void expect(char c) {
+            if (next() != c) {
+                throw error("Expected '" + c + "'");
+            }
+        }
+
+        IllegalArgumentException error(String message) {
+            return new IllegalArgumentException("Invalid JSON at offset " + position + ": " + message);
+        }
+    }
+}
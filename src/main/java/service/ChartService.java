@@ -1,6 +1,8 @@
 package service;
 
+import jfr.ChartRefreshEvent;
 import model.Expense;
+import persistence.ExpenseSnapshot;
 import org.jfree.chart.ChartFactory;
 import org.jfree.chart.ChartPanel;
 import org.jfree.chart.JFreeChart;
@@ -14,6 +16,7 @@ import java.time.LocalDate;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 public class ChartService {
     private final ExpenseService expenseService;
@@ -23,9 +26,61 @@ public class ChartService {
     }
 
     public JPanel createCategoryPieChart() {
-        DefaultPieDataset dataset = new DefaultPieDataset();
+        return createCategoryPieChart(expenseService.snapshot());
+    }
+
+    public JPanel createMonthlyBarChart() {
+        return createMonthlyBarChart(expenseService.snapshot());
+    }
+
+    public JPanel createSpendingTrendChart() {
+        return createSpendingTrendChart(expenseService.snapshot());
+    }
+
+    public JPanel createPaymentMethodChart() {
+        return createPaymentMethodChart(expenseService.snapshot());
+    }
+
+    public JPanel createCategoryPieChart(ExpenseSnapshot snapshot) {
+        return chartPanel(buildCategoryPieChart(createCategoryDataset(snapshot)));
+    }
+
+    public JPanel createMonthlyBarChart(ExpenseSnapshot snapshot) {
+        return chartPanel(buildMonthlyBarChart(createMonthlyDataset(snapshot, LocalDate.now())));
+    }
+
+    public JPanel createSpendingTrendChart(ExpenseSnapshot snapshot) {
+        return chartPanel(buildSpendingTrendChart(createTrendDataset(snapshot, LocalDate.now())));
+    }
+
+    public JPanel createPaymentMethodChart(ExpenseSnapshot snapshot) {
+        return chartPanel(buildPaymentMethodChart(createPaymentMethodDataset(snapshot)));
+    }
+
+    private JPanel chartPanel(JFreeChart chart) {
+        ChartPanel chartPanel = new ChartPanel(chart);
+        chartPanel.setPreferredSize(new Dimension(500, 300));
+        return chartPanel;
+    }
+
+    // Dataset construction and chart building never touch Swing, so they also
+    // work with java.awt.headless=true (see report.ReportRenderer).
+
+    public DefaultPieDataset<String> createCategoryDataset() {
+        return createCategoryDataset(expenseService.snapshot());
+    }
+
+    public DefaultPieDataset<String> createCategoryDataset(ExpenseSnapshot snapshot) {
+        return categoryDataset(expenseService.getCategorySummary(snapshot));
+    }
+
+    public DefaultPieDataset<String> createCategoryDataset(ExpenseSnapshot snapshot,
+                                                           LocalDate startDate, LocalDate endDate) {
+        return categoryDataset(expenseService.getCategorySummary(snapshot, startDate, endDate));
+    }
 
-        Map<String, Double> categorySummary = expenseService.getCategorySummary();
+    private static DefaultPieDataset<String> categoryDataset(Map<String, Double> categorySummary) {
+        DefaultPieDataset<String> dataset = new DefaultPieDataset<>();
 
         if (categorySummary.isEmpty()) {
             // Create empty dataset with message
@@ -37,31 +92,18 @@ public class ChartService {
                 }
             });
         }
+        return dataset;
+    }
 
-        JFreeChart chart = ChartFactory.createPieChart(
-                "Spending by Category",
-                dataset,
-                true,
-                true,
-                false
-        );
-
-        PiePlot plot = (PiePlot) chart.getPlot();
-        plot.setSectionOutlinesVisible(false);
-        plot.setLabelFont(new Font("SansSerif", Font.PLAIN, 12));
-        plot.setNoDataMessage("No data available");
-        plot.setCircular(true);
-
-        ChartPanel chartPanel = new ChartPanel(chart);
-        chartPanel.setPreferredSize(new Dimension(500, 300));
-        return chartPanel;
+    public DefaultCategoryDataset createMonthlyDataset(LocalDate referenceDate) {
+        return createMonthlyDataset(expenseService.snapshot(), referenceDate);
     }
 
-    public JPanel createMonthlyBarChart() {
+    public DefaultCategoryDataset createMonthlyDataset(ExpenseSnapshot snapshot, LocalDate referenceDate) {
         DefaultCategoryDataset dataset = new DefaultCategoryDataset();
 
-        LocalDate now = LocalDate.now();
-        Map<String, Double> monthlySummary = expenseService.getMonthlySummary(now.getYear(), now.getMonthValue());
+        Map<String, Double> monthlySummary = expenseService.getMonthlySummary(snapshot,
+                referenceDate.getYear(), referenceDate.getMonthValue());
 
         if (monthlySummary.isEmpty()) {
             dataset.addValue(0, "Spending", "No Data");
@@ -70,28 +112,20 @@ public class ChartService {
                 dataset.addValue(amount, "Spending", category);
             });
         }
+        return dataset;
+    }
 
-        JFreeChart chart = ChartFactory.createBarChart(
-                "Monthly Spending by Category",
-                "Category",
-                "Amount ($)",
-                dataset
-        );
-
-        chart.setBackgroundPaint(Color.white);
-
-        ChartPanel chartPanel = new ChartPanel(chart);
-        chartPanel.setPreferredSize(new Dimension(500, 300));
-        return chartPanel;
+    public DefaultCategoryDataset createTrendDataset(LocalDate referenceDate) {
+        return createTrendDataset(expenseService.snapshot(), referenceDate);
     }
 
-    public JPanel createSpendingTrendChart() {
+    public DefaultCategoryDataset createTrendDataset(ExpenseSnapshot snapshot, LocalDate referenceDate) {
         DefaultCategoryDataset dataset = new DefaultCategoryDataset();
 
-        LocalDate endDate = LocalDate.now();
-        LocalDate startDate = endDate.minusMonths(5).withDayOfMonth(1);
+        LocalDate startDate = referenceDate.minusMonths(5).withDayOfMonth(1);
 
-        List<Expense> recentExpenses = expenseService.getExpensesByDateRange(startDate, endDate);
+        List<Expense> recentExpenses = snapshot.streamByDateRange(startDate, referenceDate)
+                .collect(Collectors.toList());
 
         if (recentExpenses.isEmpty()) {
             dataset.addValue(0, "Total Spending", "No Data");
@@ -106,77 +140,120 @@ public class ChartService {
                 dataset.addValue(amount, "Total Spending", month);
             });
         }
+        return dataset;
+    }
 
-        JFreeChart chart = ChartFactory.createLineChart(
-                "Spending Trend (Last 6 Months)",
-                "Month",
-                "Amount ($)",
-                dataset
-        );
+    public DefaultPieDataset<String> createPaymentMethodDataset() {
+        return createPaymentMethodDataset(expenseService.snapshot());
+    }
 
-        ChartPanel chartPanel = new ChartPanel(chart);
-        chartPanel.setPreferredSize(new Dimension(500, 300));
-        return chartPanel;
+    public DefaultPieDataset<String> createPaymentMethodDataset(ExpenseSnapshot snapshot) {
+        return paymentMethodDataset(snapshot.stream());
     }
 
-    public JPanel createPaymentMethodChart() {
-        DefaultPieDataset dataset = new DefaultPieDataset();
+    public DefaultPieDataset<String> createPaymentMethodDataset(ExpenseSnapshot snapshot,
+                                                                LocalDate startDate, LocalDate endDate) {
+        return paymentMethodDataset(snapshot.streamByDateRange(startDate, endDate));
+    }
+
+    private static DefaultPieDataset<String> paymentMethodDataset(Stream<Expense> expenses) {
+        DefaultPieDataset<String> dataset = new DefaultPieDataset<>();
 
-        List<Expense> allExpenses = expenseService.getAllExpenses();
+        Map<String, Double> paymentSummary = expenses
+                .collect(Collectors.groupingBy(
+                        expense -> expense.getPaymentMethod().getDisplayName(),
+                        Collectors.summingDouble(Expense::getAmount)
+                ));
 
-        if (allExpenses.isEmpty()) {
+        if (paymentSummary.isEmpty()) {
             dataset.setValue("No Data Available", 1);
         } else {
-            Map<String, Double> paymentSummary = allExpenses.stream()
-                    .collect(Collectors.groupingBy(
-                            expense -> expense.getPaymentMethod().getDisplayName(),
-                            Collectors.summingDouble(Expense::getAmount)
-                    ));
-
             paymentSummary.forEach((method, amount) -> {
                 if (amount > 0) {
                     dataset.setValue(method + " ($" + String.format("%.2f", amount) + ")", amount);
                 }
             });
         }
+        return dataset;
+    }
 
-        JFreeChart chart = ChartFactory.createRingChart(
-                "Spending by Payment Method",
+    public static JFreeChart buildCategoryPieChart(DefaultPieDataset<String> dataset) {
+        JFreeChart chart = ChartFactory.createPieChart(
+                "Spending by Category",
                 dataset,
                 true,
                 true,
                 false
         );
 
-        ChartPanel chartPanel = new ChartPanel(chart);
-        chartPanel.setPreferredSize(new Dimension(500, 300));
-        return chartPanel;
+        PiePlot<?> plot = (PiePlot<?>) chart.getPlot();
+        plot.setSectionOutlinesVisible(false);
+        plot.setLabelFont(new Font("SansSerif", Font.PLAIN, 12));
+        plot.setNoDataMessage("No data available");
+        plot.setCircular(true);
+        return chart;
+    }
+
+    public static JFreeChart buildMonthlyBarChart(DefaultCategoryDataset dataset) {
+        JFreeChart chart = ChartFactory.createBarChart(
+                "Monthly Spending by Category",
+                "Category",
+                "Amount ($)",
+                dataset
+        );
+
+        chart.setBackgroundPaint(Color.white);
+        return chart;
+    }
+
+    public static JFreeChart buildSpendingTrendChart(DefaultCategoryDataset dataset) {
+        return ChartFactory.createLineChart(
+                "Spending Trend (Last 6 Months)",
+                "Month",
+                "Amount ($)",
+                dataset
+        );
+    }
+
+    public static JFreeChart buildPaymentMethodChart(DefaultPieDataset<String> dataset) {
+        return ChartFactory.createRingChart(
+                "Spending by Payment Method",
+                dataset,
+                true,
+                true,
+                false
+        );
     }
 
     // Method to refresh all charts
     public void refreshCharts(JTabbedPane chartTabs) {
+        ChartRefreshEvent event = new ChartRefreshEvent();
+        event.begin();
+        // Every tab is computed from this one version, even if expenses change meanwhile
+        ExpenseSnapshot snapshot = expenseService.snapshot();
+
         // Remove all existing tabs
         chartTabs.removeAll();
 
         // Recreate all chart panels
         JPanel pieChartPanel = new JPanel(new BorderLayout());
         pieChartPanel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
-        pieChartPanel.add(createCategoryPieChart(), BorderLayout.CENTER);
+        pieChartPanel.add(createCategoryPieChart(snapshot), BorderLayout.CENTER);
         chartTabs.addTab("Category Breakdown", pieChartPanel);
 
         JPanel barChartPanel = new JPanel(new BorderLayout());
         barChartPanel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
-        barChartPanel.add(createMonthlyBarChart(), BorderLayout.CENTER);
+        barChartPanel.add(createMonthlyBarChart(snapshot), BorderLayout.CENTER);
         chartTabs.addTab("Monthly Spending", barChartPanel);
 
         JPanel trendChartPanel = new JPanel(new BorderLayout());
         trendChartPanel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
-        trendChartPanel.add(createSpendingTrendChart(), BorderLayout.CENTER);
+        trendChartPanel.add(createSpendingTrendChart(snapshot), BorderLayout.CENTER);
         chartTabs.addTab("Spending Trends", trendChartPanel);
 
         JPanel paymentChartPanel = new JPanel(new BorderLayout());
         paymentChartPanel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
-        paymentChartPanel.add(createPaymentMethodChart(), BorderLayout.CENTER);
+        paymentChartPanel.add(createPaymentMethodChart(snapshot), BorderLayout.CENTER);
         chartTabs.addTab("Payment Methods", paymentChartPanel);
 
         JPanel textAnalyticsPanel = new JPanel(new BorderLayout());
@@ -186,13 +263,13 @@ public class ChartService {
         JTextArea analyticsArea = new JTextArea();
         analyticsArea.setEditable(false);
         analyticsArea.setFont(new Font("Monospaced", Font.PLAIN, 12));
-        updateAnalyticsText(analyticsArea);
+        updateAnalyticsText(analyticsArea, snapshot);
         JScrollPane analyticsScroll = new JScrollPane(analyticsArea);
         textAnalyticsPanel.add(analyticsScroll, BorderLayout.CENTER);
 
         JButton refreshButton = new JButton("Refresh Analytics");
         refreshButton.addActionListener(e -> {
-            updateAnalyticsText(analyticsArea);
+            updateAnalyticsText(analyticsArea, expenseService.snapshot());
             refreshCharts(chartTabs); // Refresh charts when button is clicked
         });
         textAnalyticsPanel.add(refreshButton, BorderLayout.SOUTH);
@@ -202,13 +279,19 @@ public class ChartService {
         // Refresh the UI
         chartTabs.revalidate();
         chartTabs.repaint();
+        event.end();
+        if (event.shouldCommit()) {
+            event.charts = chartTabs.getTabCount();
+            event.rows = snapshot.size();
+            event.commit();
+        }
     }
 
-    private void updateAnalyticsText(JTextArea analyticsArea) {
+    private void updateAnalyticsText(JTextArea analyticsArea, ExpenseSnapshot snapshot) {
         StringBuilder analytics = new StringBuilder();
 
         analytics.append("=== SPENDING BY CATEGORY ===\n\n");
-        Map<String, Double> categorySummary = expenseService.getCategorySummary();
+        Map<String, Double> categorySummary = expenseService.getCategorySummary(snapshot);
 
         if (categorySummary.isEmpty()) {
             analytics.append("No expenses recorded yet.\n");
@@ -223,7 +306,7 @@ public class ChartService {
 
         analytics.append("\n=== THIS MONTH'S SPENDING ===\n\n");
         LocalDate now = LocalDate.now();
-        Map<String, Double> monthlySummary = expenseService.getMonthlySummary(now.getYear(), now.getMonthValue());
+        Map<String, Double> monthlySummary = expenseService.getMonthlySummary(snapshot, now.getYear(), now.getMonthValue());
 
         if (monthlySummary.isEmpty()) {
             analytics.append("No expenses this month.\n");
@@ -239,7 +322,7 @@ public class ChartService {
             analytics.append(String.format("\n%-20s: $%10.2f\n", "MONTHLY TOTAL", monthlyTotal));
         }
 
-        double overallTotal = expenseService.getTotalSpent();
+        double overallTotal = expenseService.getTotalSpent(snapshot);
         analytics.append(String.format("\n%-20s: $%10.2f\n", "OVERALL TOTAL", overallTotal));
 
         analyticsArea.setText(analytics.toString());
@@ -0,0 +1,65 @@
+package service;
+
+import model.Expense;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public final class ExpenseEvent {
+    public enum Type { ADDED, UPDATED, DELETED, BATCH }
+
+    private final Type type;
+    private final Expense expense;
+    private final List<ExpenseEvent> events;
+
+    private ExpenseEvent(Type type, Expense expense, List<ExpenseEvent> events) {
+        this.type = type;
+        this.expense = expense;
+        this.events = events;
+    }
+
+    public static ExpenseEvent added(Expense expense) {
+        return new ExpenseEvent(Type.ADDED, expense, Collections.emptyList());
+    }
+
+    public static ExpenseEvent updated(Expense expense) {
+        return new ExpenseEvent(Type.UPDATED, expense, Collections.emptyList());
+    }
+
+    public static ExpenseEvent deleted(Expense expense) {
+        return new ExpenseEvent(Type.DELETED, expense, Collections.emptyList());
+    }
+
+    // Nested batches are flattened so listeners only ever see one level
+    public static ExpenseEvent batch(List<ExpenseEvent> events) {
+        List<ExpenseEvent> flat = new ArrayList<>(events.size());
+        for (ExpenseEvent event : events) {
+            if (event.type == Type.BATCH) {
+                flat.addAll(event.events);
+            } else {
+                flat.add(event);
+            }
+        }
+        return new ExpenseEvent(Type.BATCH, null, Collections.unmodifiableList(flat));
+    }
+
+    public Type getType() { return type; }
+
+    // Null for BATCH events
+    public Expense getExpense() { return expense; }
+
+    // The individual changes of a BATCH event, empty otherwise
+    public List<ExpenseEvent> getEvents() { return events; }
+
+    public int size() {
+        return type == Type.BATCH ? events.size() : 1;
+    }
+
+    @Override
+    public String toString() {
+        return type == Type.BATCH
+                ? "ExpenseEvent{BATCH, size=" + events.size() + "}"
+                : "ExpenseEvent{" + type + ", " + expense + "}";
+    }
+}
@@ -0,0 +1,96 @@
+package service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ExpenseEventBus {
+    private static final AtomicInteger THREAD_COUNTER = new AtomicInteger();
+
+    private final ExecutorService defaultExecutor;
+    private final Map<ExpenseListener, Subscriber> subscribers = new ConcurrentHashMap<>();
+
+    public ExpenseEventBus() {
+        this.defaultExecutor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "expense-events-" + THREAD_COUNTER.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public void subscribe(ExpenseListener listener) {
+        subscribe(listener, defaultExecutor);
+    }
+
+    // Events are delivered on the given executor, e.g. SwingUtilities::invokeLater or Platform::runLater
+    public void subscribe(ExpenseListener listener, Executor deliveryExecutor) {
+        subscribers.put(listener, new Subscriber(listener, deliveryExecutor));
+    }
+
+    public void unsubscribe(ExpenseListener listener) {
+        subscribers.remove(listener);
+    }
+
+    public void publish(ExpenseEvent event) {
+        for (Subscriber subscriber : subscribers.values()) {
+            subscriber.enqueue(event);
+        }
+    }
+
+    public void shutdown() {
+        subscribers.clear();
+        defaultExecutor.shutdown();
+    }
+
+    // Each subscriber drains its own queue, so a slow listener never holds up the others.
+    // Whatever piles up while a listener is busy is coalesced into a single BATCH event.
+    private static final class Subscriber {
+        private final ExpenseListener listener;
+        private final Executor executor;
+        private final ConcurrentLinkedQueue<ExpenseEvent> pending = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+
+        Subscriber(ExpenseListener listener, Executor executor) {
+            this.listener = listener;
+            this.executor = executor;
+        }
+
+        void enqueue(ExpenseEvent event) {
+            pending.add(event);
+            if (scheduled.compareAndSet(false, true)) {
+                executor.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            List<ExpenseEvent> events = new ArrayList<>();
+            ExpenseEvent event;
+            while ((event = pending.poll()) != null) {
+                events.add(event);
+            }
+
+            try {
+                if (events.size() == 1) {
+                    listener.onExpenseEvent(events.get(0));
+                } else if (!events.isEmpty()) {
+                    listener.onExpenseEvent(ExpenseEvent.batch(events));
+                }
+            } catch (RuntimeException e) {
+                System.err.println("Expense listener failed: " + e.getMessage());
+            } finally {
+                scheduled.set(false);
+                // An event may have arrived after the queue was drained but before the flag was cleared
+                if (!pending.isEmpty() && scheduled.compareAndSet(false, true)) {
+                    executor.execute(this::drain);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,6 @@
+package service;
+
+@FunctionalInterface
+public interface ExpenseListener {
+    void onExpenseEvent(ExpenseEvent event);
+}
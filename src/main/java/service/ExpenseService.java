@@ -1,23 +1,74 @@
 package service;
 
 import model.Expense;
+import model.IdGenerator;
 import model.PaymentMethod;
+import persistence.ExpenseCursor;
 import persistence.ExpenseRepository;
+import persistence.ExpenseSnapshot;
+import persistence.ExpenseStats;
+import persistence.PartitionedExpenseRepository;
+import persistence.QueryTrace;
+import search.ExpenseSearchIndex;
+import search.TrigramIndex;
+import validation.BatchExpenseValidator;
 import validation.ExpenseValidator;
 import validation.ValidationResult;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import java.util.Optional;
 
 public class ExpenseService {
     private final ExpenseRepository repository;
+    private final ExpenseEventBus eventBus;
+    private final IdGenerator idGenerator;
+    // The ledger this service works on, when backed by a partitioned repository
+    private final String ledgerId;
+    // Built on the first search/filter, then kept in step with every write
+    private ExpenseSearchIndex searchIndex;
+    private TrigramIndex filterIndex;
 
     public ExpenseService(ExpenseRepository repository) {
+        this(repository, IdGenerator.ulid());
+    }
+
+    public ExpenseService(ExpenseRepository repository, IdGenerator idGenerator) {
+        this(repository, idGenerator, null);
+    }
+
+    public ExpenseService(PartitionedExpenseRepository partitions, String ledgerId) {
+        this(partitions.ledger(ledgerId), IdGenerator.ulid(), ledgerId);
+    }
+
+    private ExpenseService(ExpenseRepository repository, IdGenerator idGenerator, String ledgerId) {
         this.repository = repository;
+        this.eventBus = new ExpenseEventBus();
+        this.idGenerator = idGenerator;
+        this.ledgerId = ledgerId;
+    }
+
+    public Optional<String> getLedgerId() {
+        return Optional.ofNullable(ledgerId);
+    }
+
+    public void addListener(ExpenseListener listener) {
+        eventBus.subscribe(listener);
+    }
+
+    public void addListener(ExpenseListener listener, Executor deliveryExecutor) {
+        eventBus.subscribe(listener, deliveryExecutor);
+    }
+
+    public void removeListener(ExpenseListener listener) {
+        eventBus.unsubscribe(listener);
     }
 
     public Expense addExpense(double amount, String category, String description,
@@ -28,13 +79,58 @@ public class ExpenseService {
         validation.throwIfInvalid();
 
         // Generate unique ID
-        String id = UUID.randomUUID().toString();
+        String id = generateId();
 
         // Create and save expense
         Expense expense = new Expense(id, amount, category.trim(),
                 description != null ? description.trim() : "",
                 date, paymentMethod);
         repository.save(expense);
+        updateSearchIndex(expense);
+        eventBus.publish(ExpenseEvent.added(expense));
+        return expense;
+    }
+
+    // Stores expenses in one repository write and publishes a single BATCH event.
+    // Nothing is stored if any row is invalid.
+    public void addExpenses(List<Expense> expenses) {
+        if (expenses.isEmpty()) {
+            return;
+        }
+        new BatchExpenseValidator().validate(expenses).throwIfInvalid();
+        repository.saveAll(expenses);
+
+        List<ExpenseEvent> events = new ArrayList<>(expenses.size());
+        for (Expense expense : expenses) {
+            updateSearchIndex(expense);
+            events.add(ExpenseEvent.added(expense));
+        }
+        eventBus.publish(ExpenseEvent.batch(events));
+    }
+
+    public String generateId() {
+        return idGenerator.nextId();
+    }
+
+    public Expense updateExpense(String id, double amount, String category, String description,
+                                 LocalDate date, PaymentMethod paymentMethod) {
+        if (id == null || id.trim().isEmpty()) {
+            throw new IllegalArgumentException("Expense ID cannot be empty");
+        }
+        ValidationResult validation = ExpenseValidator.validateExpenseData(
+                amount, category, description, date);
+        validation.throwIfInvalid();
+
+        if (repository.findById(id.trim()).isEmpty()) {
+            throw new IllegalArgumentException("Expense not found with ID: " + id);
+        }
+
+        Expense expense = new Expense(id.trim(), amount, category.trim(),
+                description != null ? description.trim() : "",
+                date, paymentMethod);
+        repository.update(expense);
+        updateSearchIndex(expense);
+        eventBus.publish(ExpenseEvent.updated(expense));
         return expense;
     }
 
@@ -42,6 +138,18 @@ public class ExpenseService {
         return repository.findAll();
     }
 
+    // Expenses dated on or after the given day, newest first. Served from the
+    // recent window of a lazily opened repository without waiting for history.
+    public List<Expense> getExpensesSince(LocalDate since) {
+        try (Stream<Expense> rows = repository.streamByDateRange(since, Expense.LATEST_DATE)) {
+            return rows.collect(Collectors.toList());
+        }
+    }
+
+    public CompletableFuture<Void> warmUp() {
+        return repository.warmUp();
+    }
+
     public List<Expense> getExpensesByCategory(String category) {
         if (category == null || category.trim().isEmpty()) {
             throw new IllegalArgumentException("Category cannot be empty");
@@ -60,36 +168,147 @@ public class ExpenseService {
         return repository.findByDateRange(startDate.toString(), endDate.toString());
     }
 
+    // Pages through all expenses, newest first, without loading the full listing
+    public ExpenseCursor openCursor(int pageSize) {
+        return new ExpenseCursor(repository, pageSize);
+    }
+
+    // Lazily streams expenses in the range, newest first; nothing is collected up front
+    public Stream<Expense> streamExpenses(LocalDate startDate, LocalDate endDate) {
+        if (startDate == null || endDate == null) {
+            throw new IllegalArgumentException("Start and end dates cannot be null");
+        }
+        if (startDate.isAfter(endDate)) {
+            throw new IllegalArgumentException("Start date cannot be after end date");
+        }
+        return repository.streamByDateRange(startDate, endDate);
+    }
+
     public boolean deleteExpense(String id) {
         if (id == null || id.trim().isEmpty()) {
             throw new IllegalArgumentException("Expense ID cannot be empty");
         }
-        return repository.delete(id.trim());
+        Optional<Expense> existing = repository.findById(id.trim());
+        boolean deleted = repository.delete(id.trim());
+        if (deleted) {
+            removeFromSearchIndex(id.trim());
+            existing.ifPresent(expense -> eventBus.publish(ExpenseEvent.deleted(expense)));
+        }
+        return deleted;
+    }
+
+    public List<Expense> searchExpenses(String query) {
+        if (query == null || query.trim().isEmpty()) {
+            throw new IllegalArgumentException("Search query cannot be empty");
+        }
+        return searchIndex().search(query);
+    }
+
+    private synchronized ExpenseSearchIndex searchIndex() {
+        if (searchIndex == null) {
+            searchIndex = new ExpenseSearchIndex(repository.findAll());
+        }
+        return searchIndex;
     }
 
+    // Substring match on description or category, ignoring case; an empty text matches everything
+    public List<Expense> filterExpenses(String text) {
+        if (text == null || text.trim().isEmpty()) {
+            return getAllExpenses();
+        }
+        return filterIndex().filter(text);
+    }
+
+    private synchronized TrigramIndex filterIndex() {
+        if (filterIndex == null) {
+            filterIndex = new TrigramIndex(repository.findAll());
+        }
+        return filterIndex;
+    }
+
+    private synchronized void updateSearchIndex(Expense expense) {
+        if (searchIndex != null) {
+            searchIndex.index(expense);
+        }
+        if (filterIndex != null) {
+            filterIndex.index(expense);
+        }
+    }
+
+    private synchronized void removeFromSearchIndex(String id) {
+        if (searchIndex != null) {
+            searchIndex.remove(id);
+        }
+        if (filterIndex != null) {
+            filterIndex.remove(id);
+        }
+    }
+
+    // Pins the current version; pass it to the summary methods so several
+    // results are computed against exactly the same data
+    public ExpenseSnapshot snapshot() {
+        return repository.snapshot();
+    }
+
+    // Computed by the repository, which may push the grouping down to storage
     public Map<String, Double> getCategorySummary() {
-        return repository.findAll().stream()
-                .collect(Collectors.groupingBy(
-                        Expense::getCategory,
-                        Collectors.summingDouble(Expense::getAmount)
-                ));
+        return sums(repository.summarizeByCategory(Expense.EARLIEST_DATE, Expense.LATEST_DATE));
+    }
+
+    public Map<String, Double> getCategorySummary(ExpenseSnapshot snapshot) {
+        QueryTrace.addRowsScanned(snapshot.size());
+        return sums(ExpenseStats.byCategory(snapshot));
     }
 
+    // Reads only that month's expenses, which a segmented repository keeps apart
     public Map<String, Double> getMonthlySummary(int year, int month) {
         LocalDate startDate = LocalDate.of(year, month, 1);
         LocalDate endDate = startDate.withDayOfMonth(startDate.lengthOfMonth());
 
-        return getExpensesByDateRange(startDate, endDate).stream()
-                .collect(Collectors.groupingBy(
-                        Expense::getCategory,
-                        Collectors.summingDouble(Expense::getAmount)
-                ));
+        return sums(repository.summarizeByCategory(startDate, endDate));
+    }
+
+    public Map<String, Double> getMonthlySummary(ExpenseSnapshot snapshot, int year, int month) {
+        LocalDate startDate = LocalDate.of(year, month, 1);
+        LocalDate endDate = startDate.withDayOfMonth(startDate.lengthOfMonth());
+
+        return getCategorySummary(snapshot, startDate, endDate);
+    }
+
+    public Map<String, Double> getCategorySummary(ExpenseSnapshot snapshot, LocalDate startDate, LocalDate endDate) {
+        Map<String, ExpenseStats> byCategory =
+                ExpenseStats.byCategory(snapshot.streamByDateRange(startDate, endDate)::iterator);
+        // The snapshot is in date order, so only the range's rows were read
+        for (ExpenseStats stats : byCategory.values()) {
+            QueryTrace.addRowsScanned(stats.getCount());
+        }
+        return sums(byCategory);
+    }
+
+    private static Map<String, Double> sums(Map<String, ExpenseStats> byCategory) {
+        Map<String, Double> summary = new HashMap<>();
+        byCategory.forEach((category, stats) -> summary.put(category, stats.getSum()));
+        return summary;
     }
 
     public double getTotalSpent() {
-        return repository.findAll().stream()
-                .mapToDouble(Expense::getAmount)
-                .sum();
+        return getStats(Expense.EARLIEST_DATE, Expense.LATEST_DATE).getSum();
+    }
+
+    public double getTotalSpent(LocalDate startDate, LocalDate endDate) {
+        return getStats(startDate, endDate).getSum();
+    }
+
+    // Count, total and date bounds of the range, from stored stats where the repository keeps them
+    public ExpenseStats getStats(LocalDate startDate, LocalDate endDate) {
+        return repository.summarize(startDate, endDate);
+    }
+
+    public double getTotalSpent(ExpenseSnapshot snapshot) {
+        QueryTrace.addRowsScanned(snapshot.size());
+        return snapshot.stream()
+                .mapToLong(Expense::getAmountCents)
+                .sum() / 100.0;
     }
 
     public Optional<Expense> findExpenseById(String id) {
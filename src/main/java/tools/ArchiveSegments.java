@@ -0,0 +1,72 @@
+package tools;
+
+import persistence.SegmentedExpenseRepository;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.stream.Stream;
+
+// Archives the closed months of a segmented data directory into the cold
+// encoding and reports what it saved: segment bytes before and after, and the
+// time to open the directory fresh and read every expense, both ways.
+//
+//   java -cp ... tools.ArchiveSegments [--data dir] [--before yyyy-MM]
+//
+// --before defaults to the start of the current year.
+public class ArchiveSegments {
+    public static void main(String[] args) throws IOException {
+        String data = "data";
+        YearMonth before = YearMonth.of(LocalDate.now().getYear(), 1);
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--data":
+                    data = args[++i];
+                    break;
+                case "--before":
+                    before = YearMonth.parse(args[++i]);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+
+        Path segments = Paths.get(data, "segments");
+        PrintStream console = System.out;
+        // The repository logs every open; keep the report readable
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        try {
+            long bytesBefore = segmentBytes(segments);
+            long scanBefore = timeFullScan(data);
+            int archived = new SegmentedExpenseRepository(data).archiveBefore(before);
+            long bytesAfter = segmentBytes(segments);
+            long scanAfter = timeFullScan(data);
+
+            console.printf("archived %d months before %s%n", archived, before);
+            console.printf("segment bytes: %,d -> %,d (%.1fx smaller)%n",
+                    bytesBefore, bytesAfter, bytesBefore / (double) Math.max(1, bytesAfter));
+            console.printf("open + read all: %d ms -> %d ms%n", scanBefore, scanAfter);
+        } finally {
+            System.setOut(console);
+        }
+    }
+
+    private static long segmentBytes(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().matches("\\d{4}-\\d{2}\\.(txt|cold)"))
+                    .mapToLong(file -> file.toFile().length())
+                    .sum();
+        }
+    }
+
+    private static long timeFullScan(String data) {
+        long start = System.nanoTime();
+        new SegmentedExpenseRepository(data).findAll();
+        return (System.nanoTime() - start) / 1_000_000;
+    }
+}
@@ -0,0 +1,128 @@
+package tools;
+
+import model.Expense;
+import model.IdGenerator;
+import model.PaymentMethod;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.function.IntFunction;
+
+// Measures retained heap per expense row: the original layout (UUID id,
+// LocalDate, per-row category and description Strings) against the current
+// Expense. Rows are built the way a file load builds them, from freshly split
+// text, and measured from heap usage after GC.
+//
+//   java -cp ... tools.ExpenseFootprint [--rows n] [--max-bytes n]
+//
+// With --max-bytes the exit status is 1 when the current layout needs more
+// bytes per row than allowed, so a build script can catch regressions.
+public class ExpenseFootprint {
+    private static final String[] CATEGORIES = {
+            "Food", "Transport", "Entertainment", "Shopping", "Bills", "Healthcare", "Education", "Other"
+    };
+
+    // The Expense fields as they were before the compact layout
+    static final class LegacyExpense {
+        final String id;
+        final double amount;
+        final String category;
+        final String description;
+        final LocalDate date;
+        final PaymentMethod paymentMethod;
+
+        LegacyExpense(String id, double amount, String category, String description,
+                      LocalDate date, PaymentMethod paymentMethod) {
+            this.id = id;
+            this.amount = amount;
+            this.category = category;
+            this.description = description;
+            this.date = date;
+            this.paymentMethod = paymentMethod;
+        }
+    }
+
+    public static void main(String[] args) {
+        int rows = 200_000;
+        long maxBytes = -1;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--rows":
+                    rows = Integer.parseInt(args[++i]);
+                    break;
+                case "--max-bytes":
+                    maxBytes = Long.parseLong(args[++i]);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+
+        IdGenerator ids = IdGenerator.ulid();
+        double before = bytesPerRow(rows, row -> {
+            String[] parts = line(row, UUID.randomUUID().toString()).split("\\|");
+            return new LegacyExpense(parts[0], Double.parseDouble(parts[1]), parts[2], parts[3],
+                    LocalDate.parse(parts[4]), PaymentMethod.valueOf(parts[5]));
+        });
+        double after = bytesPerRow(rows, row -> {
+            String[] parts = line(row, ids.nextId()).split("\\|");
+            return new Expense(parts[0], Double.parseDouble(parts[1]), parts[2], parts[3],
+                    LocalDate.parse(parts[4]), PaymentMethod.valueOf(parts[5]));
+        });
+
+        System.out.printf("rows: %d%n", rows);
+        System.out.printf("original layout: %.1f bytes/expense%n", before);
+        System.out.printf("current layout:  %.1f bytes/expense (%.0f%% smaller)%n",
+                after, 100 * (1 - after / before));
+
+        if (maxBytes >= 0 && after > maxBytes) {
+            System.err.printf("Footprint regression: %.1f bytes/expense exceeds %d%n", after, maxBytes);
+            System.exit(1);
+        }
+    }
+
+    private static String line(int row, String id) {
+        Random random = new Random(row);
+        return String.join("|",
+                id,
+                String.valueOf((1 + random.nextInt(50_000)) / 100.0),
+                CATEGORIES[random.nextInt(CATEGORIES.length)],
+                "Purchase " + row,
+                LocalDate.of(2020, 1, 1).plusDays(random.nextInt(2000)).toString(),
+                PaymentMethod.values()[random.nextInt(PaymentMethod.values().length)].name());
+    }
+
+    private static double bytesPerRow(int rows, IntFunction<Object> build) {
+        long baseline = usedHeap();
+        List<Object> retained = new ArrayList<>(rows);
+        long listOnly = usedHeap() - baseline;
+        for (int row = 0; row < rows; row++) {
+            retained.add(build.apply(row));
+        }
+        long used = usedHeap() - baseline - listOnly;
+        if (retained.size() != rows) {
+            throw new IllegalStateException();
+        }
+        return (double) used / rows;
+    }
+
+    private static long usedHeap() {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        long used = Long.MAX_VALUE;
+        // Repeat until GC stops freeing memory
+        for (int i = 0; i < 10; i++) {
+            System.gc();
+            long now = memory.getHeapMemoryUsage().getUsed();
+            if (now >= used - 1024) {
+                return now;
+            }
+            used = now;
+        }
+        return used;
+    }
+}
@@ -0,0 +1,169 @@
+package tools;
+
+import persistence.FileExpenseRepository;
+import server.ExpenseServer;
+import service.ExpenseService;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Drives the HTTP API with concurrent keep-alive clients and reports
+// throughput and latency percentiles. Each client sends a mix of adds, date
+// range listings and summaries; --writes sets the share of adds.
+//
+//   java -cp ... tools.HttpLoadTest [--url http://127.0.0.1:8080]
+//                                  [--clients n] [--requests n] [--writes 0.1]
+//   java -cp ... tools.HttpLoadTest --serve dir [--max-concurrent n] ...
+//
+// With --serve, an ExpenseServer over that data directory is started on a
+// free port in the same JVM and tested instead of --url. The exit status is 1
+// if any request failed.
+public class HttpLoadTest {
+    public static void main(String[] args) throws Exception {
+        String url = "http://127.0.0.1:8080";
+        String serve = null;
+        int clients = 16;
+        int requests = 20_000;
+        double writes = 0.1;
+        int maxConcurrent = 64;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--url":
+                    url = args[++i];
+                    break;
+                case "--serve":
+                    serve = args[++i];
+                    break;
+                case "--clients":
+                    clients = Integer.parseInt(args[++i]);
+                    break;
+                case "--requests":
+                    requests = Integer.parseInt(args[++i]);
+                    break;
+                case "--writes":
+                    writes = Double.parseDouble(args[++i]);
+                    break;
+                case "--max-concurrent":
+                    maxConcurrent = Integer.parseInt(args[++i]);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+
+        ExpenseServer server = null;
+        if (serve != null) {
+            PrintStream console = System.out;
+            // Keep per-save logging out of the report
+            System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+            ExpenseService service = new ExpenseService(new FileExpenseRepository(serve));
+            server = new ExpenseServer(service, new InetSocketAddress(InetAddress.getLoopbackAddress(), 0),
+                    maxConcurrent);
+            server.start();
+            System.setOut(console);
+            url = "http://127.0.0.1:" + server.getPort();
+            System.out.println("serving " + serve + " on " + url
+                    + (server.usesVirtualThreads() ? " (virtual threads)" : " (platform threads)"));
+        }
+
+        try {
+            run(url, clients, requests, writes);
+        } finally {
+            if (server != null) {
+                server.stop(0);
+            }
+        }
+    }
+
+    private static void run(String url, int clients, int requests, double writes) throws Exception {
+        // HTTP/1.1 with a connection pool: each client keeps its connection open
+        HttpClient http = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        long[] latencies = new long[requests];
+        AtomicLong next = new AtomicLong();
+        AtomicLong failures = new AtomicLong();
+        AtomicLong bytes = new AtomicLong();
+
+        ExecutorService pool = Executors.newFixedThreadPool(clients);
+        long start = System.nanoTime();
+        List<Future<?>> futures = new ArrayList<>();
+        for (int c = 0; c < clients; c++) {
+            long seed = c;
+            futures.add(pool.submit(() -> {
+                Random random = new Random(seed);
+                for (int i = (int) next.getAndIncrement(); i < requests; i = (int) next.getAndIncrement()) {
+                    HttpRequest request = request(url, random, writes);
+                    long sent = System.nanoTime();
+                    try {
+                        HttpResponse<byte[]> response = http.send(request, HttpResponse.BodyHandlers.ofByteArray());
+                        if (response.statusCode() >= 400) {
+                            failures.incrementAndGet();
+                        }
+                        bytes.addAndGet(response.body().length);
+                    } catch (IOException e) {
+                        failures.incrementAndGet();
+                    }
+                    latencies[i] = System.nanoTime() - sent;
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        long elapsed = System.nanoTime() - start;
+        pool.shutdown();
+
+        Arrays.sort(latencies);
+        System.out.printf("requests: %d from %d clients, %.0f%% writes%n", requests, clients, writes * 100);
+        System.out.printf("throughput: %.0f requests/s (%.1f MB received)%n",
+                requests / (elapsed / 1e9), bytes.get() / 1e6);
+        System.out.printf("latency: p50 %.2f ms, p99 %.2f ms, max %.2f ms%n",
+                percentile(latencies, 0.50), percentile(latencies, 0.99), latencies[latencies.length - 1] / 1e6);
+        System.out.printf("failed: %d%n", failures.get());
+        if (failures.get() > 0) {
+            System.exit(1);
+        }
+    }
+
+    private static HttpRequest request(String url, Random random, double writes) {
+        double pick = random.nextDouble();
+        LocalDate day = LocalDate.now().minusDays(random.nextInt(365));
+        if (pick < writes) {
+            String body = String.format("{\"amount\": %d.%02d, \"category\": \"Food\", \"description\": \"load test\","
+                    + " \"date\": \"%s\", \"paymentMethod\": \"CASH\"}", 1 + random.nextInt(200), random.nextInt(100), day);
+            return HttpRequest.newBuilder(URI.create(url + "/expenses"))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(body))
+                    .build();
+        }
+        String path = pick < writes + (1 - writes) / 2
+                ? "/expenses?from=" + day.minusDays(7) + "&to=" + day
+                : "/summary?from=" + day.withDayOfMonth(1) + "&to=" + day;
+        return HttpRequest.newBuilder(URI.create(url + path)).GET().build();
+    }
+
+    private static double percentile(long[] sorted, double fraction) {
+        int index = (int) Math.ceil(fraction * sorted.length) - 1;
+        return sorted[Math.max(0, index)] / 1e6;
+    }
+}
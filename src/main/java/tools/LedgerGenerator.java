@@ -0,0 +1,405 @@
+package tools;
+
+import model.Expense;
+import model.PaymentMethod;
+import model.Ulid;
+import persistence.ExpenseLineFormat;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+// Synthetic ledgers for load and scale tests. The same seed, dates and row
+// count always give the same expenses, ids included:
+//
+// - categories are skewed (Food about a quarter of all rows, Travel and Gifts
+//   a few percent), each with its own descriptions and payment method mix,
+//   so every PaymentMethod appears;
+// - amounts are log-normal around a per-category median, many of them priced
+//   at x.99 or whole units;
+// - rows per day follow the season (December highest, January and February
+//   lowest), the weekday (Friday and Saturday busiest) and slow growth;
+// - ids are ULIDs stamped within the expense's own day.
+//
+// write() streams the rows newest first straight into a framed expenses.txt,
+// formatted byte for byte as FileExpenseRepository saves it, without building
+// Expense objects; SegmentedExpenseRepository splits that file into segments
+// on first open. generate() returns the same rows as a list.
+//
+//   java -cp ... tools.LedgerGenerator --data dir [--rows n] [--seed n]
+//                                      [--from yyyy-MM-dd] [--to yyyy-MM-dd] [--force]
+//
+// An existing expenses.txt is only replaced with --force.
+public class LedgerGenerator {
+    private static final double[] MONTH_FACTOR = {0.85, 0.85, 0.95, 1.0, 1.0, 1.05, 1.1, 1.1, 0.95, 1.0, 1.1, 1.35};
+    // Monday first, as DayOfWeek
+    private static final double[] WEEKDAY_FACTOR = {0.85, 0.85, 0.9, 0.95, 1.2, 1.3, 1.0};
+    private static final double YEARLY_GROWTH = 0.03;
+    private static final long MAX_CENTS = 100_000_000;
+    private static final long PROGRESS_ROWS = 10_000_000;
+    private static final PaymentMethod[] METHODS = PaymentMethod.values();
+
+    private static final class Category {
+        final String name;
+        final byte[] nameBytes;
+        final double share;
+        final double logMedian;
+        final double sigma;
+        final String[] descriptions;
+        final byte[][] descriptionBytes;
+        // Cumulative weights over PaymentMethod.values()
+        final double[] methods;
+
+        Category(String name, double share, double median, double sigma, double[] methodWeights,
+                 String... descriptions) {
+            this.name = name;
+            this.nameBytes = name.getBytes(StandardCharsets.UTF_8);
+            this.share = share;
+            this.logMedian = Math.log(median);
+            this.sigma = sigma;
+            this.descriptions = descriptions;
+            this.descriptionBytes = new byte[descriptions.length][];
+            for (int i = 0; i < descriptions.length; i++) {
+                descriptionBytes[i] = descriptions[i].getBytes(StandardCharsets.UTF_8);
+            }
+            this.methods = cumulative(methodWeights);
+        }
+    }
+
+    // Weights per method: cash, credit card, debit card, bank transfer, digital wallet
+    private static final Category[] CATEGORIES = {
+            new Category("Food", 0.27, 14, 0.8, new double[]{25, 30, 30, 0, 15},
+                    "Groceries", "Lunch", "Coffee", "Dinner out", "Takeaway", "Bakery", "Farmers market", "Snacks"),
+            new Category("Transport", 0.14, 9, 0.9, new double[]{20, 30, 25, 5, 20},
+                    "Bus fare", "Train ticket", "Fuel", "Taxi", "Parking", "Ride share", "Car service"),
+            new Category("Shopping", 0.12, 45, 1.0, new double[]{10, 45, 30, 0, 15},
+                    "Clothes", "Electronics", "Household items", "Books", "Shoes", "Online order"),
+            new Category("Bills", 0.10, 90, 0.6, new double[]{0, 15, 25, 60, 0},
+                    "Electricity", "Water", "Internet", "Phone plan", "Rent", "Insurance", "Gas bill"),
+            new Category("Entertainment", 0.10, 25, 0.8, new double[]{20, 35, 25, 0, 20},
+                    "Cinema", "Concert", "Streaming subscription", "Video game", "Museum", "Bar"),
+            new Category("Healthcare", 0.06, 40, 1.1, new double[]{10, 35, 40, 15, 0},
+                    "Pharmacy", "Doctor visit", "Dentist", "Gym membership", "Optician"),
+            new Category("Education", 0.04, 60, 1.2, new double[]{5, 35, 25, 35, 0},
+                    "Course fee", "Textbooks", "Online course", "Stationery", "Workshop"),
+            new Category("Other", 0.07, 20, 1.2, new double[]{35, 20, 25, 10, 10},
+                    "Donation", "Haircut", "Pet supplies", "Postage", "Miscellaneous"),
+            new Category("Travel", 0.03, 150, 1.0, new double[]{5, 60, 15, 20, 0},
+                    "Hotel", "Flight", "Travel insurance", "Souvenirs", "Car rental"),
+            new Category("Gifts", 0.02, 35, 0.9, new double[]{30, 30, 20, 0, 20},
+                    "Birthday gift", "Flowers", "Wedding gift", "Gift card")
+    };
+    private static final double[] CATEGORY_WEIGHTS;
+
+    static {
+        double[] shares = new double[CATEGORIES.length];
+        for (int i = 0; i < shares.length; i++) {
+            shares[i] = CATEGORIES[i].share;
+        }
+        CATEGORY_WEIGHTS = cumulative(shares);
+    }
+
+    @FunctionalInterface
+    private interface RowSink {
+        void accept(long msb, long lsb, long cents, Category category, int description,
+                    long epochDay, PaymentMethod method) throws IOException;
+    }
+
+    private final long seed;
+    private final LocalDate from;
+    private final LocalDate to;
+
+    public LedgerGenerator(long seed, LocalDate from, LocalDate to) {
+        if (to.isBefore(from)) {
+            throw new IllegalArgumentException("End date is before start date");
+        }
+        if (from.isBefore(LocalDate.ofEpochDay(0))) {
+            throw new IllegalArgumentException("Dates before 1970-01-01 cannot be stamped into ULIDs");
+        }
+        this.seed = seed;
+        this.from = from;
+        this.to = to;
+    }
+
+    public static void main(String[] args) throws IOException {
+        String data = null;
+        long rows = 100_000;
+        long seed = 42;
+        LocalDate from = LocalDate.of(2020, 1, 1);
+        LocalDate to = LocalDate.of(2024, 12, 31);
+        boolean force = false;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--data":
+                    data = args[++i];
+                    break;
+                case "--rows":
+                    rows = Long.parseLong(args[++i]);
+                    break;
+                case "--seed":
+                    seed = Long.parseLong(args[++i]);
+                    break;
+                case "--from":
+                    from = LocalDate.parse(args[++i]);
+                    break;
+                case "--to":
+                    to = LocalDate.parse(args[++i]);
+                    break;
+                case "--force":
+                    force = true;
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+        if (data == null) {
+            throw new IllegalArgumentException("--data is required");
+        }
+
+        Path file = Paths.get(data, "expenses.txt");
+        if (Files.exists(file) && !force) {
+            throw new IllegalArgumentException(file + " already exists; pass --force to replace it");
+        }
+        Files.createDirectories(file.getParent());
+        long start = System.nanoTime();
+        long bytes = new LedgerGenerator(seed, from, to).write(file, rows);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%,d expenses (%s to %s, seed %d) written to %s%n", rows, from, to, seed, file);
+        System.out.printf("%,d bytes in %.1f s: %,.0f rows/s, %.1f MB/s%n",
+                bytes, seconds, rows / seconds, bytes / seconds / 1e6);
+    }
+
+    public List<Expense> generate(int rows) {
+        List<Expense> expenses = new ArrayList<>(rows);
+        try {
+            generate(rows, (msb, lsb, cents, category, description, epochDay, method) ->
+                    expenses.add(new Expense(new Ulid(msb, lsb).toString(), cents / 100.0, category.name,
+                            category.descriptions[description], LocalDate.ofEpochDay(epochDay), method)));
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return expenses;
+    }
+
+    // Writes the ledger to a temporary file next to target and moves it into
+    // place once it is on disk; returns the file size
+    public long write(Path target, long rows) throws IOException {
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            FramedWriter writer = new FramedWriter(channel);
+            generate(rows, writer);
+            writer.flush();
+            channel.force(true);
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return Files.size(target);
+    }
+
+    // Formats each row straight into the output buffer, behind room for its
+    // checksum, so a line is never copied or turned into a String
+    private static final class FramedWriter implements RowSink {
+        private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+        private static final int MAX_LINE = 1024;
+
+        private final FileChannel channel;
+        private final byte[] buffer = new byte[1 << 20];
+        private final byte[][] methodNames = new byte[METHODS.length][];
+        private final long start = System.nanoTime();
+        private int position;
+        private long written;
+        // yyyy-MM-dd of the day being written
+        private final byte[] date = new byte[10];
+        private long dateDay = Long.MIN_VALUE;
+
+        FramedWriter(FileChannel channel) {
+            this.channel = channel;
+            for (PaymentMethod method : METHODS) {
+                methodNames[method.ordinal()] = method.name().getBytes(StandardCharsets.US_ASCII);
+            }
+            byte[] header = (ExpenseLineFormat.FRAMED_HEADER + "\n").getBytes(StandardCharsets.UTF_8);
+            System.arraycopy(header, 0, buffer, 0, header.length);
+            position = header.length;
+        }
+
+        @Override
+        public void accept(long msb, long lsb, long cents, Category category, int description,
+                           long epochDay, PaymentMethod method) throws IOException {
+            if (buffer.length - position < MAX_LINE) {
+                flush();
+            }
+            if (epochDay != dateDay) {
+                LocalDate day = LocalDate.ofEpochDay(epochDay);
+                padded(date, 0, day.getYear(), 4);
+                date[4] = '-';
+                padded(date, 5, day.getMonthValue(), 2);
+                date[7] = '-';
+                padded(date, 8, day.getDayOfMonth(), 2);
+                dateDay = epochDay;
+            }
+
+            // id|amount|category|description|date|METHOD, with the amount as
+            // String.valueOf(double) prints it (whole cents below 10^7 never
+            // need an exponent)
+            int lineStart = position + ExpenseLineFormat.CHECKSUM_DIGITS + 1;
+            int at = Ulid.encode(msb, lsb, buffer, lineStart);
+            buffer[at++] = '|';
+            at = digits(buffer, at, cents / 100);
+            buffer[at++] = '.';
+            long fraction = cents % 100;
+            buffer[at++] = (byte) ('0' + fraction / 10);
+            if (fraction % 10 != 0) {
+                buffer[at++] = (byte) ('0' + fraction % 10);
+            }
+            at = field(at, category.nameBytes);
+            at = field(at, category.descriptionBytes[description]);
+            at = field(at, date);
+            at = field(at, methodNames[method.ordinal()]);
+
+            long crc = ExpenseLineFormat.checksum(buffer, lineStart, at - lineStart);
+            for (int i = ExpenseLineFormat.CHECKSUM_DIGITS - 1; i >= 0; i--) {
+                buffer[position + i] = HEX[(int) (crc & 0xF)];
+                crc >>>= 4;
+            }
+            buffer[lineStart - 1] = ' ';
+            buffer[at++] = '\n';
+            position = at;
+
+            if (++written % PROGRESS_ROWS == 0) {
+                double seconds = (System.nanoTime() - start) / 1e9;
+                System.out.printf("%,d rows (%,.0f rows/s)%n", written, written / seconds);
+            }
+        }
+
+        private int field(int at, byte[] value) {
+            buffer[at++] = '|';
+            System.arraycopy(value, 0, buffer, at, value.length);
+            return at + value.length;
+        }
+
+        void flush() throws IOException {
+            ByteBuffer out = ByteBuffer.wrap(buffer, 0, position);
+            while (out.hasRemaining()) {
+                channel.write(out);
+            }
+            position = 0;
+        }
+    }
+
+    // Rows come newest day first and, within a day, in id order, which is
+    // NEWEST_FIRST, so nothing has to be sorted or held in memory
+    private void generate(long rows, RowSink sink) throws IOException {
+        if (rows < 0) {
+            throw new IllegalArgumentException("Row count cannot be negative");
+        }
+        long firstDay = from.toEpochDay();
+        long lastDay = to.toEpochDay();
+        double[] weights = new double[(int) (lastDay - firstDay + 1)];
+        double total = 0;
+        for (int i = 0; i < weights.length; i++) {
+            LocalDate date = LocalDate.ofEpochDay(firstDay + i);
+            weights[i] = MONTH_FACTOR[date.getMonthValue() - 1]
+                    * WEEKDAY_FACTOR[date.getDayOfWeek().getValue() - 1]
+                    * (1 + YEARLY_GROWTH * i / 365.0);
+            total += weights[i];
+        }
+
+        SplittableRandom random = new SplittableRandom(seed);
+        double cumulative = 0;
+        long emitted = 0;
+        for (int i = weights.length - 1; i >= 0; i--) {
+            cumulative += weights[i];
+            // Rounding the running total keeps the sum exact
+            long upTo = i == 0 ? rows : Math.round(rows * (cumulative / total));
+            int count = (int) (upTo - emitted);
+            emitted = upTo;
+            long epochDay = firstDay + i;
+            long dayMillis = epochDay * 86_400_000L;
+            long spacing = count > 0 ? 86_400_000L / count : 0;
+            for (int r = 0; r < count; r++) {
+                long msb;
+                long lsb;
+                if (spacing > 0) {
+                    // Spread through the day with jitter; timestamps strictly increase
+                    long millis = dayMillis + r * spacing + random.nextLong(spacing);
+                    msb = (millis << 16) | random.nextInt(1 << 16);
+                    lsb = random.nextLong();
+                } else {
+                    // More rows than milliseconds in the day: one timestamp, counting up
+                    msb = dayMillis << 16;
+                    lsb = r;
+                }
+
+                Category category = CATEGORIES[pick(CATEGORY_WEIGHTS, random.nextDouble())];
+                sink.accept(msb, lsb, amount(category, random), category,
+                        random.nextInt(category.descriptions.length), epochDay,
+                        METHODS[pick(category.methods, random.nextDouble())]);
+            }
+        }
+    }
+
+    private static long amount(Category category, SplittableRandom random) {
+        long cents = Math.round(Math.exp(category.logMedian + category.sigma * gaussian(random)) * 100);
+        double pricing = random.nextDouble();
+        if (pricing < 0.3) {
+            cents = (cents / 100 + 1) * 100 - 1;
+        } else if (pricing < 0.4) {
+            cents = Math.max(100, Math.round(cents / 100.0) * 100);
+        }
+        return Math.max(1, Math.min(MAX_CENTS, cents));
+    }
+
+    private static double gaussian(SplittableRandom random) {
+        double u = 1 - random.nextDouble();
+        return Math.sqrt(-2 * Math.log(u)) * Math.cos(2 * Math.PI * random.nextDouble());
+    }
+
+    private static int pick(double[] cumulative, double value) {
+        for (int i = 0; i < cumulative.length - 1; i++) {
+            if (value < cumulative[i]) {
+                return i;
+            }
+        }
+        return cumulative.length - 1;
+    }
+
+    private static double[] cumulative(double[] weights) {
+        double total = 0;
+        for (double weight : weights) {
+            total += weight;
+        }
+        double[] cumulative = new double[weights.length];
+        double sum = 0;
+        for (int i = 0; i < weights.length; i++) {
+            sum += weights[i];
+            cumulative[i] = sum / total;
+        }
+        return cumulative;
+    }
+
+    private static int digits(byte[] target, int at, long value) {
+        int length = 1;
+        for (long rest = value / 10; rest > 0; rest /= 10) {
+            length++;
+        }
+        return padded(target, at, value, length);
+    }
+
+    private static int padded(byte[] target, int at, long value, int width) {
+        for (int i = width - 1; i >= 0; i--) {
+            target[at + i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        return at + width;
+    }
+}
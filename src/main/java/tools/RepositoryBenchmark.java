@@ -0,0 +1,115 @@
+package tools;
+
+import model.Expense;
+import model.IdGenerator;
+import model.PaymentMethod;
+import persistence.ExpenseRepository;
+import persistence.FileExpenseRepository;
+import persistence.JdbcExpenseRepository;
+import service.ExpenseService;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+// Loads one generated dataset into FileExpenseRepository and
+// JdbcExpenseRepository (embedded H2) and times the same operations on both:
+// open, a one-month range, a category lookup, the monthly and all-time
+// category summaries, a one-year total and single saves.
+//
+//   java -cp ... tools.RepositoryBenchmark [--rows n] [--iterations n]
+//
+// Each directory is created under the system temp directory and deleted
+// afterwards. Times are the mean per operation after one warm-up round.
+public class RepositoryBenchmark {
+    public static void main(String[] args) throws IOException {
+        int rows = 200_000;
+        int iterations = 20;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--rows":
+                    rows = Integer.parseInt(args[++i]);
+                    break;
+                case "--iterations":
+                    iterations = Integer.parseInt(args[++i]);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+
+        List<Expense> dataset = new LedgerGenerator(42, LocalDate.of(2019, 1, 1), LocalDate.of(2024, 12, 31))
+                .generate(rows);
+        PrintStream console = System.out;
+        // Repositories log every save
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        Path fileDirectory = Files.createTempDirectory("bench-file");
+        Path jdbcDirectory = Files.createTempDirectory("bench-jdbc");
+        try {
+            new FileExpenseRepository(fileDirectory.toString()).saveAll(dataset);
+            try (JdbcExpenseRepository jdbc = new JdbcExpenseRepository(jdbcDirectory.toString())) {
+                jdbc.saveAll(dataset);
+            }
+
+            console.printf("%d expenses, %d iterations%n", rows, iterations);
+            console.printf("%-28s %12s %12s%n", "operation (ms)", "file", "jdbc");
+            double fileOpen = time(iterations, () -> new FileExpenseRepository(fileDirectory.toString()));
+            double jdbcOpen = time(iterations, () -> new JdbcExpenseRepository(jdbcDirectory.toString()).close());
+            console.printf("%-28s %12.2f %12.2f%n", "open", fileOpen, jdbcOpen);
+
+            FileExpenseRepository file = new FileExpenseRepository(fileDirectory.toString());
+            try (JdbcExpenseRepository jdbc = new JdbcExpenseRepository(jdbcDirectory.toString())) {
+                compare(console, "findByDateRange (1 month)", iterations, file, jdbc,
+                        repository -> repository.findByDateRange("2024-03-01", "2024-03-31"));
+                compare(console, "findByCategory", iterations, file, jdbc,
+                        repository -> repository.findByCategory("healthcare"));
+                compare(console, "monthly category summary", iterations, file, jdbc,
+                        repository -> new ExpenseService(repository).getMonthlySummary(2024, 3));
+                compare(console, "all-time category summary", iterations, file, jdbc,
+                        repository -> new ExpenseService(repository).getCategorySummary());
+                compare(console, "total for one year", iterations, file, jdbc,
+                        repository -> repository.summarize(LocalDate.of(2023, 1, 1), LocalDate.of(2023, 12, 31)));
+                IdGenerator ids = IdGenerator.ulid();
+                compare(console, "save one expense", Math.min(iterations, 5), file, jdbc,
+                        repository -> repository.save(new Expense(ids.nextId(), 9.99, "Food", "benchmark",
+                                LocalDate.of(2024, 3, 15), PaymentMethod.CASH)));
+            }
+        } finally {
+            System.setOut(console);
+            deleteRecursively(fileDirectory);
+            deleteRecursively(jdbcDirectory);
+        }
+    }
+
+    private static void compare(PrintStream console, String name, int iterations, ExpenseRepository file,
+                                ExpenseRepository jdbc, Consumer<ExpenseRepository> operation) {
+        double fileMillis = time(iterations, () -> operation.accept(file));
+        double jdbcMillis = time(iterations, () -> operation.accept(jdbc));
+        console.printf("%-28s %12.2f %12.2f%n", name, fileMillis, jdbcMillis);
+    }
+
+    private static double time(int iterations, Runnable operation) {
+        operation.run();
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            operation.run();
+        }
+        return (System.nanoTime() - start) / 1e6 / iterations;
+    }
+
+    private static void deleteRecursively(Path directory) throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package tools;
+
+import model.Expense;
+import model.IdGenerator;
+import model.PaymentMethod;
+import persistence.FileExpenseRepository;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+// Hammers one FileExpenseRepository from many threads with saves, updates
+// and deletes, then checks that no write was lost: every surviving expense
+// is in memory, in the date index and in the file as reloaded from disk, and
+// nothing deleted came back.
+//
+//   java -cp ... tools.RepositoryStress [--threads n] [--ops n] [--data dir]
+//
+// Exits with status 1 when a check fails.
+public class RepositoryStress {
+    public static void main(String[] args) throws Exception {
+        int threads = 8;
+        int ops = 250;
+        Path dataDirectory = null;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--threads":
+                    threads = Integer.parseInt(args[++i]);
+                    break;
+                case "--ops":
+                    ops = Integer.parseInt(args[++i]);
+                    break;
+                case "--data":
+                    dataDirectory = Path.of(args[++i]);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+        if (dataDirectory == null) {
+            dataDirectory = Files.createTempDirectory("expense-stress");
+        }
+
+        // The repository reports every save; keep the output readable
+        PrintStream console = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        List<String> failures;
+        long elapsed;
+        try {
+            FileExpenseRepository repository = new FileExpenseRepository(dataDirectory.toString());
+            // Ids that must survive, with the amount the last writer stored
+            Map<String, Long> expected = new ConcurrentHashMap<>();
+            Set<String> deleted = ConcurrentHashMap.newKeySet();
+
+            long start = System.nanoTime();
+            run(repository, threads, ops, expected, deleted);
+            elapsed = System.nanoTime() - start;
+
+            failures = check(repository, expected, deleted, "memory");
+            failures.addAll(check(new FileExpenseRepository(dataDirectory.toString()), expected, deleted, "file"));
+        } finally {
+            System.setOut(console);
+        }
+
+        System.out.printf("%d threads x %d ops in %d ms, data in %s%n",
+                threads, ops, elapsed / 1_000_000, dataDirectory);
+        if (!failures.isEmpty()) {
+            failures.stream().limit(20).forEach(System.err::println);
+            System.err.println(failures.size() + " check(s) failed");
+            System.exit(1);
+        }
+        System.out.println("No lost or resurrected writes");
+    }
+
+    private static void run(FileExpenseRepository repository, int threads, int ops,
+                            Map<String, Long> expected, Set<String> deleted) throws Exception {
+        IdGenerator ids = IdGenerator.ulid();
+        ExecutorService workers = Executors.newFixedThreadPool(threads);
+        CountDownLatch go = new CountDownLatch(1);
+        List<Future<?>> results = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            results.add(workers.submit(() -> {
+                go.await();
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                List<String> own = new ArrayList<>();
+                for (int op = 0; op < ops; op++) {
+                    int choice = random.nextInt(10);
+                    if (choice < 6 || own.isEmpty()) {
+                        String id = ids.nextId();
+                        long cents = random.nextLong(1, 100_000);
+                        repository.save(expense(id, cents, thread, op));
+                        expected.put(id, cents);
+                        own.add(id);
+                    } else if (choice < 9) {
+                        // Only this thread writes its own ids, so the last amount is known
+                        String id = own.get(random.nextInt(own.size()));
+                        long cents = random.nextLong(1, 100_000);
+                        repository.update(expense(id, cents, thread, op));
+                        expected.put(id, cents);
+                    } else {
+                        String id = own.remove(random.nextInt(own.size()));
+                        if (!repository.delete(id)) {
+                            throw new IllegalStateException("Delete of " + id + " found nothing");
+                        }
+                        expected.remove(id);
+                        deleted.add(id);
+                    }
+                }
+                return null;
+            }));
+        }
+        go.countDown();
+        try {
+            for (Future<?> result : results) {
+                result.get();
+            }
+        } finally {
+            workers.shutdown();
+        }
+    }
+
+    private static Expense expense(String id, long cents, int thread, int op) {
+        return new Expense(id, cents / 100.0, "Stress", "thread " + thread + " op " + op,
+                LocalDate.of(2024, 1, 1).plusDays(ThreadLocalRandom.current().nextInt(365)),
+                PaymentMethod.CREDIT_CARD);
+    }
+
+    private static List<String> check(FileExpenseRepository repository, Map<String, Long> expected,
+                                      Set<String> deleted, String where) {
+        List<String> failures = new ArrayList<>();
+        expected.forEach((id, cents) -> {
+            Optional<Expense> found = repository.findById(id);
+            if (!found.isPresent()) {
+                failures.add(where + ": lost " + id);
+            } else if (found.get().getAmountCents() != cents) {
+                failures.add(where + ": " + id + " has " + found.get().getAmountCents() + " cents, expected " + cents);
+            }
+        });
+        for (String id : deleted) {
+            if (repository.findById(id).isPresent()) {
+                failures.add(where + ": deleted " + id + " came back");
+            }
+        }
+        List<Expense> all = repository.findAll();
+        Set<String> seen = new HashSet<>();
+        for (Expense expense : all) {
+            if (!seen.add(expense.getId())) {
+                failures.add(where + ": " + expense.getId() + " listed twice");
+            }
+        }
+        if (all.size() != expected.size()) {
+            failures.add(where + ": " + all.size() + " listed, expected " + expected.size());
+        }
+        return failures;
+    }
+}
@@ -1,11 +1,23 @@
 // src/ui/ConsoleUI.java
 package ui;
 
+import export.CsvRowWriter;
 import model.Expense;
 import model.PaymentMethod;
+import persistence.ExpenseCursor;
+import persistence.RepositoryLayout;
 import service.ExpenseService;
 import validation.ExpenseValidator;
 
+import java.io.BufferedWriter;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
@@ -13,16 +25,27 @@ import java.util.List;
 import java.util.Map;
 import java.util.Scanner;
 import java.util.Optional;
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
 
 public class ConsoleUI {
+    private static final int PAGE_SIZE = 20;
+
     private final ExpenseService expenseService;
     private final Scanner scanner;
     private final DateTimeFormatter dateFormatter;
+    // Listings go through one buffered writer and are flushed once per page
+    private final PrintWriter out;
+    // Changes seen since the last listing, including ones made outside this console
+    private final AtomicInteger changesSinceListing = new AtomicInteger();
 
     public ConsoleUI(ExpenseService expenseService) {
         this.expenseService = expenseService;
         this.scanner = new Scanner(System.in);
         this.dateFormatter = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+        this.out = new PrintWriter(new BufferedWriter(new OutputStreamWriter(System.out), 1 << 16));
+        expenseService.addListener(event -> changesSinceListing.addAndGet(event.size()));
     }
 
     public void start() {
@@ -66,6 +89,10 @@ public class ConsoleUI {
 
     private void displayMainMenu() {
         System.out.println("\n=== MAIN MENU ===");
+        int changes = changesSinceListing.get();
+        if (changes > 0) {
+            System.out.printf("(%d expense change(s) since your last listing)%n", changes);
+        }
         System.out.println("1. Add New Expense");
         System.out.println("2. View All Expenses");
         System.out.println("3. View Expenses by Category");
@@ -167,14 +194,33 @@ public class ConsoleUI {
 
     private void viewAllExpenses() {
         System.out.println("\n=== ALL EXPENSES ===");
-        List<Expense> expenses = expenseService.getAllExpenses();
+        ExpenseCursor cursor = expenseService.openCursor(PAGE_SIZE);
 
-        if (expenses.isEmpty()) {
+        if (cursor.current().isEmpty()) {
             System.out.println("No expenses found.");
             return;
         }
 
-        displayExpenses(expenses);
+        while (true) {
+            displayExpenses(cursor.current());
+            System.out.printf("Page %d%s%n", cursor.getPageNumber(), cursor.hasNext() ? "" : " (last)");
+            System.out.print("[n]ext, [p]revious, [j]ump to date, Enter to finish: ");
+
+            String choice = scanner.nextLine().trim().toLowerCase();
+            if (choice.equals("n")) {
+                cursor.next();
+            } else if (choice.equals("p")) {
+                cursor.previous();
+            } else if (choice.equals("j")) {
+                cursor.jumpTo(getValidatedDate());
+                if (cursor.current().isEmpty()) {
+                    System.out.println("No expenses on or before that date.");
+                    cursor.previous();
+                }
+            } else {
+                break;
+            }
+        }
         System.out.printf("Total spent: $%.2f%n", expenseService.getTotalSpent());
     }
 
@@ -254,20 +300,107 @@ public class ConsoleUI {
     }
 
     private void displayExpenses(List<Expense> expenses) {
-        System.out.printf("%-36s %-12s %-15s %-20s %-12s %s%n",
+        changesSinceListing.set(0);
+        printTableHeader(out);
+        expenses.forEach(expense -> printTableRow(out, expense));
+        out.flush();
+    }
+
+    private static void printTableHeader(PrintWriter out) {
+        out.printf("%-36s %-12s %-15s %-20s %-12s %s%n",
                 "ID", "Date", "Amount", "Category", "Payment", "Description");
-        System.out.println("-".repeat(120));
-
-        expenses.forEach(expense ->
-                System.out.printf("%-36s %-12s $%-14.2f %-20s %-12s %s%n",
-                        expense.getId().substring(0, 8) + "...",
-                        expense.getDate(),
-                        expense.getAmount(),
-                        expense.getCategory(),
-                        expense.getPaymentMethod().getDisplayName(),
-                        expense.getDescription()
-                )
-        );
+        out.println("-".repeat(120));
+    }
+
+    private static void printTableRow(PrintWriter out, Expense expense) {
+        out.printf("%-36s %-12s $%-14.2f %-20s %-12s %s%n",
+                // In full: ids minted minutes apart share their leading (timestamp) characters
+                expense.getId(),
+                expense.getDate(),
+                expense.getAmount(),
+                expense.getCategory(),
+                expense.getPaymentMethod().getDisplayName(),
+                expense.getDescription());
+    }
+
+    // Non-interactive use: ConsoleUI --list [--from yyyy-MM-dd] [--to yyyy-MM-dd]
+    // [--format table|csv] [--data dir]. Rows are streamed as they are read.
+    public static void main(String[] args) {
+        String dataDirectory = "data";
+        boolean list = false;
+        LocalDate from = Expense.EARLIEST_DATE;
+        LocalDate to = Expense.LATEST_DATE;
+        String format = "table";
+
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--list":
+                        list = true;
+                        break;
+                    case "--from":
+                        from = LocalDate.parse(args[++i]);
+                        break;
+                    case "--to":
+                        to = LocalDate.parse(args[++i]);
+                        break;
+                    case "--format":
+                        format = args[++i].toLowerCase();
+                        break;
+                    case "--data":
+                        dataDirectory = args[++i];
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown option: " + args[i]);
+                }
+            }
+            if (!format.equals("table") && !format.equals("csv")) {
+                throw new IllegalArgumentException("Unknown format: " + format);
+            }
+        } catch (RuntimeException e) {
+            System.err.println("Invalid arguments: " + e.getMessage());
+            System.err.println("Usage: ConsoleUI [--list [--from yyyy-MM-dd] [--to yyyy-MM-dd] "
+                    + "[--format table|csv]] [--data dir]");
+            System.exit(2);
+        }
+
+        if (!list) {
+            new ConsoleUI(new ExpenseService(RepositoryLayout.open(dataDirectory))).start();
+            return;
+        }
+
+        // Keep stdout for rows only; status messages from loading go to stderr
+        PrintStream stdout = System.out;
+        System.setOut(System.err);
+        PrintWriter out = new PrintWriter(new BufferedWriter(new OutputStreamWriter(
+                new FileOutputStream(FileDescriptor.out), StandardCharsets.UTF_8), 1 << 16));
+
+        ExpenseService service = new ExpenseService(RepositoryLayout.open(dataDirectory));
+        try (Stream<Expense> rows = service.streamExpenses(from, to)) {
+            CsvRowWriter csv = format.equals("csv") ? new CsvRowWriter(out) : null;
+            if (csv == null) {
+                printTableHeader(out);
+            }
+            Iterator<Expense> iterator = rows.iterator();
+            long written = 0;
+            while (iterator.hasNext()) {
+                // checkError() flushes, so only ask now and then whether the reader closed the pipe
+                if (++written % 4096 == 0 && out.checkError()) {
+                    break;
+                }
+                Expense expense = iterator.next();
+                if (csv != null) {
+                    csv.write(expense);
+                } else {
+                    printTableRow(out, expense);
+                }
+            }
+        } catch (IOException e) {
+            // PrintWriter reports failures through checkError(), not exceptions
+            throw new UncheckedIOException(e);
+        }
+        out.flush();
+        System.setOut(stdout);
     }
 
     private int getValidatedYear() {
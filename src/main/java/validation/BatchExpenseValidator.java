@@ -0,0 +1,85 @@
+// src/validation/BatchExpenseValidator.java
+package validation;
+
+import model.Expense;
+
+import java.time.LocalDate;
+import java.util.List;
+
+// Same rules as ExpenseValidator, for bulk ingest. The date bounds are fixed
+// when the validator is created, so checking a row is a handful of
+// comparisons and allocates nothing.
+public class BatchExpenseValidator {
+    private static final double MAX_AMOUNT = 1_000_000;
+    private static final int MAX_CATEGORY_LENGTH = 50;
+    private static final int MAX_DESCRIPTION_LENGTH = 200;
+
+    private final long maxEpochDay;
+    private final long minEpochDay;
+
+    public BatchExpenseValidator() {
+        this(LocalDate.now());
+    }
+
+    public BatchExpenseValidator(LocalDate today) {
+        this.maxEpochDay = today.plusDays(1).toEpochDay();
+        this.minEpochDay = today.minusYears(10).toEpochDay();
+    }
+
+    // Bit mask of ValidationError values, 0 when the row is valid. Thread-safe.
+    public int check(double amount, String category, String description, LocalDate date) {
+        int errors = 0;
+
+        if (amount <= 0) {
+            errors |= ValidationError.AMOUNT_NOT_POSITIVE.mask();
+        }
+        if (amount > MAX_AMOUNT) {
+            errors |= ValidationError.AMOUNT_TOO_LARGE.mask();
+        }
+
+        if (category == null || isBlank(category)) {
+            errors |= ValidationError.CATEGORY_EMPTY.mask();
+        } else if (category.length() > MAX_CATEGORY_LENGTH) {
+            errors |= ValidationError.CATEGORY_TOO_LONG.mask();
+        }
+
+        if (description != null && description.length() > MAX_DESCRIPTION_LENGTH) {
+            errors |= ValidationError.DESCRIPTION_TOO_LONG.mask();
+        }
+
+        if (date == null) {
+            errors |= ValidationError.DATE_MISSING.mask();
+        } else {
+            long epochDay = date.toEpochDay();
+            if (epochDay > maxEpochDay) {
+                errors |= ValidationError.DATE_IN_FUTURE.mask();
+            } else if (epochDay < minEpochDay) {
+                errors |= ValidationError.DATE_TOO_OLD.mask();
+            }
+        }
+        return errors;
+    }
+
+    public BatchValidationResult validate(List<Expense> expenses) {
+        BatchValidationResult result = new BatchValidationResult();
+        for (int row = 0; row < expenses.size(); row++) {
+            Expense expense = expenses.get(row);
+            int errors = check(expense.getAmount(), expense.getCategory(),
+                    expense.getDescription(), expense.getDate());
+            if (errors != 0) {
+                result.add(row, errors);
+            }
+        }
+        return result;
+    }
+
+    // Same as category.trim().isEmpty() without the substring
+    private static boolean isBlank(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) > ' ') {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,47 @@
+// src/validation/BatchValidationResult.java
+package validation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Invalid rows of a batch as parallel primitive arrays: row index and
+// ValidationError bit mask. Valid rows cost nothing.
+public class BatchValidationResult {
+    private int[] rows = new int[0];
+    private int[] errors = new int[0];
+    private int size;
+
+    void add(int row, int errorMask) {
+        if (size == rows.length) {
+            int capacity = Math.max(8, size * 2);
+            rows = Arrays.copyOf(rows, capacity);
+            errors = Arrays.copyOf(errors, capacity);
+        }
+        rows[size] = row;
+        errors[size] = errorMask;
+        size++;
+    }
+
+    public boolean isValid() { return size == 0; }
+    public int getInvalidCount() { return size; }
+
+    // Row index of the i-th invalid row
+    public int getRow(int i) { return rows[i]; }
+
+    // ValidationError mask of the i-th invalid row
+    public int getErrors(int i) { return errors[i]; }
+
+    public void throwIfInvalid() {
+        if (!isValid()) {
+            List<String> details = new ArrayList<>();
+            for (int i = 0; i < Math.min(size, 10); i++) {
+                details.add("row " + rows[i] + ": " + String.join(", ", ValidationError.messages(errors[i])));
+            }
+            if (size > 10) {
+                details.add("and " + (size - 10) + " more invalid row(s)");
+            }
+            throw new ValidationException(String.join("; ", details));
+        }
+    }
+}
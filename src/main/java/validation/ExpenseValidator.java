@@ -5,45 +5,41 @@ import model.Expense;
 import model.PaymentMethod;
 
 import java.time.LocalDate;
-import java.util.ArrayList;
-import java.util.List;
+import java.time.ZoneId;
 
 public class ExpenseValidator {
+    // Shared by every single-row check until the local date changes, so a check
+    // reads the clock as a long instead of building a LocalDate and a validator
+    private static volatile DailyValidator daily = new DailyValidator(LocalDate.now());
 
-    public static ValidationResult validateExpenseData(double amount, String category,
-                                                       String description, LocalDate date) {
-        List<String> errors = new ArrayList<>();
-
-        // Amount validation
-        if (amount <= 0) {
-            errors.add("Amount must be greater than 0");
-        }
-        if (amount > 1_000_000) {
-            errors.add("Amount exceeds maximum limit of 1,000,000");
-        }
+    private static final class DailyValidator {
+        final BatchExpenseValidator validator;
+        final long expiresAtMillis;
 
-        // Category validation
-        if (category == null || category.trim().isEmpty()) {
-            errors.add("Category cannot be empty");
-        } else if (category.length() > 50) {
-            errors.add("Category cannot exceed 50 characters");
+        DailyValidator(LocalDate today) {
+            this.validator = new BatchExpenseValidator(today);
+            this.expiresAtMillis = today.plusDays(1).atStartOfDay(ZoneId.systemDefault())
+                    .toInstant().toEpochMilli();
         }
+    }
 
-        // Description validation
-        if (description != null && description.length() > 200) {
-            errors.add("Description cannot exceed 200 characters");
+    public static ValidationResult validateExpenseData(double amount, String category,
+                                                       String description, LocalDate date) {
+        int errors = validator().check(amount, category, description, date);
+        if (errors == 0) {
+            return ValidationResult.SUCCESS;
         }
+        return new ValidationResult(false, ValidationError.messages(errors));
+    }
 
-        // Date validation
-        if (date == null) {
-            errors.add("Date cannot be null");
-        } else if (date.isAfter(LocalDate.now().plusDays(1))) {
-            errors.add("Date cannot be in the future");
-        } else if (date.isBefore(LocalDate.now().minusYears(10))) {
-            errors.add("Date cannot be more than 10 years in the past");
+    private static BatchExpenseValidator validator() {
+        DailyValidator current = daily;
+        if (System.currentTimeMillis() >= current.expiresAtMillis) {
+            // Racing threads may each build one; they are identical
+            current = new DailyValidator(LocalDate.now());
+            daily = current;
         }
-
-        return new ValidationResult(errors.isEmpty(), errors);
+        return current.validator;
     }
 
     public static boolean isValidPaymentMethod(String paymentMethod) {
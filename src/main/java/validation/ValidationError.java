@@ -0,0 +1,41 @@
+// src/validation/ValidationError.java
+package validation;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Each error owns one bit, so all errors of a row fit in a single int mask
+public enum ValidationError {
+    AMOUNT_NOT_POSITIVE("Amount must be greater than 0"),
+    AMOUNT_TOO_LARGE("Amount exceeds maximum limit of 1,000,000"),
+    CATEGORY_EMPTY("Category cannot be empty"),
+    CATEGORY_TOO_LONG("Category cannot exceed 50 characters"),
+    DESCRIPTION_TOO_LONG("Description cannot exceed 200 characters"),
+    DATE_MISSING("Date cannot be null"),
+    DATE_IN_FUTURE("Date cannot be in the future"),
+    DATE_TOO_OLD("Date cannot be more than 10 years in the past");
+
+    private static final ValidationError[] VALUES = values();
+
+    private final String message;
+
+    ValidationError(String message) {
+        this.message = message;
+    }
+
+    public String getMessage() { return message; }
+
+    public int mask() {
+        return 1 << ordinal();
+    }
+
+    public static List<String> messages(int mask) {
+        List<String> messages = new ArrayList<>();
+        for (ValidationError error : VALUES) {
+            if ((mask & error.mask()) != 0) {
+                messages.add(error.message);
+            }
+        }
+        return messages;
+    }
+}
@@ -5,6 +5,9 @@ import java.util.Collections;
 import java.util.List;
 
 public class ValidationResult {
+    // Shared by every valid result, so the common path allocates nothing
+    public static final ValidationResult SUCCESS = new ValidationResult(true, Collections.emptyList());
+
     private final boolean isValid;
     private final List<String> errors;
 